@@ -0,0 +1,90 @@
+package com.farmmanagement.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.farmmanagement.middleware.AuthMiddleware;
+import com.farmmanagement.util.JwtUtil;
+
+import spark.HaltException;
+
+/**
+ * Biaya per request di jalur auth: generate / verify JWT (cache hit dan miss) dan
+ * AuthMiddleware.authorize untuk endpoint public, token valid, role salah dan header kosong.
+ *
+ * Jalankan:
+ *   mvn -Pbench compile exec:java -Dexec.mainClass=com.farmmanagement.bench.JmhRunner -Dexec.args="AuthBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+    private String managerToken;
+    private String managerHeader;
+
+    @Setup
+    public void setup() {
+        managerToken = JwtUtil.generateToken("manajer1", "manajer");
+        managerHeader = "Bearer " + managerToken;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JwtUtil.generateToken("manajer1", "manajer");
+    }
+
+    @Benchmark
+    public DecodedJWT verifyCached() {
+        return JwtUtil.verify(managerToken);
+    }
+
+    // Verifikasi HMAC penuh: token dikeluarkan dari cache sebelum setiap panggilan
+    @Benchmark
+    public DecodedJWT verifyUncached() {
+        JwtUtil.getVerifiedTokenCache().invalidate(managerToken);
+        return JwtUtil.verify(managerToken);
+    }
+
+    @Benchmark
+    public DecodedJWT authorizePublicPath() {
+        return AuthMiddleware.authorize("/api/user/login", null);
+    }
+
+    @Benchmark
+    public DecodedJWT authorizeManager() {
+        return AuthMiddleware.authorize("/api/manager/hasil-panen", managerHeader);
+    }
+
+    @Benchmark
+    public int authorizeWrongRole() {
+        return haltStatus("/api/admin/users", managerHeader);
+    }
+
+    @Benchmark
+    public int authorizeMissingHeader() {
+        return haltStatus("/api/manager/hasil-panen", null);
+    }
+
+    private static int haltStatus(String path, String header) {
+        try {
+            AuthMiddleware.authorize(path, header);
+            return 200;
+        } catch (HaltException e) {
+            return e.statusCode();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.farmmanagement.bench;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Entry point JMH untuk exec:java. Argumen diteruskan apa adanya ke JMH (regex nama benchmark, -f, -wi, -rf json, ...).
+ * exec:java menjalankan benchmark di dalam JVM Maven, jadi java.class.path diisi ulang dari classloader
+ * supaya JVM fork JMH bisa menemukan class benchmark.
+ *
+ *   mvn -Pbench compile exec:java -Dexec.mainClass=com.farmmanagement.bench.JmhRunner -Dexec.args="Auth -f 1"
+ */
+public class JmhRunner {
+
+    public static void main(String[] args) throws Exception {
+        String classPath = classPathOf(Thread.currentThread().getContextClassLoader());
+        if (!classPath.isEmpty()) {
+            System.setProperty("java.class.path", classPath);
+        }
+        new Runner(new CommandLineOptions(args)).run();
+    }
+
+    private static String classPathOf(ClassLoader loader) {
+        List<String> entries = new ArrayList<>();
+        for (ClassLoader cl = loader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        entries.add(new File(url.getPath()).getAbsolutePath());
+                    }
+                }
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+}
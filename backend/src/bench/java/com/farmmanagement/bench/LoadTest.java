@@ -0,0 +1,340 @@
+package com.farmmanagement.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.App;
+import com.farmmanagement.metrics.LatencyHistogram;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import spark.Spark;
+
+/**
+ * Load test end-to-end: App dijalankan di JVM ini terhadap PostgreSQL embedded (zonky) berisi data seed,
+ * lalu sejumlah virtual user menjalankan campuran skenario nyata dan hasilnya dilaporkan per route
+ * (throughput, p50/p95/p99/max, error).
+ *
+ * Skenario (bobot lewat -Dload.mix):
+ *   dashboard - manajer: summary, list hasil panen, list monitoring
+ *   browse    - pembeli: list hasil panen (cursor acak), detail, riwayat pembelian
+ *   purchase  - pembeli: detail hasil panen lalu POST pembelian
+ *   ingest    - gateway sensor: POST monitoring/batch
+ *
+ * Jalankan:
+ *   mvn -Pbench compile exec:java -Dexec.mainClass=com.farmmanagement.bench.LoadTest \
+ *       -Dload.concurrency=50 -Dload.seconds=60 -Dload.monitoring=2000000
+ *
+ * Pakai database lain (skema sudah ada, seed dilewati kecuali -Dload.seed=true):
+ *   -Dload.dbUrl=jdbc:postgresql://localhost:5432/farm_load -Dload.dbUser=... -Dload.dbPassword=...
+ */
+public class LoadTest {
+    private static final Gson gson = new Gson();
+    private static final String BASE_URL = "http://localhost:8081";
+
+    private static final Map<String, RouteResult> results = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        Config config = new Config();
+        System.out.printf("Load test: concurrency %d, %ds (+%ds warmup), mix %s%n",
+                config.concurrency, config.seconds, config.warmupSeconds, config.mix);
+
+        EmbeddedPostgres embedded = null;
+        String url = System.getProperty("load.dbUrl");
+        String user = System.getProperty("load.dbUser", "postgres");
+        String password = System.getProperty("load.dbPassword", "postgres");
+        boolean seed = Boolean.parseBoolean(System.getProperty("load.seed", String.valueOf(url == null)));
+
+        if (url == null) {
+            System.out.println("Starting embedded PostgreSQL ...");
+            embedded = EmbeddedPostgres.builder().start();
+            url = embedded.getJdbcUrl("postgres", "postgres");
+        }
+        if (seed) {
+            LoadTestDatabase.createSchema(url, user, password);
+            LoadTestDatabase.seed(url, user, password, config);
+        }
+
+        // AppConfig membaca System property lebih dulu dari .env
+        System.setProperty("DB_URL", url);
+        System.setProperty("DB_USER", user);
+        System.setProperty("DB_PASSWORD", password);
+        // Semua virtual user datang dari satu IP; login hanya di awal
+        System.setProperty("RATE_LIMIT_LOGIN", System.getProperty("load.rateLimitLogin", "0/1"));
+        System.setProperty("RATE_LIMIT_API", System.getProperty("load.rateLimitApi", "0/1"));
+
+        App.main(new String[0]);
+        Spark.awaitInitialization();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<String> managerTokens = login(client, "manajer", Math.min(config.managers, 5));
+        List<String> buyerTokens = login(client, "pembeli", Math.min(config.buyers, 20));
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        long endAt = measureFrom + TimeUnit.SECONDS.toNanos(config.seconds);
+        CountDownLatch done = new CountDownLatch(config.concurrency);
+        for (int i = 0; i < config.concurrency; i++) {
+            VirtualUser vu = new VirtualUser(client, config,
+                    managerTokens.get(i % managerTokens.size()), buyerTokens.get(i % buyerTokens.size()),
+                    config.firstBuyerId + (i % config.buyers), measureFrom);
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < endAt) {
+                        vu.runScenario();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-vu-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        report(config.seconds);
+
+        Spark.stop();
+        Spark.awaitStop();
+        if (embedded != null) {
+            embedded.close();
+        }
+        System.exit(0);
+    }
+
+    private static List<String> login(HttpClient client, String prefix, int count) throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String body = gson.toJson(Map.of("username", prefix + i, "password", LoadTestDatabase.PASSWORD));
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(BASE_URL + "/api/user/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login " + prefix + i + " failed: " + response.statusCode() + " " + response.body());
+            }
+            tokens.add(gson.fromJson(response.body(), JsonObject.class).get("token").getAsString());
+        }
+        return tokens;
+    }
+
+    private static void report(int seconds) {
+        System.out.println();
+        System.out.printf("%-40s %9s %9s %9s %9s %9s %9s %8s%n",
+                "route", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+        long total = 0;
+        long errors = 0;
+        for (Map.Entry<String, RouteResult> entry : new TreeMap<>(results).entrySet()) {
+            LatencyHistogram h = entry.getValue().latency;
+            long failed = entry.getValue().errors.sum();
+            System.out.printf("%-40s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %8d%n",
+                    entry.getKey(), h.getCount(), h.getCount() / (double) seconds,
+                    h.valueAtQuantile(0.50) / 1000.0, h.valueAtQuantile(0.95) / 1000.0,
+                    h.valueAtQuantile(0.99) / 1000.0, h.getMaxMicros() / 1000.0, failed);
+            total += h.getCount();
+            errors += failed;
+        }
+        System.out.printf("%-40s %9d %9.1f %49d%n", "TOTAL", total, total / (double) seconds, errors);
+        for (Map.Entry<String, RouteResult> entry : new TreeMap<>(results).entrySet()) {
+            if (entry.getValue().lastError != null) {
+                System.out.println("  last error " + entry.getKey() + ": " + entry.getValue().lastError);
+            }
+        }
+    }
+
+    private static class VirtualUser {
+        private final HttpClient client;
+        private final Config config;
+        private final String managerAuth;
+        private final String buyerAuth;
+        private final int buyerId;
+        private final long measureFrom;
+        private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        VirtualUser(HttpClient client, Config config, String managerToken, String buyerToken, int buyerId, long measureFrom) {
+            this.client = client;
+            this.config = config;
+            this.managerAuth = "Bearer " + managerToken;
+            this.buyerAuth = "Bearer " + buyerToken;
+            this.buyerId = buyerId;
+            this.measureFrom = measureFrom;
+        }
+
+        void runScenario() {
+            switch (config.pickScenario()) {
+                case "dashboard":
+                    call("GET /api/manager/summary", managerAuth, "GET", "/api/manager/summary", null);
+                    call("GET /api/manager/hasil-panen", managerAuth, "GET", "/api/manager/hasil-panen?limit=50", null);
+                    call("GET /api/manager/monitoring", managerAuth, "GET", "/api/manager/monitoring?limit=100", null);
+                    break;
+                case "browse":
+                    int afterId = ThreadLocalRandom.current().nextInt(config.hasilPanen) + 1;
+                    call("GET /api/pembeli/hasil-panen", buyerAuth, "GET",
+                            "/api/pembeli/hasil-panen?limit=20&order=asc&after_id=" + afterId, null);
+                    call("GET /api/pembeli/hasil-panen/:id", buyerAuth, "GET",
+                            "/api/pembeli/hasil-panen/" + randomHasilPanen(), null);
+                    call("GET /api/pembeli/pembelian", buyerAuth, "GET", "/api/pembeli/pembelian?limit=20", null);
+                    break;
+                case "purchase":
+                    purchase();
+                    break;
+                case "ingest":
+                    call("POST /api/manager/monitoring/batch", managerAuth, "POST",
+                            "/api/manager/monitoring/batch", sensorBatch());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void purchase() {
+            String detail = call("GET /api/pembeli/hasil-panen/:id", buyerAuth, "GET",
+                    "/api/pembeli/hasil-panen/" + randomHasilPanen(), null);
+            if (detail == null) {
+                return;
+            }
+            JsonObject hasil = gson.fromJson(detail, JsonObject.class).getAsJsonObject("data");
+            // Seperti UI pembeli: hanya hasil panen yang masih dijual; penjual dan harga ditentukan server
+            if (hasil.get("status").isJsonNull() || !"Siap Dijual".equals(hasil.get("status").getAsString())) {
+                return;
+            }
+            int jumlah = 1 + ThreadLocalRandom.current().nextInt(5);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id_pembeli", buyerId);
+            body.put("id_hasil", hasil.get("id_hasil").getAsInt());
+            body.put("tanggal", timestampFormat.format(new Date()));
+            body.put("jumlah", jumlah);
+            body.put("status", "Diproses");
+            call("POST /api/pembeli", buyerAuth, "POST", "/api/pembeli", gson.toJson(body));
+        }
+
+        private String sensorBatch() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String now = timestampFormat.format(new Date());
+            List<Map<String, Object>> rows = new ArrayList<>(config.batchSize);
+            for (int i = 0; i < config.batchSize; i++) {
+                rows.add(Map.of(
+                        "id_lahan", 1 + random.nextInt(config.lahan),
+                        "suhu", 20 + random.nextDouble() * 15,
+                        "kelembaban", 40 + random.nextDouble() * 50,
+                        "tanggal", now));
+            }
+            return gson.toJson(rows);
+        }
+
+        private int randomHasilPanen() {
+            return 1 + ThreadLocalRandom.current().nextInt(config.hasilPanen);
+        }
+
+        // Body response untuk 2xx, null jika gagal; hanya dicatat setelah warmup
+        private String call(String label, String auth, String method, String path, String body) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", auth);
+            if (body != null) {
+                builder.header("Content-Type", "application/json")
+                       .method(method, HttpRequest.BodyPublishers.ofString(body));
+            } else {
+                builder.method(method, HttpRequest.BodyPublishers.noBody());
+            }
+
+            long start = System.nanoTime();
+            String error = null;
+            String responseBody = null;
+            try {
+                HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() / 100 == 2) {
+                    responseBody = response.body();
+                } else {
+                    error = response.statusCode() + " " + abbreviate(response.body());
+                }
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            if (start >= measureFrom) {
+                RouteResult result = results.computeIfAbsent(label, k -> new RouteResult());
+                result.latency.recordNanos(System.nanoTime() - start);
+                if (error != null) {
+                    result.errors.increment();
+                    result.lastError = error;
+                }
+            }
+            return responseBody;
+        }
+
+        private static String abbreviate(String text) {
+            return text == null || text.length() <= 200 ? text : text.substring(0, 200) + "...";
+        }
+    }
+
+    private static class RouteResult {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        volatile String lastError;
+    }
+
+    static class Config {
+        final int concurrency = Integer.getInteger("load.concurrency", 50);
+        final int seconds = Integer.getInteger("load.seconds", 60);
+        final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+        final int batchSize = Integer.getInteger("load.batchSize", 100);
+        final String mix = System.getProperty("load.mix", "dashboard:20,browse:50,purchase:10,ingest:20");
+
+        // Ukuran data seed
+        final int managers = Integer.getInteger("load.managers", 10);
+        final int buyers = Integer.getInteger("load.buyers", 200);
+        final int lahan = Integer.getInteger("load.lahan", 100);
+        final int tanaman = Integer.getInteger("load.tanaman", 50);
+        final int hasilPanen = Integer.getInteger("load.hasilPanen", 10_000);
+        final int pembelian = Integer.getInteger("load.pembelian", 50_000);
+        final int monitoring = Integer.getInteger("load.monitoring", 2_000_000);
+        // Pembeli = id_user setelah admin1 dan manajer
+        final int firstBuyerId = 2 + managers;
+
+        private final List<String> scenarios = new ArrayList<>();
+        private final List<Integer> cumulativeWeights = new ArrayList<>();
+        private int totalWeight;
+
+        Config() {
+            for (String part : mix.split(",")) {
+                String[] pair = part.trim().split(":");
+                int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+                if (weight > 0) {
+                    totalWeight += weight;
+                    scenarios.add(pair[0].trim());
+                    cumulativeWeights.add(totalWeight);
+                }
+            }
+            if (scenarios.isEmpty()) {
+                throw new IllegalArgumentException("load.mix tidak berisi skenario: " + mix);
+            }
+        }
+
+        String pickScenario() {
+            int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (int i = 0; i < scenarios.size(); i++) {
+                if (roll < cumulativeWeights.get(i)) {
+                    return scenarios.get(i);
+                }
+            }
+            return scenarios.get(scenarios.size() - 1);
+        }
+    }
+}
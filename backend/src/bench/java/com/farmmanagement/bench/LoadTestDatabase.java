@@ -0,0 +1,152 @@
+package com.farmmanagement.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Skema dan data awal untuk LoadTest. Skema mengikuti kolom yang dipakai repository,
+ * data di-generate di sisi database (generate_series) supaya jutaan baris monitoring cepat dibuat.
+ *
+ * User hasil seed: admin1, manajer1..N, pembeli1..N, semua dengan password PASSWORD.
+ */
+class LoadTestDatabase {
+    static final String PASSWORD = "loadtest123";
+
+    private static final List<String> SCHEMA = List.of(
+        "CREATE TABLE IF NOT EXISTS users (" +
+        "  id_user SERIAL PRIMARY KEY," +
+        "  username VARCHAR(50) NOT NULL UNIQUE," +
+        "  password VARCHAR(255) NOT NULL," +
+        "  role VARCHAR(20) NOT NULL," +
+        "  nama VARCHAR(100))",
+        "CREATE TABLE IF NOT EXISTS lahan (" +
+        "  id_lahan SERIAL PRIMARY KEY," +
+        "  nama_lahan VARCHAR(100) NOT NULL," +
+        "  luas NUMERIC(10,2)," +
+        "  lokasi VARCHAR(255)," +
+        "  id_pengawas INT REFERENCES users(id_user)," +
+        "  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+        "CREATE TABLE IF NOT EXISTS tanaman (" +
+        "  id_tanaman SERIAL PRIMARY KEY," +
+        "  nama_tanaman VARCHAR(100) NOT NULL," +
+        "  jenis VARCHAR(50)," +
+        "  waktu_tanam DATE," +
+        "  jumlah_tanaman INT NOT NULL DEFAULT 0)",
+        "CREATE TABLE IF NOT EXISTS tanaman_lahan (" +
+        "  id_tl SERIAL PRIMARY KEY," +
+        "  id_lahan INT REFERENCES lahan(id_lahan)," +
+        "  id_tanaman INT REFERENCES tanaman(id_tanaman)," +
+        "  id_pengawas INT REFERENCES users(id_user)," +
+        "  tanggal_tanam DATE," +
+        "  status VARCHAR(20)," +
+        "  jumlah_tanaman INT NOT NULL DEFAULT 0)",
+        "CREATE TABLE IF NOT EXISTS hasil_panen (" +
+        "  id_hasil SERIAL PRIMARY KEY," +
+        "  id_tanaman INT REFERENCES tanaman(id_tanaman)," +
+        "  id_lahan INT REFERENCES lahan(id_lahan)," +
+        "  id_pengawas INT REFERENCES users(id_user)," +
+        "  tanggal_panen DATE," +
+        "  kuantitas NUMERIC(12,2)," +
+        "  kualitas VARCHAR(50)," +
+        "  harga_satuan NUMERIC(12,2)," +
+        "  status VARCHAR(30))",
+        "CREATE TABLE IF NOT EXISTS pembelian (" +
+        "  id_pembelian SERIAL PRIMARY KEY," +
+        "  id_pembeli INT REFERENCES users(id_user)," +
+        "  id_penjual INT REFERENCES users(id_user)," +
+        "  id_hasil INT REFERENCES hasil_panen(id_hasil)," +
+        "  id_tanaman INT REFERENCES tanaman(id_tanaman)," +
+        "  tanggal TIMESTAMP," +
+        "  jumlah NUMERIC(12,2)," +
+        "  total_harga NUMERIC(14,2)," +
+        "  status VARCHAR(20))",
+        "CREATE TABLE IF NOT EXISTS monitoring (" +
+        "  id_monitor SERIAL PRIMARY KEY," +
+        "  id_lahan INT REFERENCES lahan(id_lahan)," +
+        "  suhu DOUBLE PRECISION," +
+        "  kelembaban DOUBLE PRECISION," +
+        "  tanggal TIMESTAMP)"
+    );
+
+    private LoadTestDatabase() {}
+
+    static void createSchema(String url, String user, String password) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, user, password);
+             Statement st = conn.createStatement()) {
+            for (String sql : SCHEMA) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    static void seed(String url, String user, String password, LoadTest.Config config) throws SQLException {
+        long started = System.currentTimeMillis();
+        String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(Integer.getInteger("load.bcryptCost", 10)));
+
+        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO users (username, password, role, nama) " +
+                    "SELECT ? || g, ?, ?, ? || g FROM generate_series(1, ?) g")) {
+                insertUsers(ps, "admin", hash, "admin", 1);
+                insertUsers(ps, "manajer", hash, "manajer", config.managers);
+                insertUsers(ps, "pembeli", hash, "pembeli", config.buyers);
+            }
+
+            try (Statement st = conn.createStatement()) {
+                // Manajer = id_user 2..managers+1 (admin1 = id 1)
+                String manager = "(2 + (g % " + config.managers + "))";
+                String lahan = "(1 + (g % " + config.lahan + "))";
+                String tanaman = "(1 + (g % " + config.tanaman + "))";
+
+                st.execute("INSERT INTO lahan (nama_lahan, luas, lokasi, id_pengawas) " +
+                        "SELECT 'Lahan ' || g, round((random() * 50 + 1)::numeric, 2), 'Blok ' || (g % 20), " + manager +
+                        " FROM generate_series(1, " + config.lahan + ") g");
+                st.execute("INSERT INTO tanaman (nama_tanaman, jenis, waktu_tanam, jumlah_tanaman) " +
+                        "SELECT 'Tanaman ' || g, (ARRAY['Sayur','Buah','Padi','Umbi'])[1 + g % 4], " +
+                        "CURRENT_DATE - (g % 365), 1000000 FROM generate_series(1, " + config.tanaman + ") g");
+                // Setiap lahan ditanami beberapa jenis tanaman (pasangan unik, sesuai index SchemaInitializer)
+                st.execute("INSERT INTO tanaman_lahan (id_lahan, id_tanaman, id_pengawas, tanggal_tanam, status, jumlah_tanaman) " +
+                        "SELECT l.id_lahan, t.id_tanaman, l.id_pengawas, CURRENT_DATE - 30, 'tumbuh', 100 " +
+                        "FROM lahan l JOIN tanaman t ON t.id_tanaman % " + config.lahan + " = l.id_lahan % " + config.lahan);
+                st.execute("INSERT INTO hasil_panen (id_tanaman, id_lahan, id_pengawas, tanggal_panen, kuantitas, kualitas, harga_satuan, status) " +
+                        "SELECT " + tanaman + ", " + lahan + ", " + manager + ", CURRENT_DATE - (g % 365), " +
+                        "round((random() * 1000 + 1000)::numeric, 2), (ARRAY['A','B','C'])[1 + g % 3], " +
+                        "round((random() * 20000 + 1000)::numeric, 2), " +
+                        "(ARRAY['Siap Dijual','Siap Dijual','Siap Dijual','Menunggu Validasi','Terjual'])[1 + g % 5] " +
+                        "FROM generate_series(1, " + config.hasilPanen + ") g");
+                st.execute("INSERT INTO pembelian (id_pembeli, id_penjual, id_hasil, id_tanaman, tanggal, jumlah, total_harga, status) " +
+                        "SELECT " + (2 + config.managers) + " + (g % " + config.buyers + "), h.id_pengawas, h.id_hasil, h.id_tanaman, " +
+                        "now() - (g % 100000) * interval '1 minute', 1 + g % 10, (1 + g % 10) * h.harga_satuan, " +
+                        "(ARRAY['Diproses','Diterima'])[1 + g % 2] " +
+                        "FROM generate_series(1, " + config.pembelian + ") g " +
+                        "JOIN hasil_panen h ON h.id_hasil = 1 + (g % " + config.hasilPanen + ")");
+                // Satu pembacaan per menit per lahan, mundur dari sekarang
+                st.execute("INSERT INTO monitoring (id_lahan, suhu, kelembaban, tanggal) " +
+                        "SELECT " + lahan + ", 20 + random() * 15, 40 + random() * 50, " +
+                        "now() - (g / " + config.lahan + ") * interval '1 minute' " +
+                        "FROM generate_series(1, " + config.monitoring + ") g");
+                st.execute("ANALYZE");
+            }
+        }
+
+        System.out.printf("✅ Seeded %d users, %d lahan, %d tanaman, %d hasil_panen, %d pembelian, %d monitoring in %.1fs%n",
+                1 + config.managers + config.buyers, config.lahan, config.tanaman, config.hasilPanen,
+                config.pembelian, config.monitoring, (System.currentTimeMillis() - started) / 1000.0);
+    }
+
+    private static void insertUsers(PreparedStatement ps, String prefix, String hash, String role, int count)
+            throws SQLException {
+        ps.setString(1, prefix);
+        ps.setString(2, hash);
+        ps.setString(3, role);
+        ps.setString(4, "Load Test " + prefix + " ");
+        ps.setInt(5, count);
+        ps.executeUpdate();
+    }
+}
@@ -0,0 +1,147 @@
+package com.farmmanagement.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.farmmanagement.controller.ManagerController;
+import com.farmmanagement.model.HasilPanen;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.Pembelian;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Biaya serialisasi list HasilPanen / Pembelian / Monitoring dengan Gson milik ManagerController.
+ * "envelope" = gson.toJson(Map.of(...)) seperti route non-streaming (String utuh di heap),
+ * "stream" = JsonStreamWriter seperti route list ber-cursor (langsung ke writer, di sini dibuang).
+ *
+ * Jalankan:
+ *   mvn -Pbench compile exec:java -Dexec.mainClass=com.farmmanagement.bench.JmhRunner -Dexec.args="SerializationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final Type HASIL_PANEN_TYPE = HasilPanen.class;
+    private static final Type PEMBELIAN_TYPE = Pembelian.class;
+    private static final Type MONITORING_TYPE = Monitoring.class;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Gson gson;
+    private List<HasilPanen> hasilPanen;
+    private List<Pembelian> pembelian;
+    private List<Monitoring> monitoring;
+
+    @Setup
+    public void setup() {
+        gson = ManagerController.getGson();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        String[] kualitas = {"A", "B", "C", null};
+        String[] status = {"Menunggu Validasi", "Siap Dijual", "Terjual"};
+
+        hasilPanen = new ArrayList<>(rows);
+        pembelian = new ArrayList<>(rows);
+        monitoring = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            hasilPanen.add(new HasilPanen(i, 1 + random.nextInt(50), 1 + random.nextInt(20), 1 + random.nextInt(10),
+                    new Date(now - random.nextInt(365) * 86_400_000L), 10 + random.nextInt(990) + random.nextDouble(),
+                    kualitas[random.nextInt(kualitas.length)], 1000 + random.nextInt(49_000),
+                    status[random.nextInt(status.length)]));
+            pembelian.add(new Pembelian(i, 1 + random.nextInt(500), 1 + random.nextInt(10), 1 + random.nextInt(rows),
+                    1 + random.nextInt(50), new Timestamp(now - random.nextInt(1_000_000) * 1000L),
+                    1 + random.nextInt(100), 10_000 + random.nextInt(5_000_000), status[random.nextInt(status.length)]));
+            monitoring.add(new Monitoring(i, 1 + random.nextInt(20), 15 + random.nextDouble() * 20,
+                    40 + random.nextDouble() * 50, new Timestamp(now - i * 60_000L)));
+        }
+    }
+
+    @Benchmark
+    public String hasilPanenEnvelope() {
+        return gson.toJson(envelope(hasilPanen));
+    }
+
+    @Benchmark
+    public long hasilPanenStream() throws IOException {
+        return stream(hasilPanen, HASIL_PANEN_TYPE);
+    }
+
+    @Benchmark
+    public String pembelianEnvelope() {
+        return gson.toJson(envelope(pembelian));
+    }
+
+    @Benchmark
+    public long pembelianStream() throws IOException {
+        return stream(pembelian, PEMBELIAN_TYPE);
+    }
+
+    @Benchmark
+    public String monitoringEnvelope() {
+        return gson.toJson(envelope(monitoring));
+    }
+
+    @Benchmark
+    public long monitoringStream() throws IOException {
+        return stream(monitoring, MONITORING_TYPE);
+    }
+
+    private static Map<String, Object> envelope(List<?> data) {
+        return Map.of("status", "success", "message", "Data berhasil diambil", "data", data);
+    }
+
+    private <T> long stream(List<T> data, Type rowType) throws IOException {
+        CountingWriter out = new CountingWriter();
+        JsonWriter writer = gson.newJsonWriter(out);
+        JsonStreamWriter.writePage(writer, gson, "Data berhasil diambil", rowType, data, "12345", data.size());
+        writer.flush();
+        return out.chars;
+    }
+
+    // Membuang output tapi menghitung karakter, supaya JIT tidak bisa menghapus pekerjaannya
+    private static class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buf, int off, int len) {
+            chars += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            chars += len;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
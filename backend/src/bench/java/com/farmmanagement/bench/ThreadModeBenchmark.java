@@ -0,0 +1,176 @@
+package com.farmmanagement.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.farmmanagement.config.ServerConfig;
+
+import spark.Service;
+import spark.embeddedserver.EmbeddedServers;
+
+/**
+ * Membandingkan throughput dan latency p99 handler blocking di thread pool Jetty biasa
+ * versus virtual thread. Handler mensimulasikan I/O blocking (JDBC / client lambat) dengan sleep.
+ *
+ * Jalankan (Java 21 untuk mode virtual):
+ *   mvn -Pjava21,bench compile exec:java -Dexec.mainClass=com.farmmanagement.bench.ThreadModeBenchmark \
+ *       -Dbench.concurrency=1000 -Dbench.seconds=15 -Dbench.ioMs=50
+ */
+public class ThreadModeBenchmark {
+    private static final String VIRTUAL_JETTY = "jetty-virtual-threads";
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("bench.concurrency", 1000);
+        int seconds = Integer.getInteger("bench.seconds", 15);
+        int warmupSeconds = Integer.getInteger("bench.warmupSeconds", 3);
+        int ioMs = Integer.getInteger("bench.ioMs", 50);
+
+        System.out.printf("Concurrency %d, duration %ds (+%ds warmup), simulated blocking I/O %dms%n%n",
+                concurrency, seconds, warmupSeconds, ioMs);
+
+        List<Result> results = new ArrayList<>();
+        results.add(run("platform (Jetty QueuedThreadPool)", 18081, null, concurrency, seconds, warmupSeconds, ioMs));
+
+        if (Runtime.version().feature() >= 21) {
+            EmbeddedServers.initialize();
+            EmbeddedServers.add(VIRTUAL_JETTY, ServerConfig.virtualThreadJettyFactory());
+            results.add(run("virtual threads", 18082, VIRTUAL_JETTY, concurrency, seconds, warmupSeconds, ioMs));
+        } else {
+            System.out.println("Skipping virtual thread mode: requires Java 21 and -Pjava21");
+        }
+
+        System.out.println();
+        System.out.printf("%-36s %12s %10s %10s %10s %10s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (Result r : results) {
+            System.out.printf("%-36s %12.0f %10.1f %10.1f %10.1f %10d%n",
+                    r.mode, r.throughput, r.p50Ms, r.p99Ms, r.maxMs, r.errors);
+        }
+        System.exit(0);
+    }
+
+    private static Result run(String mode, int port, Object serverIdentifier,
+                              int concurrency, int seconds, int warmupSeconds, int ioMs) throws Exception {
+        Service http = Service.ignite().port(port);
+        if (serverIdentifier != null) {
+            http.embeddedServerIdentifier(serverIdentifier);
+        }
+        http.get("/bench/io", (req, res) -> {
+            Thread.sleep(ioMs);
+            return "ok";
+        });
+        http.awaitInitialization();
+
+        System.out.println("Running " + mode + " ...");
+        Result result = drive(mode, URI.create("http://localhost:" + port + "/bench/io"),
+                concurrency, seconds, warmupSeconds);
+
+        http.stop();
+        http.awaitStop();
+        return result;
+    }
+
+    private static Result drive(String mode, URI uri, int concurrency, int seconds, int warmupSeconds)
+            throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long endAt = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        long[][] perClient = new long[concurrency][];
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            int index = i;
+            clients.execute(() -> {
+                try {
+                    while (true) {
+                        long start = System.nanoTime();
+                        if (start >= endAt) break;
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            long end = System.nanoTime();
+                            if (start >= measureFrom) {
+                                if (response.statusCode() == 200) {
+                                    recorder.add(end - start);
+                                } else {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        } catch (Exception e) {
+                            if (start >= measureFrom) errors.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    perClient[index] = recorder.toArray();
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        clients.shutdown();
+
+        long[] all = Arrays.stream(perClient).flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(all);
+        return new Result(mode, all.length / (double) seconds,
+                percentileMs(all, 0.50), percentileMs(all, 0.99),
+                all.length > 0 ? all[all.length - 1] / 1e6 : 0, errors.get());
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class Result {
+        final String mode;
+        final double throughput;
+        final double p50Ms;
+        final double p99Ms;
+        final double maxMs;
+        final long errors;
+
+        Result(String mode, double throughput, double p50Ms, double p99Ms, double maxMs, long errors) {
+            this.mode = mode;
+            this.throughput = throughput;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.errors = errors;
+        }
+    }
+}
@@ -3,8 +3,13 @@ package com.farmmanagement;
 import org.sql2o.Connection;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.config.MonitoringPartitionManager;
+import com.farmmanagement.config.SchemaInitializer;
+import com.farmmanagement.config.ServerConfig;
 import com.farmmanagement.controller.AdminController;
+import com.farmmanagement.controller.AlertController;
 import com.farmmanagement.controller.BuyerController;
+import com.farmmanagement.controller.ExportController;
 import com.farmmanagement.controller.HasilPanenController;
 import com.farmmanagement.controller.LahanController;
 import com.farmmanagement.controller.ManagerController;
@@ -13,10 +18,19 @@ import com.farmmanagement.controller.PembelianController;
 import com.farmmanagement.controller.TanamanController;
 import com.farmmanagement.controller.TanamanLahanController;
 import com.farmmanagement.controller.UserController;
+import com.farmmanagement.metrics.HttpMetrics;
 import com.farmmanagement.middleware.AuthMiddleware;
+import com.farmmanagement.middleware.ConcurrencyLimiterMiddleware;
+import com.farmmanagement.middleware.IdempotencyMiddleware;
 import com.farmmanagement.middleware.RateLimiterMiddleware;
+import com.farmmanagement.service.AlertEngine;
+import com.farmmanagement.service.MonitoringArchiver;
+import com.farmmanagement.service.MonitoringService;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.ServiceUnavailableException;
 
 import static spark.Spark.before;
+import static spark.Spark.exception;
 import static spark.Spark.get;
 import static spark.Spark.halt;
 import static spark.Spark.port;
@@ -24,8 +38,13 @@ import static spark.Spark.port;
 public class App {
 
     public static void main(String[] args) {
+        // Thread pool Jetty (platform atau virtual thread) harus diatur sebelum server jalan
+        ServerConfig.configureThreadPool();
         port(8081); // Jalankan di port 8081
 
+        // Metrics per route + GET /metrics, didaftarkan paling awal agar semua request tercatat
+        HttpMetrics.register();
+
         //  Setup CORS agar frontend (localhost:5173) bisa akses backend
         enableCORS("http://localhost:5173");
 
@@ -37,9 +56,28 @@ public class App {
             System.err.println("Database connection failed: " + e.getMessage());
         }
 
+        // Index/constraint yang dibutuhkan backend
+        SchemaInitializer.apply();
+        // Partisi bulanan + retensi tabel monitoring (opsional, MONITORING_PARTITIONING_ENABLED)
+        MonitoringPartitionManager.start();
+        // Arsip kolumnar data monitoring bulan lama (opsional, MONITORING_ARCHIVE_ENABLED)
+        MonitoringArchiver.start();
+        // Agregat monitoring 5m/1h/1d untuk /api/monitoring/series (backfill data lama, dilanjutkan jika belum selesai)
+        MonitoringService.startRollupBackfill();
+        // Bacaan sensor terbaru per lahan di memori untuk /api/monitoring/latest
+        MonitoringService.warmLatestReadings();
+        // Aturan alert dievaluasi di memori saat data sensor masuk
+        AlertEngine.start();
+
+        // Invalidasi cache antar instance (LISTEN/NOTIFY)
+        CacheInvalidationBus.start();
+
         // Middleware global (JWT auth)
         RateLimiterMiddleware.register();
         AuthMiddleware.register();
+        ConcurrencyLimiterMiddleware.register();
+        // Idempotency-Key untuk POST pembelian dan hasil panen (dibungkus per route di controller)
+        IdempotencyMiddleware.register();
 
         // Register semua routes
         new UserController(); // otomatis path: /api/user
@@ -50,12 +88,25 @@ public class App {
         LahanController.registerRoutes();
         HasilPanenController.registerRoutes();
         MonitoringController.registerRoutes();
+        AlertController.registerRoutes();
+        ExportController.registerRoutes();
         TanamanLahanController.registerRoutes();
         PembelianController.registerRoutes();
 
+        // Resource internal penuh (mis. pool hashing password) -> 503
+        exception(ServiceUnavailableException.class, (e, req, res) -> {
+            res.status(503);
+            res.type("application/json");
+            res.header("Retry-After", "1");
+            res.body("{\"error\":\"" + e.getMessage() + "\"}");
+        });
+
         // Endpoint test
         get("/hello", (req, res) -> "Farm Management Backend Running ✅");
 
+        // Tutup connection pool saat aplikasi berhenti
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConfig::shutdown));
+
         System.out.println("✅ Backend running on http://localhost:8081");
     }
 
@@ -66,8 +117,9 @@ public class App {
     before((req, res) -> {
         res.header("Access-Control-Allow-Origin", origin);
         res.header("Access-Control-Allow-Methods", "GET,POST,PUT,DELETE,OPTIONS");
-        res.header("Access-Control-Allow-Headers", "Content-Type,Authorization");
+        res.header("Access-Control-Allow-Headers", "Content-Type,Authorization,Idempotency-Key");
         res.header("Access-Control-Allow-Credentials", "true");
+        res.header("Access-Control-Expose-Headers", "X-Next-Cursor,Idempotent-Replayed");
 
         if ("OPTIONS".equalsIgnoreCase(req.requestMethod())) {
             halt(200, "OK");
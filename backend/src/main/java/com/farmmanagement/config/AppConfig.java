@@ -0,0 +1,74 @@
+package com.farmmanagement.config;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Pembaca konfigurasi aplikasi.
+ * Urutan pencarian: System property -> .env / environment variable -> application.properties.
+ * Key .env (DB_POOL_MAX_SIZE) dipetakan ke key properties (db.pool.max.size).
+ */
+public class AppConfig {
+    private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+    private static final Properties properties = loadProperties();
+
+    private AppConfig() {}
+
+    public static String get(String key) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = dotenv.get(key);
+        }
+        if (value == null) {
+            value = properties.getProperty(key.toLowerCase().replace('_', '.'));
+        }
+        return value != null ? value.trim() : null;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = get(key);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid integer for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid number for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        if (value == null || value.isEmpty()) return defaultValue;
+        return Boolean.parseBoolean(value);
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to read application.properties: " + e.getMessage());
+        }
+        return props;
+    }
+}
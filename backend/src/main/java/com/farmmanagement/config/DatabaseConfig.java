@@ -1,28 +1,34 @@
 package com.farmmanagement.config;
 
-import io.github.cdimascio.dotenv.Dotenv;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.sql2o.Sql2o;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 public class DatabaseConfig {
     private static Sql2o sql2o;
+    private static HikariDataSource dataSource;
 
     static {
         try {
-            // Load environment variables from .env
-            Dotenv dotenv = Dotenv.load();
-
-            String url = dotenv.get("DB_URL");
-            String user = dotenv.get("DB_USER");
-            String pass = dotenv.get("DB_PASSWORD");
+            // Load konfigurasi dari .env / application.properties
+            String url = AppConfig.get("DB_URL");
+            String user = AppConfig.get("DB_USER");
+            String pass = AppConfig.get("DB_PASSWORD");
 
             // Validate configuration
             if (url == null || user == null || pass == null) {
                 throw new RuntimeException("Database configuration is incomplete. Check your .env file.");
             }
 
-            sql2o = new Sql2o(url, user, pass);
-            System.out.println("✅ Database connected: " + url);
-            
+            dataSource = new HikariDataSource(buildPoolConfig(url, user, pass));
+            sql2o = new Sql2o(dataSource);
+            System.out.println("✅ Database connected: " + url + " (pool max " + dataSource.getMaximumPoolSize() + ")");
+
             // Test connection
             try (org.sql2o.Connection conn = sql2o.open()) {
                 conn.createQuery("SELECT 1").executeScalar();
@@ -35,7 +41,55 @@ public class DatabaseConfig {
         }
     }
 
+    // Pool koneksi: ukuran, idle eviction, validasi dan timeout bisa diatur lewat .env
+    private static HikariConfig buildPoolConfig(String url, String user, String pass) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("farm-db-pool");
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(pass);
+        config.setDriverClassName(AppConfig.get("DB_DRIVER", "org.postgresql.Driver"));
+        // JDBC batch INSERT digabung menjadi multi-row INSERT oleh driver PostgreSQL. Hanya berlaku untuk query
+        // tanpa generated keys (createQuery(sql, false)), mis. upsert rollup; insert monitoring batch memakai unnest
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        // Di dalam transaksi (autocommit off) driver membaca hasil query per fetch size lewat cursor,
+        // dipakai oleh list endpoint yang di-stream
+        config.addDataSourceProperty("defaultRowFetchSize", String.valueOf(AppConfig.getInt("DB_FETCH_SIZE", 500)));
+
+        config.setMaximumPoolSize(AppConfig.getInt("DB_POOL_MAX_SIZE", 10));
+        config.setMinimumIdle(AppConfig.getInt("DB_POOL_MIN_IDLE", 2));
+        config.setIdleTimeout(AppConfig.getLong("DB_POOL_IDLE_TIMEOUT_MS", 600_000));
+        config.setMaxLifetime(AppConfig.getLong("DB_POOL_MAX_LIFETIME_MS", 1_800_000));
+        config.setConnectionTimeout(AppConfig.getLong("DB_POOL_CONNECTION_TIMEOUT_MS", 5_000));
+        config.setValidationTimeout(AppConfig.getLong("DB_POOL_VALIDATION_TIMEOUT_MS", 3_000));
+        config.setKeepaliveTime(AppConfig.getLong("DB_POOL_KEEPALIVE_MS", 300_000));
+        config.setLeakDetectionThreshold(AppConfig.getLong("DB_POOL_LEAK_DETECTION_MS", 0));
+
+        // Pool tetap dibuat walaupun DB belum siap saat startup; koneksi dicoba lagi saat request
+        config.setInitializationFailTimeout(-1);
+        config.setRegisterMbeans(true);
+        return config;
+    }
+
     public static Sql2o getSql2o() {
         return sql2o;
     }
-}
\ No newline at end of file
+
+    // Statistik pool untuk monitoring / sizing (active, idle, waiting, total)
+    public static Map<String, Integer> getPoolStats() {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+        stats.put("active", pool != null ? pool.getActiveConnections() : 0);
+        stats.put("idle", pool != null ? pool.getIdleConnections() : 0);
+        stats.put("waiting", pool != null ? pool.getThreadsAwaitingConnection() : 0);
+        stats.put("total", pool != null ? pool.getTotalConnections() : 0);
+        stats.put("max", dataSource != null ? dataSource.getMaximumPoolSize() : 0);
+        return stats;
+    }
+
+    public static void shutdown() {
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.farmmanagement.config;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.sql2o.Connection;
+
+/**
+ * Partisi bulanan tabel monitoring berdasarkan kolom tanggal (PARTITION BY RANGE), opt-in lewat
+ * MONITORING_PARTITIONING_ENABLED=true:
+ * - Tabel monitoring biasa dimigrasi sekali ke tabel berpartisi saat startup (satu transaksi,
+ *   tabel dikunci selama data disalin; baris dengan tanggal NULL harus dibereskan dulu).
+ * - Partisi bulan berjalan + MONITORING_PARTITION_PREMAKE_MONTHS bulan ke depan dibuat otomatis,
+ *   dicek ulang setiap MONITORING_PARTITION_CHECK_MINUTES.
+ * - MONITORING_RETENTION_MONTHS > 0: partisi yang lebih tua dari batas retensi dilepas (DETACH) lalu
+ *   di-DROP, atau dipindah ke schema monitoring_archive jika MONITORING_RETENTION_ACTION=archive.
+ * Partisi default menampung baris di luar rentang (mis. jam sensor salah) supaya insert tidak gagal.
+ * Antar instance backend dikoordinasi dengan advisory lock, jadi DDL hanya dijalankan satu node.
+ */
+public class MonitoringPartitionManager {
+    private static final String TABLE = "monitoring";
+    private static final String LEGACY_TABLE = "monitoring_unpartitioned";
+    private static final String DEFAULT_PARTITION = "monitoring_default";
+    private static final String ARCHIVE_SCHEMA = "monitoring_archive";
+    private static final Pattern PARTITION_NAME = Pattern.compile("monitoring_y(\\d{4})m(\\d{2})");
+    private static final long ADVISORY_LOCK_KEY = 7_310_157_015L;
+
+    private static final boolean ENABLED = AppConfig.getBoolean("MONITORING_PARTITIONING_ENABLED", false);
+    private static final int PREMAKE_MONTHS = AppConfig.getInt("MONITORING_PARTITION_PREMAKE_MONTHS", 3);
+    private static final int RETENTION_MONTHS = AppConfig.getInt("MONITORING_RETENTION_MONTHS", 0);
+    private static final boolean ARCHIVE_EXPIRED = "archive".equalsIgnoreCase(AppConfig.get("MONITORING_RETENTION_ACTION", "drop"));
+    private static final long CHECK_INTERVAL_MINUTES = AppConfig.getLong("MONITORING_PARTITION_CHECK_MINUTES", 60);
+
+    private static ScheduledExecutorService scheduler;
+
+    private MonitoringPartitionManager() {}
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        maintain();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "monitoring-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(MonitoringPartitionManager::maintain,
+                CHECK_INTERVAL_MINUTES, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Migrasi (jika belum) + partisi bulan mendatang + retensi; idempotent, aman dipanggil berulang
+    public static void maintain() {
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Boolean locked = conn.createQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                                 .addParameter("key", ADVISORY_LOCK_KEY)
+                                 .executeScalar(Boolean.class);
+            if (!Boolean.TRUE.equals(locked)) {
+                conn.rollback();
+                return; // node lain sedang menjalankan maintenance
+            }
+
+            if (!isPartitioned(conn) && !migrate(conn)) {
+                conn.rollback();
+                return;
+            }
+
+            YearMonth current = YearMonth.now();
+            int created = 0;
+            for (int i = 0; i <= PREMAKE_MONTHS; i++) {
+                if (createPartition(conn, current.plusMonths(i))) {
+                    created++;
+                }
+            }
+            List<String> expired = RETENTION_MONTHS > 0
+                    ? expirePartitions(conn, current.minusMonths(RETENTION_MONTHS))
+                    : List.of();
+            conn.commit();
+
+            if (created > 0 || !expired.isEmpty()) {
+                System.out.println("✅ Monitoring partitions: " + created + " created, "
+                        + (ARCHIVE_EXPIRED ? "archived " : "dropped ") + expired);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Monitoring partition maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isPartitioned(Connection conn) {
+        Boolean partitioned = conn.createQuery("SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(:name)")
+                                  .addParameter("name", TABLE)
+                                  .executeScalar(Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private static boolean tableExists(Connection conn, String name) {
+        return Boolean.TRUE.equals(conn.createQuery("SELECT to_regclass(:name) IS NOT NULL")
+                                       .addParameter("name", name)
+                                       .executeScalar(Boolean.class));
+    }
+
+    // Salin tabel monitoring lama ke tabel berpartisi dengan kolom, default dan constraint yang sama
+    private static boolean migrate(Connection conn) {
+        if (!tableExists(conn, TABLE)) {
+            System.err.println("⚠️ Table " + TABLE + " not found, partitioning skipped");
+            return false;
+        }
+        Long nullDates = conn.createQuery("SELECT COUNT(*) FROM monitoring WHERE tanggal IS NULL").executeScalar(Long.class);
+        if (nullDates != null && nullDates > 0) {
+            System.err.println("⚠️ " + nullDates + " monitoring rows have no tanggal; fix them before enabling partitioning");
+            return false;
+        }
+
+        System.out.println("⏳ Migrating " + TABLE + " to monthly partitions ...");
+        execute(conn, "LOCK TABLE monitoring IN ACCESS EXCLUSIVE MODE");
+        Timestamp oldest = conn.createQuery("SELECT MIN(tanggal) FROM monitoring").executeScalar(Timestamp.class);
+        String sequence = conn.createQuery("SELECT pg_get_serial_sequence(:table, 'id_monitor')")
+                              .addParameter("table", TABLE)
+                              .executeScalar(String.class);
+        Boolean identity = conn.createQuery("SELECT attidentity <> '' FROM pg_attribute " +
+                                            "WHERE attrelid = to_regclass(:table) AND attname = 'id_monitor'")
+                               .addParameter("table", TABLE)
+                               .executeScalar(Boolean.class);
+        List<String> foreignKeys = conn.createQuery("SELECT 'CONSTRAINT ' || quote_ident(conname) || ' ' || pg_get_constraintdef(oid) " +
+                                                    "FROM pg_constraint WHERE conrelid = to_regclass(:table) AND contype = 'f'")
+                                       .addParameter("table", TABLE)
+                                       .executeScalarList(String.class);
+
+        execute(conn, "ALTER TABLE monitoring RENAME TO " + LEGACY_TABLE);
+        execute(conn, "CREATE TABLE monitoring (LIKE " + LEGACY_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) " +
+                      "PARTITION BY RANGE (tanggal)");
+        execute(conn, "ALTER TABLE monitoring ALTER COLUMN tanggal SET NOT NULL");
+        if (sequence != null && !Boolean.TRUE.equals(identity)) {
+            // SERIAL: sequence lama dipindah ke tabel baru supaya tidak ikut terhapus
+            execute(conn, "ALTER SEQUENCE " + sequence + " OWNED BY monitoring.id_monitor");
+        } else if (Boolean.TRUE.equals(identity)) {
+            execute(conn, "CREATE SEQUENCE monitoring_id_monitor_part_seq OWNED BY monitoring.id_monitor");
+            conn.createQuery("SELECT setval('monitoring_id_monitor_part_seq', COALESCE((SELECT MAX(id_monitor) FROM " + LEGACY_TABLE + "), 0) + 1, false)")
+                .executeScalar();
+            execute(conn, "ALTER TABLE monitoring ALTER COLUMN id_monitor SET DEFAULT nextval('monitoring_id_monitor_part_seq')");
+        }
+        for (String foreignKey : foreignKeys) {
+            execute(conn, "ALTER TABLE monitoring ADD " + foreignKey);
+        }
+
+        execute(conn, "CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF monitoring DEFAULT");
+        YearMonth first = oldest != null ? YearMonth.from(oldest.toLocalDateTime()) : YearMonth.now();
+        for (YearMonth month = first; !month.isAfter(YearMonth.now()); month = month.plusMonths(1)) {
+            createPartition(conn, month);
+        }
+
+        execute(conn, "INSERT INTO monitoring SELECT * FROM " + LEGACY_TABLE);
+        Long original = conn.createQuery("SELECT COUNT(*) FROM " + LEGACY_TABLE).executeScalar(Long.class);
+        Long copied = conn.createQuery("SELECT COUNT(*) FROM monitoring").executeScalar(Long.class);
+        if (original == null || !original.equals(copied)) {
+            throw new IllegalStateException("Row count mismatch after copy: " + copied + " of " + original);
+        }
+        execute(conn, "DROP TABLE " + LEGACY_TABLE);
+
+        // Index di tabel induk otomatis dibuat juga di setiap partisi (termasuk partisi baru)
+        execute(conn, "ALTER TABLE monitoring ADD CONSTRAINT monitoring_pkey PRIMARY KEY (id_monitor, tanggal)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_monitoring_lahan_tanggal ON monitoring (id_lahan, tanggal)");
+        execute(conn, "CREATE INDEX IF NOT EXISTS idx_monitoring_tanggal ON monitoring (tanggal)");
+        System.out.println("✅ Migrated " + copied + " monitoring rows to monthly partitions");
+        return true;
+    }
+
+    private static boolean createPartition(Connection conn, YearMonth month) {
+        String name = partitionName(month);
+        if (tableExists(conn, name)) {
+            return false;
+        }
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = " FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+
+        boolean defaultHasRows = tableExists(conn, DEFAULT_PARTITION) && Boolean.TRUE.equals(
+                conn.createQuery("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE tanggal >= :from AND tanggal < :to)")
+                    .addParameter("from", from)
+                    .addParameter("to", to)
+                    .executeScalar(Boolean.class));
+        if (!defaultHasRows) {
+            execute(conn, "CREATE TABLE " + name + " PARTITION OF monitoring" + bounds);
+            return true;
+        }
+
+        // Baris bulan ini sudah terlanjur masuk partisi default: pindahkan dulu, baru attach
+        execute(conn, "CREATE TABLE " + name + " (LIKE monitoring INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        conn.createQuery("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE tanggal >= :from AND tanggal < :to RETURNING *) " +
+                         "INSERT INTO " + name + " SELECT * FROM moved")
+            .addParameter("from", from)
+            .addParameter("to", to)
+            .executeUpdate();
+        execute(conn, "ALTER TABLE monitoring ATTACH PARTITION " + name + bounds);
+        return true;
+    }
+
+    // Partisi yang seluruh bulannya sebelum oldestKept dilepas dari tabel induk
+    private static List<String> expirePartitions(Connection conn, YearMonth oldestKept) {
+        List<String> partitions = conn.createQuery("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                                                   "WHERE i.inhparent = to_regclass(:table) ORDER BY c.relname")
+                                      .addParameter("table", TABLE)
+                                      .executeScalarList(String.class);
+        List<String> expired = new ArrayList<>();
+        for (String name : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            execute(conn, "ALTER TABLE monitoring DETACH PARTITION " + name);
+            if (ARCHIVE_EXPIRED) {
+                execute(conn, "CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA);
+                execute(conn, "ALTER TABLE " + name + " SET SCHEMA " + ARCHIVE_SCHEMA);
+            } else {
+                execute(conn, "DROP TABLE " + name);
+            }
+            expired.add(name);
+        }
+        return expired;
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("monitoring_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static void execute(Connection conn, String sql) {
+        conn.createQuery(sql).executeUpdate();
+    }
+}
@@ -0,0 +1,70 @@
+package com.farmmanagement.config;
+
+import java.util.List;
+
+import org.sql2o.Connection;
+
+/**
+ * Perubahan skema kecil yang dibutuhkan backend (index, constraint), dijalankan saat startup.
+ * Semua statement harus idempotent; kegagalan hanya dicatat agar server tetap bisa jalan.
+ */
+public class SchemaInitializer {
+
+    private static final List<String> STATEMENTS = List.of(
+        // Satu jenis tanaman hanya boleh sekali per lahan (dijaga juga saat alokasi)
+        "CREATE UNIQUE INDEX IF NOT EXISTS uq_tanaman_lahan_lahan_tanaman " +
+        "ON tanaman_lahan (id_lahan, id_tanaman)",
+        // Query monitoring selalu dibatasi tanggal (per lahan atau global)
+        "CREATE INDEX IF NOT EXISTS idx_monitoring_lahan_tanggal ON monitoring (id_lahan, tanggal)",
+        "CREATE INDEX IF NOT EXISTS idx_monitoring_tanggal ON monitoring (tanggal)",
+        // Agregat monitoring per lahan per bucket 5 menit / 1 jam / 1 hari (lihat MonitoringRollupRepository)
+        "CREATE TABLE IF NOT EXISTS monitoring_rollup (" +
+        "resolution_seconds INTEGER NOT NULL, id_lahan INTEGER NOT NULL, bucket TIMESTAMP NOT NULL, " +
+        "sample_count BIGINT NOT NULL, " +
+        "suhu_min DOUBLE PRECISION NOT NULL, suhu_max DOUBLE PRECISION NOT NULL, suhu_sum DOUBLE PRECISION NOT NULL, " +
+        "kelembaban_min DOUBLE PRECISION NOT NULL, kelembaban_max DOUBLE PRECISION NOT NULL, " +
+        "kelembaban_sum DOUBLE PRECISION NOT NULL, " +
+        "PRIMARY KEY (resolution_seconds, id_lahan, bucket))",
+        // Progres backfill rollup (satu baris): hari sebelum watermark dihitung dari data mentah, next_day = lanjutan
+        "CREATE TABLE IF NOT EXISTS monitoring_rollup_backfill (" +
+        "id INTEGER PRIMARY KEY CHECK (id = 1), watermark TIMESTAMP NOT NULL, next_day TIMESTAMP, " +
+        "done BOOLEAN NOT NULL DEFAULT FALSE, updated_at TIMESTAMP NOT NULL DEFAULT now())",
+        // Aturan alert data sensor dan alert yang dihasilkan AlertEngine
+        "CREATE TABLE IF NOT EXISTS alert_rule (" +
+        "id_rule SERIAL PRIMARY KEY, id_lahan INTEGER, id_tanaman INTEGER, " +
+        "metric VARCHAR(20) NOT NULL CHECK (metric IN ('suhu', 'kelembaban')), " +
+        "kind VARCHAR(10) NOT NULL CHECK (kind IN ('min', 'max', 'rate')), " +
+        "threshold DOUBLE PRECISION NOT NULL, hysteresis DOUBLE PRECISION NOT NULL DEFAULT 0, " +
+        "rate_window_minutes INTEGER NOT NULL DEFAULT 60, dedup_minutes INTEGER NOT NULL DEFAULT 30, " +
+        "aktif BOOLEAN NOT NULL DEFAULT TRUE, keterangan TEXT, created_at TIMESTAMP NOT NULL DEFAULT now())",
+        "CREATE TABLE IF NOT EXISTS alert (" +
+        "id_alert SERIAL PRIMARY KEY, id_rule INTEGER REFERENCES alert_rule (id_rule) ON DELETE SET NULL, " +
+        "id_lahan INTEGER NOT NULL, metric VARCHAR(20) NOT NULL, kind VARCHAR(10) NOT NULL, " +
+        "nilai DOUBLE PRECISION NOT NULL, threshold DOUBLE PRECISION NOT NULL, " +
+        "status VARCHAR(10) NOT NULL DEFAULT 'open', tanggal TIMESTAMP NOT NULL, resolved_at TIMESTAMP, " +
+        "pesan TEXT, created_at TIMESTAMP NOT NULL DEFAULT now())",
+        "CREATE INDEX IF NOT EXISTS idx_alert_tanggal ON alert (tanggal)",
+        "CREATE INDEX IF NOT EXISTS idx_alert_open ON alert (id_rule, id_lahan) WHERE status = 'open'",
+        // Idempotency-Key bersama antar instance (IDEMPOTENCY_STORE=postgres, lihat IdempotencyMiddleware)
+        "CREATE TABLE IF NOT EXISTS idempotency_key (" +
+        "scope_key VARCHAR(400) PRIMARY KEY, fingerprint CHAR(64) NOT NULL, " +
+        "status_code INTEGER, content_type VARCHAR(100), body TEXT, " +
+        "created_at TIMESTAMP NOT NULL DEFAULT now(), expires_at TIMESTAMP NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires ON idempotency_key (expires_at)"
+    );
+
+    private SchemaInitializer() {}
+
+    public static void apply() {
+        int applied = 0;
+        for (String sql : STATEMENTS) {
+            try (Connection conn = DatabaseConfig.getSql2o().open()) {
+                conn.createQuery(sql).executeUpdate();
+                applied++;
+            } catch (Exception e) {
+                System.err.println("⚠️ Schema statement failed: " + e.getMessage());
+            }
+        }
+        System.out.println("✅ Schema check done (" + applied + "/" + STATEMENTS.size() + " statements)");
+    }
+}
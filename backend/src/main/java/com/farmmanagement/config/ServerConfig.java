@@ -0,0 +1,60 @@
+package com.farmmanagement.config;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import static spark.Spark.threadPool;
+
+/**
+ * Konfigurasi thread Jetty untuk Spark.
+ * SERVER_VIRTUAL_THREADS=true menjalankan handler di virtual thread (butuh build -Pjava21 dan Java 21),
+ * selain itu memakai QueuedThreadPool biasa dengan ukuran dari SERVER_MAX_THREADS / SERVER_MIN_THREADS.
+ */
+public class ServerConfig {
+    private static final String VIRTUAL_THREAD_POOL_CLASS = "com.farmmanagement.config.VirtualThreadPool";
+
+    private ServerConfig() {}
+
+    public static boolean isVirtualThreadsEnabled() {
+        return AppConfig.getBoolean("SERVER_VIRTUAL_THREADS", false);
+    }
+
+    // Harus dipanggil sebelum route pertama didaftarkan (sebelum server Spark dinyalakan)
+    public static void configureThreadPool() {
+        if (isVirtualThreadsEnabled()) {
+            try {
+                EmbeddedServers.initialize();
+                EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, virtualThreadJettyFactory());
+                System.out.println("✅ Request handlers running on virtual threads");
+                return;
+            } catch (IllegalStateException e) {
+                System.err.println("⚠️ " + e.getMessage() + " Falling back to platform thread pool.");
+            }
+        }
+
+        int maxThreads = AppConfig.getInt("SERVER_MAX_THREADS", -1);
+        if (maxThreads > 0) {
+            threadPool(maxThreads,
+                    AppConfig.getInt("SERVER_MIN_THREADS", Math.min(8, maxThreads)),
+                    AppConfig.getInt("SERVER_THREAD_IDLE_TIMEOUT_MS", 60_000));
+        }
+    }
+
+    public static EmbeddedJettyFactory virtualThreadJettyFactory() {
+        return new EmbeddedJettyFactory().withThreadPool(createVirtualThreadPool());
+    }
+
+    // Dimuat lewat reflection karena kelasnya hanya ada di build Java 21
+    public static ThreadPool createVirtualThreadPool() {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads require Java 21 (running " + Runtime.version() + ").");
+        }
+        try {
+            return (ThreadPool) Class.forName(VIRTUAL_THREAD_POOL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Virtual thread pool not available, build with -Pjava21.");
+        }
+    }
+}
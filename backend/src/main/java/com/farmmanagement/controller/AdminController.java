@@ -1,11 +1,21 @@
 package com.farmmanagement.controller;
 
 import static spark.Spark.*;
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.repository.MonitoringArchiveRepository;
+import com.farmmanagement.service.LahanService;
+import com.farmmanagement.service.MonitoringArchiver;
+import com.farmmanagement.service.MonitoringService;
+import com.farmmanagement.service.TanamanService;
+import com.farmmanagement.service.UserService;
+import com.farmmanagement.util.JwtUtil;
+import com.farmmanagement.util.TimeRange;
 import com.google.gson.Gson;
 import java.util.Map;
 
 public class AdminController {
     private static final Gson gson = new Gson();
+    private static final MonitoringService monitoringService = new MonitoringService();
 
     public static void registerRoutes() {
         path("/api/admin", () -> {
@@ -13,6 +23,78 @@ public class AdminController {
                 res.type("application/json");
                 return gson.toJson(Map.of("message", "Welcome to Admin Dashboard"));
             });
+
+            // Statistik connection pool database (active/idle/waiting)
+            get("/db-pool", (req, res) -> {
+                res.type("application/json");
+                return gson.toJson(Map.of("status", "success", "data", DatabaseConfig.getPoolStats()));
+            });
+
+            // Statistik cache in-process (ukuran, hit/miss, eviction)
+            get("/caches", (req, res) -> {
+                res.type("application/json");
+                return gson.toJson(Map.of("status", "success", "data", Map.of(
+                    "tanaman", TanamanService.getCache().getStats(),
+                    "lahan", LahanService.getCache().getStats(),
+                    "user", UserService.getCache().getStats(),
+                    "jwt", JwtUtil.getVerifiedTokenCache().getStats(),
+                    "monitoring_latest", MonitoringService.getLatestReadings().getStats()
+                )));
+            });
+
+            // Hitung ulang rollup monitoring dari data mentah: ?from=&to=&lahan= (lahan opsional)
+            post("/monitoring/rollups/rebuild", (req, res) -> {
+                res.type("application/json");
+                try {
+                    TimeRange range = TimeRange.from(req);
+                    String lahanParam = req.queryParams("lahan");
+                    Integer idLahan = lahanParam != null && !lahanParam.trim().isEmpty() ? Integer.valueOf(lahanParam.trim()) : null;
+                    long start = System.currentTimeMillis();
+                    monitoringService.rebuildRollups(idLahan, range);
+                    return gson.toJson(Map.of(
+                        "status", "success",
+                        "message", "Rollup monitoring berhasil dihitung ulang",
+                        "data", Map.of("duration_ms", System.currentTimeMillis() - start)
+                    ));
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error POST /api/admin/monitoring/rollups/rebuild: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Gagal menghitung ulang rollup monitoring."));
+                }
+            });
+
+            // Jalankan arsip monitoring sekarang (bulan lama dari tabel monitoring ke file kolumnar)
+            post("/monitoring/archive/run", (req, res) -> {
+                res.type("application/json");
+                if (!MonitoringArchiver.isEnabled()) {
+                    res.status(409);
+                    return gson.toJson(Map.of("error", "Arsip monitoring tidak aktif (MONITORING_ARCHIVE_ENABLED=false)."));
+                }
+                try {
+                    long start = System.currentTimeMillis();
+                    int rows = MonitoringArchiver.run();
+                    if (rows < 0) {
+                        res.status(409);
+                        return gson.toJson(Map.of("error", "Arsip monitoring sedang berjalan di instance lain."));
+                    }
+                    return gson.toJson(Map.of(
+                        "status", "success",
+                        "message", "Arsip monitoring selesai",
+                        "data", Map.of(
+                            "archived_rows", rows,
+                            "duration_ms", System.currentTimeMillis() - start,
+                            "archive", new MonitoringArchiveRepository().getStats()
+                        )
+                    ));
+                } catch (Exception e) {
+                    System.err.println("Error POST /api/admin/monitoring/archive/run: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Gagal menjalankan arsip monitoring."));
+                }
+            });
         });
     }
 }
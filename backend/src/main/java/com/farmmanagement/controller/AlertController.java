@@ -0,0 +1,180 @@
+package com.farmmanagement.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import com.farmmanagement.model.Alert;
+import com.farmmanagement.model.AlertRule;
+import com.farmmanagement.service.AlertService;
+import com.farmmanagement.util.TimeRange;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import static spark.Spark.delete;
+import static spark.Spark.get;
+import static spark.Spark.path;
+import static spark.Spark.post;
+import static spark.Spark.put;
+
+public class AlertController {
+    private static final AlertService alertService = new AlertService();
+    private static final Gson gson = new GsonBuilder().serializeNulls().setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
+
+    public static void registerRoutes() {
+        path("/api/manager", () -> {
+
+            // GET semua aturan alert
+            get("/alert-rules", (req, res) -> {
+                res.type("application/json");
+                try {
+                    List<AlertRule> rules = alertService.getAllRules();
+                    return gson.toJson(Map.of("status", "success", "data", rules));
+                } catch (Exception e) {
+                    System.err.println("Error GET /api/manager/alert-rules: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Gagal mengambil aturan alert dari database."));
+                }
+            });
+
+            // GET aturan alert by id
+            get("/alert-rules/:id", (req, res) -> {
+                res.type("application/json");
+                try {
+                    int id = Integer.parseInt(req.params("id"));
+                    AlertRule rule = alertService.getRuleById(id);
+                    if (rule != null) return gson.toJson(Map.of("status", "success", "data", rule));
+                    res.status(404);
+                    return gson.toJson(Map.of("error", "Aturan alert tidak ditemukan"));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "ID aturan alert harus berupa angka."));
+                } catch (Exception e) {
+                    System.err.println("Error GET /api/manager/alert-rules/:id: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Internal Server Error."));
+                }
+            });
+
+            // POST tambah aturan alert
+            post("/alert-rules", (req, res) -> {
+                res.type("application/json");
+                try {
+                    AlertRule rule = gson.fromJson(req.body(), AlertRule.class);
+                    if (rule == null) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Body request tidak boleh kosong."));
+                    }
+                    String validationError = alertService.validateRule(rule);
+                    if (validationError != null) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", validationError));
+                    }
+                    if (alertService.addRule(rule)) {
+                        res.status(201);
+                        return gson.toJson(Map.of(
+                            "status", "success",
+                            "message", "Aturan alert berhasil ditambahkan",
+                            "data", rule
+                        ));
+                    }
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Gagal menambahkan aturan alert"));
+                } catch (com.google.gson.JsonSyntaxException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Format data JSON tidak valid: " + e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error POST /api/manager/alert-rules: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Internal Server Error saat menyimpan aturan alert."));
+                }
+            });
+
+            // PUT update aturan alert
+            put("/alert-rules/:id", (req, res) -> {
+                res.type("application/json");
+                try {
+                    int id = Integer.parseInt(req.params("id"));
+                    AlertRule rule = gson.fromJson(req.body(), AlertRule.class);
+                    if (rule == null) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Body request tidak boleh kosong."));
+                    }
+                    rule.setId_rule(id);
+                    String validationError = alertService.validateRule(rule);
+                    if (validationError != null) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", validationError));
+                    }
+                    if (alertService.updateRule(rule)) {
+                        return gson.toJson(Map.of("status", "success", "message", "Aturan alert berhasil diperbarui"));
+                    }
+                    res.status(404);
+                    return gson.toJson(Map.of("error", "Aturan alert tidak ditemukan"));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "ID aturan alert harus berupa angka."));
+                } catch (com.google.gson.JsonSyntaxException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Format data JSON tidak valid: " + e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error PUT /api/manager/alert-rules/:id: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Internal Server Error saat update."));
+                }
+            });
+
+            // DELETE hapus aturan alert (alert open untuk aturan ini ikut ditutup)
+            delete("/alert-rules/:id", (req, res) -> {
+                res.type("application/json");
+                try {
+                    int id = Integer.parseInt(req.params("id"));
+                    if (alertService.deleteRule(id)) {
+                        return gson.toJson(Map.of("status", "success", "message", "Aturan alert berhasil dihapus"));
+                    }
+                    res.status(404);
+                    return gson.toJson(Map.of("error", "Aturan alert tidak ditemukan"));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "ID aturan alert harus berupa angka."));
+                } catch (Exception e) {
+                    System.err.println("Error DELETE /api/manager/alert-rules/:id: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Internal Server Error saat hapus."));
+                }
+            });
+
+            // GET riwayat alert: ?from=&to=&status=open|resolved&lahan=&limit=
+            get("/alerts", (req, res) -> {
+                res.type("application/json");
+                try {
+                    TimeRange range = TimeRange.from(req);
+                    String status = req.queryParams("status");
+                    if (status != null && !status.equals("open") && !status.equals("resolved")) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Parameter status harus open atau resolved."));
+                    }
+                    String lahanParam = req.queryParams("lahan");
+                    Integer idLahan = lahanParam != null && !lahanParam.trim().isEmpty() ? Integer.valueOf(lahanParam.trim()) : null;
+                    String limitParam = req.queryParams("limit");
+                    int limit = limitParam != null ? Integer.parseInt(limitParam.trim()) : 100;
+                    if (limit < 1 || limit > AlertService.MAX_ALERTS) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Parameter limit harus antara 1 dan " + AlertService.MAX_ALERTS + "."));
+                    }
+                    List<Alert> alerts = alertService.getAlerts(range, status, idLahan, limit);
+                    return gson.toJson(Map.of("status", "success", "data", alerts));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Parameter lahan dan limit harus berupa angka."));
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error GET /api/manager/alerts: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Gagal mengambil data alert dari database."));
+                }
+            });
+        });
+    }
+}
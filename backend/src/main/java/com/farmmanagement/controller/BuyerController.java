@@ -1,12 +1,16 @@
 package com.farmmanagement.controller;
 
-import java.util.List;
+import java.sql.Timestamp;
 import java.util.Map;
 
+import com.farmmanagement.middleware.IdempotencyMiddleware;
 import com.farmmanagement.model.HasilPanen;
 import com.farmmanagement.model.Pembelian;
 import com.farmmanagement.service.HasilPanenService;
 import com.farmmanagement.service.PembelianService;
+import com.farmmanagement.util.ConflictException;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.PageRequest;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -31,7 +35,8 @@ public class BuyerController {
                 return gson.toJson(Map.of("message", "Welcome to Buyer Dashboard"));
             });
 
-            post("", (req, res) -> {
+            // Idempotency-Key: retry dari client (mis. setelah timeout) tidak membuat pembelian ganda
+            post("", IdempotencyMiddleware.wrap("POST /api/pembeli", (req, res) -> {
                 res.type("application/json");
                 try {
                     System.out.println("Received JSON for pembelian: " + req.body()); // Debug line
@@ -43,34 +48,18 @@ public class BuyerController {
                         return gson.toJson(Map.of("error", "ID pembeli harus valid (lebih dari 0)"));
                     }
                     
-                    if (pembelian.getId_penjual() <= 0) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "ID penjual harus valid (lebih dari 0)"));
-                    }
-                    
                     if (pembelian.getId_hasil() <= 0) {
                         res.status(400);
                         return gson.toJson(Map.of("error", "ID hasil panen harus valid (lebih dari 0)"));
                     }
                     
-                    if (pembelian.getId_tanaman() <= 0) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "ID tanaman harus valid (lebih dari 0)"));
-                    }
-                    
                     if (pembelian.getJumlah() <= 0) {
                         res.status(400);
                         return gson.toJson(Map.of("error", "Jumlah harus lebih dari 0"));
                     }
                     
-                    if (pembelian.getTotal_harga() <= 0) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "Total harga harus lebih dari 0"));
-                    }
-                    
                     if (pembelian.getTanggal() == null) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "Tanggal pembelian tidak boleh kosong"));
+                        pembelian.setTanggal(new Timestamp(System.currentTimeMillis()));
                     }
                     
                     // Set default status if not provided
@@ -85,18 +74,24 @@ public class BuyerController {
                         return gson.toJson(Map.of("error", "Status harus 'Diproses' atau 'Diterima'"));
                     }
 
-                    boolean added = pembelianService.addPembelian(pembelian);
+                    // Penjual, tanaman dan total harga ditentukan server dari hasil panen
+                    Pembelian created = pembelianService.beli(pembelian);
                     
-                    if (added) {
-                        return gson.toJson(Map.of(
-                            "status", "success",
-                            "message", "Pembelian berhasil ditambahkan"
-                        ));
+                    if (created == null) {
+                        res.status(404);
+                        return gson.toJson(Map.of("error", "Hasil panen tidak ditemukan"));
                     }
+
+                    res.status(201);
+                    return gson.toJson(Map.of(
+                        "status", "success",
+                        "message", "Pembelian berhasil ditambahkan",
+                        "data", created
+                    ));
                     
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal menambahkan pembelian"));
-                    
+                } catch (ConflictException e) {
+                    res.status(409);
+                    return gson.toJson(Map.of("error", e.getMessage()));
                 } catch (com.google.gson.JsonSyntaxException e) {
                     System.err.println("JSON Parsing Error (POST /pembelian): " + e.getMessage());
                     System.err.println("Request body: " + req.body());
@@ -108,23 +103,22 @@ public class BuyerController {
                     res.status(500);
                     return gson.toJson(Map.of("error", "Internal Server Error saat menambah pembelian"));
                 }
-            });
+            }));
 
             
             // GET all pembelian
             get("/pembelian", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<Pembelian> list = pembelianService.getAllPembelian();
-                    return gson.toJson(Map.of(
-                        "status", "success",
-                        "message", "Daftar pembelian berhasil diambil",
-                        "data", list
-                    ));
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    return pembelianService.streamPembelianPage(page, (rows, nextCursor) ->
+                        JsonStreamWriter.writePage(res, gson, "Daftar pembelian berhasil diambil",
+                            Pembelian.class, rows, nextCursor, page.getLimit()));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/pembeli/pembelian: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data pembelian"));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data pembelian", e);
                 }
             });
 
@@ -160,16 +154,15 @@ public class BuyerController {
             get("/hasil-panen", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<HasilPanen> list = hasilPanenService.getAllHasilPanen();
-                    return gson.toJson(Map.of(
-                        "status", "success",
-                        "message", "Daftar hasil panen berhasil diambil",
-                        "data", list
-                    ));
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    return hasilPanenService.streamHasilPanenPage(page, (rows, nextCursor) ->
+                        JsonStreamWriter.writePage(res, gson, "Daftar hasil panen berhasil diambil",
+                            HasilPanen.class, rows, nextCursor, page.getLimit()));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/pembeli/hasil-panen: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data hasil panen"));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data hasil panen", e);
                 }
             });
 
@@ -0,0 +1,143 @@
+package com.farmmanagement.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.service.ExportService;
+import com.farmmanagement.util.CsvWriter;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.TimeRange;
+import com.google.gson.Gson;
+
+import spark.Request;
+import spark.Response;
+
+import static spark.Spark.get;
+import static spark.Spark.path;
+
+/**
+ * Export CSV untuk manajer: ?from=&to=&lahan=&gzip=true
+ * Response di-stream (chunked) langsung dari cursor JDBC, jadi export setahun pun tidak ditampung
+ * di memori server maupun browser. gzip=true mengirim file .csv.gz.
+ * Jika terjadi error setelah sebagian data terkirim, koneksi diputus supaya file tidak terlihat lengkap.
+ * Setiap export memegang satu koneksi pool + transaksi sampai transfer selesai (klien lambat bisa menit-an),
+ * jadi jumlah export bersamaan dibatasi EXPORT_MAX_CONCURRENT; sisanya langsung mendapat 503.
+ */
+public class ExportController {
+    private static final ExportService exportService = new ExportService();
+    private static final Gson gson = new Gson();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CONCURRENT = AppConfig.getInt("EXPORT_MAX_CONCURRENT",
+            Math.max(1, AppConfig.getInt("DB_POOL_MAX_SIZE", 10) / 4));
+
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENT);
+    private static final LongAdder rejected = new LongAdder();
+
+    public static void registerRoutes() {
+        path("/api/manager/export", () -> {
+
+            // GET export data monitoring (termasuk bulan yang sudah diarsip)
+            get("/monitoring", (req, res) -> export(req, res, "monitoring", exportService::exportMonitoring));
+
+            // GET export hasil panen, rentang berdasarkan tanggal_panen
+            get("/hasil-panen", (req, res) -> export(req, res, "hasil_panen", exportService::exportHasilPanen));
+
+            // GET export pembelian, filter lahan lewat hasil panen yang dibeli
+            get("/pembelian", (req, res) -> export(req, res, "pembelian", exportService::exportPembelian));
+        });
+    }
+
+    private static String export(Request req, Response res, String name, ExportJob job) {
+        TimeRange range;
+        Integer idLahan;
+        try {
+            range = TimeRange.from(req);
+            String lahanParam = req.queryParams("lahan");
+            idLahan = lahanParam != null && !lahanParam.trim().isEmpty() ? Integer.valueOf(lahanParam.trim()) : null;
+        } catch (NumberFormatException e) {
+            res.type("application/json");
+            res.status(400);
+            return gson.toJson(Map.of("error", "Parameter lahan harus berupa angka."));
+        } catch (IllegalArgumentException e) {
+            res.type("application/json");
+            res.status(400);
+            return gson.toJson(Map.of("error", e.getMessage()));
+        }
+        boolean gzip = "true".equalsIgnoreCase(req.queryParams("gzip"));
+
+        // Tidak menunggu: export lain bisa memakan waktu lama, klien lebih baik mencoba lagi nanti
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            res.type("application/json");
+            res.status(503);
+            res.header("Retry-After", "30");
+            return gson.toJson(Map.of("error", "Terlalu banyak export berjalan, coba lagi nanti."));
+        }
+        try {
+            return stream(res, name, job, range, idLahan, gzip);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static String stream(Response res, String name, ExportJob job, TimeRange range, Integer idLahan, boolean gzip) {
+        // Nama file memakai tanggal terakhir yang ikut (to eksklusif)
+        String filename = name + "_" + range.getFrom().toLocalDateTime().toLocalDate()
+                          + "_" + new Timestamp(range.getTo().getTime() - 1).toLocalDateTime().toLocalDate()
+                          + (gzip ? ".csv.gz" : ".csv");
+        res.type(gzip ? "application/gzip" : "text/csv; charset=utf-8");
+        res.header("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+
+        long start = System.currentTimeMillis();
+        try {
+            OutputStream raw = res.raw().getOutputStream();
+            OutputStream body = gzip ? new GZIPOutputStream(raw, BUFFER_SIZE) : raw;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), BUFFER_SIZE);
+            job.run(range, idLahan, new CsvWriter(writer));
+            writer.flush();
+            if (body instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) body).finish();
+            }
+            raw.flush();
+            System.out.println("📤 Export " + name + " selesai dalam " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Error GET /api/manager/export/" + name + ": " + e.getMessage());
+            if (!res.raw().isCommitted()) {
+                res.raw().reset();
+                res.type("application/json");
+                res.status(500);
+                return gson.toJson(Map.of("error", "Gagal membuat export " + name + "."));
+            }
+            // Header sudah terkirim: putus koneksi tanpa chunk penutup supaya klien tahu export terpotong
+            JsonStreamWriter.abort(res, e);
+        }
+        return "";
+    }
+
+    public static int getMaxConcurrent() {
+        return MAX_CONCURRENT;
+    }
+
+    public static int getInFlight() {
+        return MAX_CONCURRENT - permits.availablePermits();
+    }
+
+    public static long getRejected() {
+        return rejected.sum();
+    }
+
+    @FunctionalInterface
+    private interface ExportJob {
+        void run(TimeRange range, Integer idLahan, CsvWriter csv) throws IOException;
+    }
+}
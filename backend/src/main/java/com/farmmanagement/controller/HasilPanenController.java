@@ -1,10 +1,11 @@
 package com.farmmanagement.controller;
 
-import java.util.List;
 import java.util.Map;
 
 import com.farmmanagement.model.HasilPanen;
 import com.farmmanagement.service.HasilPanenService;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.PageRequest;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -26,12 +27,14 @@ public class HasilPanenController {
             get("", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<HasilPanen> list = hasilPanenService.getAllHasilPanen();
-                    return gson.toJson(list);
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    return hasilPanenService.streamHasilPanenPage(page, (rows, nextCursor) ->
+                        JsonStreamWriter.writeArray(res, gson, HasilPanen.class, rows, nextCursor));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/hasil_panen: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data hasil panen dari database."));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data hasil panen dari database.", e);
                 }
             });
 
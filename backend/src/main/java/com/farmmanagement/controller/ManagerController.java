@@ -1,20 +1,33 @@
 package com.farmmanagement.controller;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.farmmanagement.config.AppConfig;
+
+import com.farmmanagement.middleware.IdempotencyMiddleware;
 import com.farmmanagement.model.HasilPanen;
 import com.farmmanagement.model.Lahan;
 import com.farmmanagement.model.Monitoring;
 import com.farmmanagement.model.Tanaman;
+import com.farmmanagement.model.TanamanAllocationResult;
 import com.farmmanagement.model.TanamanLahan;
 import com.farmmanagement.service.HasilPanenService;
 import com.farmmanagement.service.LahanService;
+import com.farmmanagement.service.ManagerSummaryService;
 import com.farmmanagement.service.MonitoringService;
 import com.farmmanagement.service.TanamanLahanService;
 import com.farmmanagement.service.TanamanService;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.TimeRange;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 
 import static spark.Spark.delete;
 import static spark.Spark.get;
@@ -34,6 +47,14 @@ public class ManagerController {
     private static final TanamanService tanamanService = new TanamanService();
     private static final TanamanLahanService tanamanLahanService = new TanamanLahanService();
     private static final LahanService lahanService = new LahanService();
+    private static final ManagerSummaryService summaryService = new ManagerSummaryService();
+
+    private static final int MAX_MONITORING_BATCH = AppConfig.getInt("MONITORING_BATCH_MAX", 10000);
+
+    // Dipakai benchmark serialisasi (src/bench) supaya konfigurasinya persis sama dengan route
+    public static Gson getGson() {
+        return gson;
+    }
 
     public static void registerRoutes() {
         path("/api/manager", () -> {
@@ -46,7 +67,8 @@ public class ManagerController {
 
             // ============= HASIL PANEN OPERATIONS (CREATE, GET, UPDATE) =============
 
-           post("/hasil-panen", (req, res) -> {
+           // Idempotency-Key: retry dari client tidak membuat hasil panen ganda
+           post("/hasil-panen", IdempotencyMiddleware.wrap("POST /api/manager/hasil-panen", (req, res) -> {
                 res.type("application/json");
                 try {
                     System.out.println("Received JSON for hasil-panen: " + req.body()); // Debug line
@@ -129,22 +151,21 @@ public class ManagerController {
                     res.status(500);
                     return gson.toJson(Map.of("error", "Internal Server Error saat menambah hasil panen"));
                 }
-            });
+            }));
             
             // GET all hasil panen for manager
             get("/hasil-panen", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<HasilPanen> list = hasilPanenService.getAllHasilPanen();
-                    return gson.toJson(Map.of(
-                        "status", "success",
-                        "message", "Daftar hasil panen berhasil diambil",
-                        "data", list
-                    ));
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    return hasilPanenService.streamHasilPanenPage(page, (rows, nextCursor) ->
+                        JsonStreamWriter.writePage(res, gson, "Daftar hasil panen berhasil diambil",
+                            HasilPanen.class, rows, nextCursor, page.getLimit()));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/manager/hasil-panen: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data hasil panen"));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data hasil panen", e);
                 }
             });
 
@@ -254,24 +275,10 @@ public class ManagerController {
                     Monitoring monitoring = gson.fromJson(req.body(), Monitoring.class);
                     
                     // Validation for manager creating monitoring
-                    if (monitoring.getId_lahan() <= 0) {
+                    String validationError = monitoringService.validateMonitoring(monitoring);
+                    if (validationError != null) {
                         res.status(400);
-                        return gson.toJson(Map.of("error", "ID lahan harus valid (lebih dari 0)"));
-                    }
-                    
-                    if (monitoring.getSuhu() < -50 || monitoring.getSuhu() > 60) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "Suhu harus dalam rentang -50°C sampai 60°C"));
-                    }
-                    
-                    if (monitoring.getKelembaban() < 0 || monitoring.getKelembaban() > 100) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "Kelembaban harus dalam rentang 0% sampai 100%"));
-                    }
-                    
-                    if (monitoring.getTanggal() == null) {
-                        res.status(400);
-                        return gson.toJson(Map.of("error", "Tanggal monitoring tidak boleh kosong"));
+                        return gson.toJson(Map.of("error", validationError));
                     }
 
                     boolean added = monitoringService.addMonitoring(monitoring);
@@ -298,20 +305,90 @@ public class ManagerController {
                 }
             });
             
+            // BULK insert monitoring data (JSON array atau NDJSON) dari gateway sensor
+            post("/monitoring/batch", (req, res) -> {
+                res.type("application/json");
+                try {
+                    List<JsonElement> elements = parseBatchBody(req.body(), req.contentType());
+                    if (elements.isEmpty()) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Data monitoring tidak boleh kosong"));
+                    }
+                    if (elements.size() > MAX_MONITORING_BATCH) {
+                        res.status(413);
+                        return gson.toJson(Map.of("error", "Maksimal " + MAX_MONITORING_BATCH + " data monitoring per request"));
+                    }
+
+                    // Validasi per baris; baris yang valid tetap disimpan walaupun ada yang ditolak
+                    List<Monitoring> valid = new ArrayList<>();
+                    List<Integer> validIndexes = new ArrayList<>();
+                    List<Map<String, Object>> rejected = new ArrayList<>();
+                    // Lahan dicek sekali per ID per request (lewat cache LahanService)
+                    Map<Integer, Boolean> lahanExists = new HashMap<>();
+                    for (int i = 0; i < elements.size(); i++) {
+                        String error;
+                        try {
+                            Monitoring monitoring = gson.fromJson(elements.get(i), Monitoring.class);
+                            error = monitoring == null ? "Data monitoring kosong" : monitoringService.validateMonitoring(monitoring);
+                            if (error == null && !lahanExists.computeIfAbsent(monitoring.getId_lahan(),
+                                    id -> lahanService.getLahanById(id) != null)) {
+                                error = "Lahan dengan ID " + monitoring.getId_lahan() + " tidak ditemukan";
+                            }
+                            if (error == null) {
+                                valid.add(monitoring);
+                                validIndexes.add(i);
+                            }
+                        } catch (com.google.gson.JsonParseException e) {
+                            error = "Format data tidak valid: " + e.getMessage();
+                        }
+                        if (error != null) {
+                            rejected.add(Map.of("index", i, "error", error));
+                        }
+                    }
+
+                    // Baris yang tetap ditolak database dilaporkan per baris, bukan 500 untuk seluruh batch
+                    Map<Integer, String> dbRejected = new HashMap<>();
+                    int inserted = monitoringService.addMonitoringBatch(valid, dbRejected);
+                    if (!dbRejected.isEmpty()) {
+                        dbRejected.forEach((position, error) ->
+                            rejected.add(Map.of("index", validIndexes.get(position), "error", error)));
+                        rejected.sort((a, b) -> Integer.compare((Integer) a.get("index"), (Integer) b.get("index")));
+                    }
+
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("status", rejected.isEmpty() ? "success" : "partial");
+                    body.put("message", inserted + " data monitoring berhasil ditambahkan");
+                    body.put("received", elements.size());
+                    body.put("inserted", inserted);
+                    body.put("rejected", rejected.size());
+                    body.put("errors", rejected);
+                    return gson.toJson(body);
+
+                } catch (com.google.gson.JsonParseException e) {
+                    System.err.println("JSON Parsing Error (POST monitoring/batch): " + e.getMessage());
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Format data JSON tidak valid: " + e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error POST /api/manager/monitoring/batch: " + e.getMessage());
+                    res.status(500);
+                    return gson.toJson(Map.of("error", "Internal Server Error saat menambah data monitoring"));
+                }
+            });
+
             // GET all monitoring data for manager
             get("/monitoring", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<Monitoring> list = monitoringService.getAllMonitoring();
-                    return gson.toJson(Map.of(
-                        "status", "success",
-                        "message", "Data monitoring berhasil diambil",
-                        "data", list
-                    ));
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    TimeRange range = TimeRange.from(req);
+                    return monitoringService.streamMonitoringPage(page, range, (rows, nextCursor) ->
+                        JsonStreamWriter.writePage(res, gson, "Data monitoring berhasil diambil",
+                            Monitoring.class, rows, nextCursor, page.getLimit()));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/manager/monitoring: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data monitoring"));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data monitoring", e);
                 }
             });
 
@@ -557,44 +634,32 @@ public class ManagerController {
                         return gson.toJson(Map.of("error", "Status harus 'tumbuh', 'panen', atau 'selesai'"));
                     }
 
-                    // Check if this tanaman already exists in this lahan
-                    if (tanamanLahanService.existsByLahanAndTanaman(tanamanLahan.getId_lahan(), tanamanLahan.getId_tanaman())) {
-                        res.status(409); // 409 Conflict
-                        return gson.toJson(Map.of("error", "Tanaman ini sudah ada di lahan yang dipilih. Tidak boleh ada tanaman yang sama dalam satu lahan."));
-                    }
-
-                    // Check if tanaman has enough stock
-                    Tanaman tanaman = tanamanService.getTanamanById(tanamanLahan.getId_tanaman());
-                    if (tanaman == null) {
-                        res.status(404);
-                        return gson.toJson(Map.of("error", "Tanaman dengan ID tersebut tidak ditemukan"));
-                    }
-                    
-                    if (tanaman.getJumlah_tanaman() < tanamanLahan.getJumlah_tanaman()) {
-                        res.status(400);
-                        return gson.toJson(Map.of(
-                            "error", 
-                            "Stok tanaman tidak mencukupi. Tersedia: " + tanaman.getJumlah_tanaman() + ", Diminta: " + tanamanLahan.getJumlah_tanaman()
-                        ));
-                    }
-
-                    boolean added = tanamanLahanService.addTanamanLahan(tanamanLahan);
-                    
-                    if (added) {
-                        // Decrease tanaman stock after successful creation
-                        boolean decreased = tanamanService.decreaseJumlahTanaman(
-                            tanamanLahan.getId_tanaman(), 
-                            tanamanLahan.getJumlah_tanaman()
-                        );
-                        
-                        if (!decreased) {
-                            System.err.println("Warning: Failed to decrease tanaman stock for id_tanaman: " + tanamanLahan.getId_tanaman());
-                        }
-                        
-                        return gson.toJson(Map.of(
-                            "status", "success",
-                            "message", "Tanaman lahan berhasil ditambahkan oleh manajer"
-                        ));
+                    // Cek duplikat, cek stok, insert dan kurangi stok dalam satu transaksi
+                    TanamanAllocationResult result = tanamanLahanService.allocateTanamanLahan(tanamanLahan);
+                    switch (result.getStatus()) {
+                        case CREATED:
+                            return gson.toJson(Map.of(
+                                "status", "success",
+                                "message", "Tanaman lahan berhasil ditambahkan oleh manajer",
+                                "data", Map.of(
+                                    "id_tl", result.getIdTl(),
+                                    "sisa_stok_tanaman", result.getStokTersisa()
+                                )
+                            ));
+                        case DUPLICATE:
+                            res.status(409); // 409 Conflict
+                            return gson.toJson(Map.of("error", "Tanaman ini sudah ada di lahan yang dipilih. Tidak boleh ada tanaman yang sama dalam satu lahan."));
+                        case TANAMAN_NOT_FOUND:
+                            res.status(404);
+                            return gson.toJson(Map.of("error", "Tanaman dengan ID tersebut tidak ditemukan"));
+                        case INSUFFICIENT_STOCK:
+                            res.status(400);
+                            return gson.toJson(Map.of(
+                                "error", 
+                                "Stok tanaman tidak mencukupi. Tersedia: " + result.getStokTersisa() + ", Diminta: " + tanamanLahan.getJumlah_tanaman()
+                            ));
+                        default:
+                            break;
                     }
                     
                     res.status(500);
@@ -639,24 +704,12 @@ public class ManagerController {
             get("/summary", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<HasilPanen> hasilPanenList = hasilPanenService.getAllHasilPanen();
-                    List<Monitoring> monitoringList = monitoringService.getAllMonitoring();
-                    List<Tanaman> tanamanList = tanamanService.getAllTanaman();
-                    List<TanamanLahan> tanamanLahanList = tanamanLahanService.getAllTanamanLahan();
-                    
+                    // COUNT + 3 data terbaru per tabel, paralel dan di-cache singkat (?fresh=true untuk bypass)
+                    boolean fresh = "true".equalsIgnoreCase(req.queryParams("fresh"));
                     return gson.toJson(Map.of(
                         "status", "success",
                         "message", "Summary data untuk manajer",
-                        "data", Map.of(
-                            "total_hasil_panen", hasilPanenList.size(),
-                            "total_monitoring_records", monitoringList.size(),
-                            "total_tanaman", tanamanList.size(),
-                            "total_tanaman_lahan", tanamanLahanList.size(),
-                            "recent_hasil_panen", hasilPanenList.stream().limit(3).toArray(),
-                            "recent_monitoring", monitoringList.stream().limit(3).toArray(),
-                            "recent_tanaman", tanamanList.stream().limit(3).toArray(),
-                            "recent_tanaman_lahan", tanamanLahanList.stream().limit(3).toArray()
-                        )
+                        "data", summaryService.getSummary(fresh)
                     ));
                 } catch (Exception e) {
                     System.err.println("Error GET /api/manager/summary: " + e.getMessage());
@@ -666,4 +719,28 @@ public class ManagerController {
             });
         });
     }
+
+    // Body batch: JSON array, atau NDJSON (satu objek JSON per baris)
+    private static List<JsonElement> parseBatchBody(String body, String contentType) {
+        List<JsonElement> elements = new ArrayList<>();
+        if (body == null || body.isBlank()) return elements;
+
+        if (contentType != null && contentType.contains("ndjson")) {
+            for (String line : body.split("\\r?\\n")) {
+                if (!line.isBlank()) {
+                    elements.add(JsonParser.parseString(line));
+                }
+            }
+            return elements;
+        }
+
+        JsonElement root = JsonParser.parseString(body);
+        if (!root.isJsonArray()) {
+            throw new com.google.gson.JsonParseException("Body harus berupa JSON array");
+        }
+        for (JsonElement element : root.getAsJsonArray()) {
+            elements.add(element);
+        }
+        return elements;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,26 @@
 package com.farmmanagement.controller;
 
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.Alert;
 import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.MonitoringSeriesPoint;
+import com.farmmanagement.model.RollupResolution;
 import com.farmmanagement.service.MonitoringService;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.LatestReadingsStore;
+import com.farmmanagement.util.MonitoringBroadcaster;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.SseStream;
+import com.farmmanagement.util.TimeRange;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -14,8 +30,15 @@ import static spark.Spark.path;
 import static spark.Spark.put;
 
 public class MonitoringController {
+    // Stream SSE: dikecualikan dari limiter konkurensi dan boleh memakai ?access_token= (EventSource tidak bisa kirim header)
+    public static final String STREAM_PATH = "/api/monitoring/stream";
+    private static final long STREAM_HEARTBEAT_MS = AppConfig.getLong("MONITORING_STREAM_HEARTBEAT_MS", 15_000);
+    // Koneksi ditutup berkala supaya klien reconnect dengan token yang masih berlaku
+    private static final long STREAM_MAX_DURATION_MS = AppConfig.getLong("MONITORING_STREAM_MAX_MINUTES", 30) * 60_000L;
+
     private static final MonitoringService monitoringService = new MonitoringService();
     private static final Gson gson = new GsonBuilder().serializeNulls().create();
+    private static final Gson timeGson = new GsonBuilder().serializeNulls().setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
 
     public static void registerRoutes() {
         path("/api/monitoring", () -> {
@@ -24,12 +47,173 @@ public class MonitoringController {
             get("", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<Monitoring> list = monitoringService.getAllMonitoring();
-                    return gson.toJson(list);
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    TimeRange range = TimeRange.from(req);
+                    return monitoringService.streamMonitoringPage(page, range, (rows, nextCursor) ->
+                        JsonStreamWriter.writeArray(res, gson, Monitoring.class, rows, nextCursor));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/monitoring: " + e.getMessage());
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data monitoring dari database.", e);
+                }
+            });
+
+            // GET stream SSE data monitoring baru: ?lahan=1,2,3 (kosong = semua lahan).
+            // Event "monitoring" berisi satu data (id = id_monitor), event "alert" berisi alert open / resolved
+            // untuk lahan yang sama; komentar ": ping" dikirim sebagai heartbeat.
+            // Klien yang terlalu lambat menerima event "overflow" lalu diputus dan harus reconnect.
+            get("/stream", (req, res) -> {
+                Set<Integer> lahan = new LinkedHashSet<>();
+                String lahanParam = req.queryParams("lahan");
+                try {
+                    if (lahanParam != null) {
+                        for (String part : lahanParam.split(",")) {
+                            if (!part.trim().isEmpty()) lahan.add(Integer.parseInt(part.trim()));
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    res.type("application/json");
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Parameter lahan harus berupa daftar angka, mis. 1,2,3."));
+                }
+
+                MonitoringBroadcaster.Subscription subscription = MonitoringBroadcaster.subscribe(lahan);
+                if (subscription == null) {
+                    res.type("application/json");
+                    res.status(503);
+                    res.header("Retry-After", "5");
+                    return gson.toJson(Map.of("error", "Terlalu banyak stream monitoring aktif, coba lagi nanti."));
+                }
+
+                // Dilayani async: thread Jetty kembali ke pool setelah header terkirim
+                try {
+                    res.raw().setStatus(200);
+                    res.raw().setContentType("text/event-stream; charset=utf-8");
+                    res.raw().setHeader("Cache-Control", "no-cache");
+                    res.raw().setHeader("X-Accel-Buffering", "no");
+                    new SseStream(subscription, MonitoringController::formatEvent, STREAM_HEARTBEAT_MS, STREAM_MAX_DURATION_MS)
+                        .start(req, res, "retry: 3000\n\n");
+                } catch (IOException | IllegalStateException e) {
+                    // Klien menutup koneksi sebelum stream dimulai
+                    subscription.close();
+                }
+                return "";
+            });
+
+            // GET kondisi terbaru per lahan dari memori (tanpa query database): ?lahan=&history=
+            // history > 1 menyertakan N bacaan terakhir (terbaru dulu)
+            get("/latest", (req, res) -> {
+                res.type("application/json");
+                try {
+                    LatestReadingsStore store = MonitoringService.getLatestReadings();
+                    int history = 1;
+                    String historyParam = req.queryParams("history");
+                    if (historyParam != null && !historyParam.trim().isEmpty()) {
+                        history = Integer.parseInt(historyParam.trim());
+                        if (history < 1 || history > store.getCapacity()) {
+                            res.status(400);
+                            return gson.toJson(Map.of("error", "Parameter history harus antara 1 dan " + store.getCapacity() + "."));
+                        }
+                    }
+
+                    List<LatestReadingsStore.Readings> readings;
+                    String lahanParam = req.queryParams("lahan");
+                    if (lahanParam != null && !lahanParam.trim().isEmpty()) {
+                        LatestReadingsStore.Readings lahanReadings = store.latest(Integer.parseInt(lahanParam.trim()), history);
+                        if (lahanReadings == null || lahanReadings.size() == 0) {
+                            res.status(404);
+                            return gson.toJson(Map.of("error", "Belum ada data monitoring untuk lahan ini"));
+                        }
+                        readings = List.of(lahanReadings);
+                    } else {
+                        readings = store.latestAll(history);
+                    }
+
+                    List<Map<String, Object>> data = new ArrayList<>(readings.size());
+                    for (LatestReadingsStore.Readings lahanReadings : readings) {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("id_lahan", lahanReadings.getIdLahan());
+                        item.putAll(readingToMap(lahanReadings, 0));
+                        if (history > 1) {
+                            List<Map<String, Object>> items = new ArrayList<>(lahanReadings.size());
+                            for (int i = 0; i < lahanReadings.size(); i++) {
+                                items.add(readingToMap(lahanReadings, i));
+                            }
+                            item.put("history", items);
+                        }
+                        data.add(item);
+                    }
+                    return timeGson.toJson(Map.of(
+                        "status", "success",
+                        "message", "Data monitoring terbaru berhasil diambil",
+                        "data", data
+                    ));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Parameter lahan dan history harus berupa angka."));
+                }
+            });
+
+            // GET deret waktu satu lahan: ?lahan=&from=&to=&resolution=raw|5m|1h|1d|auto&points=
+            // auto memilih rollup paling kasar yang masih memberi minimal `points` titik
+            get("/series", (req, res) -> {
+                res.type("application/json");
+                try {
+                    String lahanParam = req.queryParams("lahan");
+                    if (lahanParam == null || lahanParam.trim().isEmpty()) {
+                        res.status(400);
+                        return gson.toJson(Map.of("error", "Parameter lahan wajib diisi."));
+                    }
+                    int idLahan = Integer.parseInt(lahanParam.trim());
+                    TimeRange range = TimeRange.from(req);
+
+                    int points = MonitoringService.SERIES_DEFAULT_POINTS;
+                    String pointsParam = req.queryParams("points");
+                    if (pointsParam != null && !pointsParam.trim().isEmpty()) {
+                        points = Integer.parseInt(pointsParam.trim());
+                        if (points < 1 || points > MonitoringService.SERIES_MAX_POINTS) {
+                            res.status(400);
+                            return gson.toJson(Map.of("error", "Parameter points harus antara 1 dan " + MonitoringService.SERIES_MAX_POINTS + "."));
+                        }
+                    }
+
+                    String resolutionParam = req.queryParams("resolution");
+                    RollupResolution resolution;
+                    if (resolutionParam == null || resolutionParam.trim().isEmpty() || "auto".equalsIgnoreCase(resolutionParam.trim())) {
+                        resolution = monitoringService.chooseResolution(range, points);
+                    } else if ("raw".equalsIgnoreCase(resolutionParam.trim())) {
+                        resolution = null;
+                    } else {
+                        resolution = RollupResolution.fromLabel(resolutionParam.trim());
+                        if (resolution == null) {
+                            res.status(400);
+                            return gson.toJson(Map.of("error", "Parameter resolution harus raw, 5m, 1h, 1d atau auto."));
+                        }
+                    }
+
+                    List<MonitoringSeriesPoint> series = monitoringService.getSeries(idLahan, resolution, range);
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("id_lahan", idLahan);
+                    data.put("resolution", resolution != null ? resolution.getLabel() : "raw");
+                    data.put("from", range.getFrom());
+                    data.put("to", range.getTo());
+                    data.put("points", series);
+                    return timeGson.toJson(Map.of(
+                        "status", "success",
+                        "message", "Deret monitoring berhasil diambil",
+                        "data", data
+                    ));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", "Parameter lahan dan points harus berupa angka."));
+                } catch (IllegalArgumentException e) {
+                    res.status(400);
+                    return gson.toJson(Map.of("error", e.getMessage()));
+                } catch (Exception e) {
+                    System.err.println("Error GET /api/monitoring/series: " + e.getMessage());
                     res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data monitoring dari database."));
+                    return gson.toJson(Map.of("error", "Gagal mengambil deret monitoring dari database."));
                 }
             });
 
@@ -108,4 +292,21 @@ public class MonitoringController {
             });
         });
     }
+
+    private static Map<String, Object> readingToMap(LatestReadingsStore.Readings readings, int index) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("tanggal", new Timestamp(readings.getTanggal(index)));
+        item.put("suhu", readings.getSuhu(index));
+        item.put("kelembaban", readings.getKelembaban(index));
+        return item;
+    }
+
+    // Event "monitoring" membawa id (id_monitor) untuk Last-Event-ID, event "alert" tanpa id
+    private static String formatEvent(Object event) {
+        if (event instanceof Alert) {
+            return "event: alert\ndata: " + timeGson.toJson(event) + "\n\n";
+        }
+        Monitoring monitoring = (Monitoring) event;
+        return "id: " + monitoring.getId_monitor() + "\nevent: monitoring\ndata: " + timeGson.toJson(monitoring) + "\n\n";
+    }
 }
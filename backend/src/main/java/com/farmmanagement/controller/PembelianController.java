@@ -1,10 +1,11 @@
 package com.farmmanagement.controller;
 
-import java.util.List;
 import java.util.Map;
 
 import com.farmmanagement.model.Pembelian;
 import com.farmmanagement.service.PembelianService;
+import com.farmmanagement.util.JsonStreamWriter;
+import com.farmmanagement.util.PageRequest;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -27,12 +28,14 @@ public class PembelianController {
             get("", (req, res) -> {
                 res.type("application/json");
                 try {
-                    List<Pembelian> list = pembelianService.getAllPembelian();
-                    return gson.toJson(list);
+                    PageRequest page = PageRequest.from(req, PageRequest.STREAM_MAX_LIMIT, true);
+                    return pembelianService.streamPembelianPage(page, (rows, nextCursor) ->
+                        JsonStreamWriter.writeArray(res, gson, Pembelian.class, rows, nextCursor));
+                } catch (IllegalArgumentException e) {
+                    return JsonStreamWriter.error(res, gson, 400, e.getMessage(), e);
                 } catch (Exception e) {
                     System.err.println("Error GET /api/pembelian: " + e.getMessage());
-                    res.status(500);
-                    return gson.toJson(Map.of("error", "Gagal mengambil data pembelian dari database."));
+                    return JsonStreamWriter.error(res, gson, 500, "Gagal mengambil data pembelian dari database.", e);
                 }
             });
 
@@ -4,9 +4,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.farmmanagement.middleware.AuthMiddleware;
 import com.farmmanagement.model.User;
 import com.farmmanagement.service.UserService;
 import com.farmmanagement.util.JwtUtil;
+import com.farmmanagement.util.ServiceUnavailableException;
 import com.google.gson.Gson;
 
 import spark.Request;
@@ -60,6 +62,7 @@ public class UserController {
             return gson.toJson(response);
         }
 
+        userService.rehashIfNeeded(userFromDb, u.getPassword());
         String token = JwtUtil.generateToken(userFromDb.getUsername(), userFromDb.getRole());
         userFromDb.setPassword(null);
 
@@ -70,6 +73,9 @@ public class UserController {
 
         return gson.toJson(response);
 
+    } catch (ServiceUnavailableException e) {
+        res.status(503);
+        return gson.toJson(Map.of("error", e.getMessage()));
     } catch (Exception e) {
         res.status(500);
         System.err.println("Error POST /api/user/login: " + e.getMessage());
@@ -115,6 +121,9 @@ public class UserController {
                         res.status(400);
                         return gson.toJson(Map.of("error", "Password lama tidak cocok."));
                     }
+                } catch (ServiceUnavailableException e) {
+                    res.status(503);
+                    return gson.toJson(Map.of("error", e.getMessage()));
                 } catch (Exception e) {
                     res.status(500);
                     System.err.println("Error POST /api/user/reset-password: " + e.getMessage());
@@ -158,6 +167,8 @@ public class UserController {
                     }
                 } catch (NumberFormatException e) {
                     res.status(400); return gson.toJson(Map.of("error", "ID user harus berupa angka."));
+                } catch (ServiceUnavailableException e) {
+                    res.status(503); return gson.toJson(Map.of("error", e.getMessage()));
                 } catch (Exception e) {
                     res.status(500); 
                     System.err.println("Error PUT /api/user/:id: " + e.getMessage());
@@ -188,29 +199,28 @@ public class UserController {
         });
     }
     private String handleGetCurrentUser(Request req, Response res) {
-        // ... (kode tetap sama)
         res.type("application/json");
-        String authHeader = req.headers("Authorization");
-        
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        // Token sudah diverifikasi AuthMiddleware; klaimnya tersedia sebagai request attribute
+        String username = req.attribute(AuthMiddleware.ATTR_USERNAME);
+        String role = req.attribute(AuthMiddleware.ATTR_ROLE);
+
+        if (username == null) {
             halt(401, "Token required");
         }
-        String token = authHeader.substring(7);
 
         try {
-            String username = JwtUtil.getUsername(token);
             // Panggil DB untuk data lengkap, termasuk nama
-            User userFromDb = userService.findByUsername(username); // ASUMSI: JwtUtil bisa mengambil ID user
+            User userFromDb = userService.findByUsername(username);
             
             if (userFromDb != null) {
                  userFromDb.setPassword(null); // Jangan kirim password
                  return gson.toJson(userFromDb);
             }
             
-            // Fallback jika ID tidak ada di token
+            // Fallback jika user tidak ada di DB
             return gson.toJson(Map.of(
                 "username", username, 
-                "role", JwtUtil.getRole(token), 
+                "role", role != null ? role : "", 
                 "nama", "" 
             ));
 
@@ -0,0 +1,111 @@
+package com.farmmanagement.metrics;
+
+import static spark.Spark.afterAfter;
+import static spark.Spark.before;
+import static spark.Spark.get;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.controller.MonitoringController;
+
+/**
+ * Metrics per route: jumlah request per kelas status dan histogram latensi.
+ * Route dicatat dalam bentuk template (/api/manager/hasil-panen/:id) dengan jumlah label dibatasi,
+ * lalu diekspor bersama gauge lain di GET /metrics (format teks Prometheus).
+ */
+public class HttpMetrics {
+    private static final String ATTR_START = "metrics.start";
+    private static final String OTHER_ROUTE = "__other__";
+    private static final int MAX_ROUTES = AppConfig.getInt("METRICS_MAX_ROUTES", 200);
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private static final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    private HttpMetrics() {}
+
+    // Harus didaftarkan sebelum filter lain agar request yang di-halt (401/429/503) ikut tercatat
+    public static void register() {
+        if (!AppConfig.getBoolean("METRICS_ENABLED", true)) {
+            return;
+        }
+
+        before((req, res) -> req.attribute(ATTR_START, System.nanoTime()));
+
+        // afterAfter tetap dijalankan setelah exception / halt, status diambil dari response asli
+        afterAfter((req, res) -> {
+            Long start = req.attribute(ATTR_START);
+            // Durasi stream SSE (menit) akan merusak histogram latensi
+            if (start == null || "/metrics".equals(req.pathInfo()) || MonitoringController.STREAM_PATH.equals(req.pathInfo())) {
+                return;
+            }
+            statsFor(req.requestMethod(), routeTemplate(req.pathInfo()))
+                    .record(res.raw().getStatus(), System.nanoTime() - start);
+        });
+
+        get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            return PrometheusExporter.render();
+        });
+    }
+
+    // Segmen angka / UUID diganti :id supaya /api/tanaman/1 dan /api/tanaman/2 satu label
+    static String routeTemplate(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder template = new StringBuilder(path.length());
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            template.append('/').append(ID_SEGMENT.matcher(segment).matches() ? ":id" : segment);
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    private static RouteStats statsFor(String method, String route) {
+        String key = method + " " + route;
+        RouteStats stats = routes.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        // Batasi kardinalitas: path acak (scanner, typo) digabung ke satu label
+        if (routes.size() >= MAX_ROUTES) {
+            return routes.computeIfAbsent(method + " " + OTHER_ROUTE, k -> new RouteStats(method, OTHER_ROUTE));
+        }
+        return routes.computeIfAbsent(key, k -> new RouteStats(method, route));
+    }
+
+    static Iterable<RouteStats> getRoutes() {
+        return routes.values();
+    }
+
+    static class RouteStats {
+        final String method;
+        final String route;
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Index 0..4 = 1xx..5xx
+        final LongAdder[] statusClasses = new LongAdder[5];
+
+        RouteStats(String method, String route) {
+            this.method = method;
+            this.route = route;
+            for (int i = 0; i < statusClasses.length; i++) {
+                statusClasses[i] = new LongAdder();
+            }
+        }
+
+        void record(int status, long elapsedNanos) {
+            int statusClass = status / 100;
+            if (statusClass >= 1 && statusClass <= 5) {
+                statusClasses[statusClass - 1].increment();
+            }
+            latency.recordNanos(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.farmmanagement.metrics;
+
+import java.util.Map;
+
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.controller.ExportController;
+import com.farmmanagement.middleware.ConcurrencyLimiterMiddleware;
+import com.farmmanagement.middleware.IdempotencyMiddleware;
+import com.farmmanagement.middleware.RateLimiterMiddleware;
+import com.farmmanagement.repository.MonitoringArchiveRepository;
+import com.farmmanagement.service.AlertEngine;
+import com.farmmanagement.service.LahanService;
+import com.farmmanagement.service.MonitoringArchiver;
+import com.farmmanagement.service.PembelianService;
+import com.farmmanagement.service.TanamanService;
+import com.farmmanagement.service.UserService;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.ExpiringLruCache;
+import com.farmmanagement.util.JwtUtil;
+import com.farmmanagement.util.MonitoringBroadcaster;
+import com.farmmanagement.util.PasswordHasher;
+
+/**
+ * Menyusun output GET /metrics dalam format teks Prometheus (version 0.0.4).
+ * Latensi diekspor sebagai summary (p50/p95/p99 sejak server start) + _sum/_count,
+ * sehingga rata-rata per interval tetap bisa dihitung dengan rate() di Prometheus.
+ */
+class PrometheusExporter {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private PrometheusExporter() {}
+
+    static String render() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        writeHttpMetrics(out);
+        writePoolMetrics(out);
+        writeQueryMetrics(out);
+        writeRateLimiterMetrics(out);
+        writeCacheMetrics(out);
+        writeWorkerMetrics(out);
+        writeMonitoringStreamMetrics(out);
+        writeAlertMetrics(out);
+        writeMonitoringArchiveMetrics(out);
+        writePurchaseMetrics(out);
+        writeIdempotencyMetrics(out);
+        return out.toString();
+    }
+
+    private static void writeHttpMetrics(StringBuilder out) {
+        header(out, "http_requests_total", "counter", "HTTP requests by route, method and status class.");
+        for (HttpMetrics.RouteStats stats : HttpMetrics.getRoutes()) {
+            for (int i = 0; i < stats.statusClasses.length; i++) {
+                long value = stats.statusClasses[i].sum();
+                if (value > 0) {
+                    sample(out, "http_requests_total", value,
+                            "method", stats.method, "route", stats.route, "status", (i + 1) + "xx");
+                }
+            }
+        }
+
+        header(out, "http_request_duration_seconds", "summary", "HTTP request latency by route and method.");
+        for (HttpMetrics.RouteStats stats : HttpMetrics.getRoutes()) {
+            writeSummary(out, "http_request_duration_seconds", stats.latency,
+                    "method", stats.method, "route", stats.route);
+        }
+
+        header(out, "http_request_duration_max_seconds", "gauge", "Slowest HTTP request since start.");
+        for (HttpMetrics.RouteStats stats : HttpMetrics.getRoutes()) {
+            sample(out, "http_request_duration_max_seconds", seconds(stats.latency.getMaxMicros()),
+                    "method", stats.method, "route", stats.route);
+        }
+    }
+
+    private static void writePoolMetrics(StringBuilder out) {
+        header(out, "db_pool_connections", "gauge", "Database connection pool state.");
+        for (Map.Entry<String, Integer> entry : DatabaseConfig.getPoolStats().entrySet()) {
+            sample(out, "db_pool_connections", entry.getValue(), "state", entry.getKey());
+        }
+    }
+
+    private static void writeQueryMetrics(StringBuilder out) {
+        Map<String, QueryTimer.QueryStats> queries = QueryTimer.getQueries();
+
+        header(out, "db_query_duration_seconds", "summary", "Repository query latency by query name.");
+        queries.forEach((name, stats) -> writeSummary(out, "db_query_duration_seconds", stats.latency, "query", name));
+        header(out, "db_query_duration_max_seconds", "gauge", "Slowest execution per query name since start.");
+        queries.forEach((name, stats) ->
+                sample(out, "db_query_duration_max_seconds", seconds(stats.latency.getMaxMicros()), "query", name));
+        header(out, "db_query_rows_total", "counter", "Rows returned or affected per query name.");
+        queries.forEach((name, stats) -> sample(out, "db_query_rows_total", stats.rows.sum(), "query", name));
+        header(out, "db_query_errors_total", "counter", "Failed executions per query name.");
+        queries.forEach((name, stats) -> sample(out, "db_query_errors_total", stats.errors.sum(), "query", name));
+    }
+
+    private static void writeRateLimiterMetrics(StringBuilder out) {
+        header(out, "rate_limiter_keys", "gauge", "Tracked client keys per rate limit rule.");
+        for (Map<String, Object> rule : RateLimiterMiddleware.getStats()) {
+            sample(out, "rate_limiter_keys", ((Number) rule.get("keys")).doubleValue(), "rule", (String) rule.get("rule"));
+        }
+        header(out, "rate_limiter_requests_total", "counter", "Requests checked per rate limit rule.");
+        for (Map<String, Object> rule : RateLimiterMiddleware.getStats()) {
+            String name = (String) rule.get("rule");
+            sample(out, "rate_limiter_requests_total", ((Number) rule.get("allowed")).doubleValue(), "rule", name, "result", "allowed");
+            sample(out, "rate_limiter_requests_total", ((Number) rule.get("rejected")).doubleValue(), "rule", name, "result", "rejected");
+            sample(out, "rate_limiter_requests_total", ((Number) rule.get("untracked")).doubleValue(), "rule", name, "result", "untracked");
+        }
+
+        header(out, "api_concurrency_limit", "gauge", "Max concurrent /api requests, 0 = disabled.");
+        sample(out, "api_concurrency_limit", ConcurrencyLimiterMiddleware.getLimit());
+        header(out, "api_concurrency_in_flight", "gauge", "Concurrent /api requests holding a permit.");
+        sample(out, "api_concurrency_in_flight", ConcurrencyLimiterMiddleware.getInFlight());
+        header(out, "api_concurrency_waiting", "gauge", "Requests waiting for a permit.");
+        sample(out, "api_concurrency_waiting", ConcurrencyLimiterMiddleware.getWaiting());
+        header(out, "api_concurrency_rejected_total", "counter", "Requests rejected with 503 by the concurrency limiter.");
+        sample(out, "api_concurrency_rejected_total", ConcurrencyLimiterMiddleware.getRejected());
+
+        header(out, "export_max_concurrent", "gauge", "Max concurrent CSV exports.");
+        sample(out, "export_max_concurrent", ExportController.getMaxConcurrent());
+        header(out, "export_in_flight", "gauge", "CSV exports currently streaming.");
+        sample(out, "export_in_flight", ExportController.getInFlight());
+        header(out, "export_rejected_total", "counter", "CSV exports rejected with 503 because the export limit was reached.");
+        sample(out, "export_rejected_total", ExportController.getRejected());
+    }
+
+    private static void writeCacheMetrics(StringBuilder out) {
+        Map<String, ExpiringLruCache<?, ?>> caches = Map.of(
+                "tanaman", TanamanService.getCache(),
+                "lahan", LahanService.getCache(),
+                "user", UserService.getCache(),
+                "jwt", JwtUtil.getVerifiedTokenCache());
+
+        header(out, "cache_entries", "gauge", "Entries currently held per in-process cache.");
+        caches.forEach((name, cache) -> sample(out, "cache_entries", cache.size(), "cache", name));
+        header(out, "cache_max_entries", "gauge", "Configured capacity per in-process cache.");
+        caches.forEach((name, cache) -> sample(out, "cache_max_entries", cache.getMaxSize(), "cache", name));
+        header(out, "cache_requests_total", "counter", "Cache lookups by result.");
+        caches.forEach((name, cache) -> {
+            sample(out, "cache_requests_total", cache.getHits(), "cache", name, "result", "hit");
+            sample(out, "cache_requests_total", cache.getMisses(), "cache", name, "result", "miss");
+        });
+        header(out, "cache_evictions_total", "counter", "Entries evicted because the cache was full.");
+        caches.forEach((name, cache) -> sample(out, "cache_evictions_total", cache.getEvictions(), "cache", name));
+
+        header(out, "cache_invalidation_connected", "gauge", "1 if the LISTEN connection for cache invalidation is up.");
+        sample(out, "cache_invalidation_connected", CacheInvalidationBus.isConnected() ? 1 : 0);
+        header(out, "cache_invalidation_notifications_total", "counter", "Invalidation notifications received.");
+        sample(out, "cache_invalidation_notifications_total", CacheInvalidationBus.getReceived());
+        header(out, "cache_invalidation_reconnects_total", "counter", "Times the invalidation listener lost its connection.");
+        sample(out, "cache_invalidation_reconnects_total", CacheInvalidationBus.getReconnects());
+    }
+
+    private static void writeWorkerMetrics(StringBuilder out) {
+        header(out, "bcrypt_pool_active", "gauge", "Password hashing tasks currently running.");
+        sample(out, "bcrypt_pool_active", PasswordHasher.getActiveCount());
+        header(out, "bcrypt_pool_queued", "gauge", "Password hashing tasks waiting in the queue.");
+        sample(out, "bcrypt_pool_queued", PasswordHasher.getQueueSize());
+    }
+
+    private static void writeMonitoringStreamMetrics(StringBuilder out) {
+        header(out, "monitoring_stream_subscribers", "gauge", "Open SSE monitoring streams.");
+        sample(out, "monitoring_stream_subscribers", MonitoringBroadcaster.getSubscribers());
+        header(out, "monitoring_stream_published_total", "counter", "Monitoring readings and alerts published to the stream hub.");
+        sample(out, "monitoring_stream_published_total", MonitoringBroadcaster.getPublished());
+        header(out, "monitoring_stream_delivered_total", "counter", "Events queued for stream subscribers.");
+        sample(out, "monitoring_stream_delivered_total", MonitoringBroadcaster.getDelivered());
+        header(out, "monitoring_stream_slow_consumer_drops_total", "counter", "Subscribers disconnected because their buffer was full.");
+        sample(out, "monitoring_stream_slow_consumer_drops_total", MonitoringBroadcaster.getSlowConsumerDrops());
+    }
+
+    private static void writeAlertMetrics(StringBuilder out) {
+        Map<String, Long> stats = AlertEngine.getStats();
+        header(out, "alert_rules", "gauge", "Active alert rules loaded in memory.");
+        sample(out, "alert_rules", stats.get("rules"));
+        header(out, "alert_events_total", "counter", "Alert transitions by result.");
+        sample(out, "alert_events_total", stats.get("fired"), "result", "fired");
+        sample(out, "alert_events_total", stats.get("resolved"), "result", "resolved");
+        sample(out, "alert_events_total", stats.get("suppressed"), "result", "suppressed");
+        sample(out, "alert_events_total", stats.get("dropped"), "result", "dropped");
+        header(out, "alert_webhook_failures_total", "counter", "Alert webhook deliveries that failed.");
+        sample(out, "alert_webhook_failures_total", stats.get("webhook_failures"));
+    }
+
+    private static void writeMonitoringArchiveMetrics(StringBuilder out) {
+        if (!MonitoringArchiver.isEnabled()) return;
+        Map<String, Long> stats = new MonitoringArchiveRepository().getStats();
+        header(out, "monitoring_archive_segments", "gauge", "Columnar archive files (one per lahan per month).");
+        sample(out, "monitoring_archive_segments", stats.get("segments"));
+        header(out, "monitoring_archive_rows", "gauge", "Monitoring rows held in the columnar archive.");
+        sample(out, "monitoring_archive_rows", stats.get("rows"));
+        header(out, "monitoring_archive_bytes", "gauge", "Size of the columnar archive files.");
+        sample(out, "monitoring_archive_bytes", stats.get("bytes"));
+        header(out, "monitoring_archived_rows_total", "counter", "Rows moved from the monitoring table to the archive by this instance.");
+        sample(out, "monitoring_archived_rows_total", MonitoringArchiver.getArchivedRows());
+    }
+
+    private static void writePurchaseMetrics(StringBuilder out) {
+        Map<String, Long> stats = PembelianService.getStats();
+        header(out, "purchases_total", "counter", "Buyer purchase attempts by result.");
+        sample(out, "purchases_total", stats.get("purchased"), "result", "purchased");
+        sample(out, "purchases_total", stats.get("rejected"), "result", "rejected");
+        header(out, "purchase_retries_total", "counter", "Purchase transactions retried after a serialization failure or deadlock.");
+        sample(out, "purchase_retries_total", stats.get("retries"));
+    }
+
+    private static void writeIdempotencyMetrics(StringBuilder out) {
+        Map<String, Long> stats = IdempotencyMiddleware.getStats();
+        header(out, "idempotency_keys", "gauge", "Idempotency keys held in memory.");
+        sample(out, "idempotency_keys", stats.get("keys"));
+        header(out, "idempotency_requests_total", "counter", "Requests carrying an Idempotency-Key by outcome.");
+        sample(out, "idempotency_requests_total", stats.get("stored"), "result", "stored");
+        sample(out, "idempotency_requests_total", stats.get("replayed"), "result", "replayed");
+        sample(out, "idempotency_requests_total", stats.get("coalesced"), "result", "coalesced");
+        sample(out, "idempotency_requests_total", stats.get("mismatched"), "result", "mismatched");
+    }
+
+    static void writeSummary(StringBuilder out, String name, LatencyHistogram histogram, String... labels) {
+        for (double q : QUANTILES) {
+            String[] withQuantile = new String[labels.length + 2];
+            System.arraycopy(labels, 0, withQuantile, 0, labels.length);
+            withQuantile[labels.length] = "quantile";
+            withQuantile[labels.length + 1] = String.valueOf(q);
+            sample(out, name, seconds(histogram.valueAtQuantile(q)), withQuantile);
+        }
+        sample(out, name + "_sum", seconds(histogram.getSumMicros()), labels);
+        sample(out, name + "_count", histogram.getCount(), labels);
+    }
+
+    static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // labels: pasangan nama, nilai
+    static void sample(StringBuilder out, String name, double value, String... labels) {
+        out.append(name);
+        if (labels.length > 0) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) out.append(',');
+                out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1_000_000.0;
+    }
+}
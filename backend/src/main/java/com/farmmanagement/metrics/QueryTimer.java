@@ -0,0 +1,260 @@
+package com.farmmanagement.metrics;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.sql2o.Query;
+import org.sql2o.ResultSetIterable;
+
+import com.farmmanagement.config.AppConfig;
+
+/**
+ * Menjalankan query repository sambil mencatat durasi per nama logis (mis. "HasilPanenRepository.findAll"),
+ * jumlah baris dan error. Query di atas SLOW_QUERY_MS dicatat ke log; nilai parameter tidak pernah
+ * ikut ditulis, hanya namanya.
+ */
+public class QueryTimer {
+    private static final long SLOW_QUERY_NANOS = AppConfig.getLong("SLOW_QUERY_MS", 500) * 1_000_000L;
+
+    private static final Map<String, QueryStats> queries = new ConcurrentHashMap<>();
+
+    private QueryTimer() {}
+
+    public static <T> List<T> fetch(String name, Query query, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            List<T> rows = query.executeAndFetch(type);
+            record(name, query, start, rows.size());
+            return rows;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    public static <T> T fetchFirst(String name, Query query, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            T row = query.executeAndFetchFirst(type);
+            record(name, query, start, row != null ? 1 : 0);
+            return row;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    public static <T> T scalar(String name, Query query, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            T value = query.executeScalar(type);
+            record(name, query, start, value != null ? 1 : 0);
+            return value;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    public static <T> List<T> scalarList(String name, Query query, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            List<T> values = query.executeScalarList(type);
+            record(name, query, start, values.size());
+            return values;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    // INSERT / UPDATE / DELETE; baris = jumlah baris yang terpengaruh
+    public static int update(String name, Query query) {
+        long start = System.nanoTime();
+        try {
+            int affected = query.executeUpdate().getResult();
+            record(name, query, start, affected);
+            return affected;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    // Fetch lewat cursor JDBC (executeAndFetchLazy). Dicatat saat iterable di-close: durasi dari eksekusi
+    // sampai close (termasuk waktu membaca semua baris) dan jumlah baris yang benar-benar dibaca.
+    public static <T> ResultSetIterable<T> fetchLazy(String name, Query query, Class<T> type) {
+        long start = System.nanoTime();
+        try {
+            return new TimedResultSet<>(name, query, start, query.executeAndFetchLazy(type));
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    // JDBC batch (addToBatch + executeBatch); baris = jumlah baris terpengaruh dari semua statement.
+    // Driver yang tidak tahu jumlahnya (SUCCESS_NO_INFO) tidak ikut dihitung.
+    public static int[] batch(String name, Query query) {
+        long start = System.nanoTime();
+        try {
+            int[] counts = query.executeBatch().getBatchResult();
+            long affected = 0;
+            for (int count : counts) {
+                if (count > 0) affected += count;
+            }
+            record(name, query, start, affected);
+            return counts;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    // Eksekusi lain (getKey, scalar khusus); jumlah baris tidak diketahui
+    public static <T> T execute(String name, Query query, Function<Query, T> call) {
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(query);
+            record(name, query, start, -1);
+            return result;
+        } catch (RuntimeException e) {
+            recordError(name, query, start, e);
+            throw e;
+        }
+    }
+
+    private static void record(String name, Query query, long start, long rows) {
+        long elapsed = System.nanoTime() - start;
+        QueryStats stats = statsFor(name);
+        stats.latency.recordNanos(elapsed);
+        if (rows > 0) {
+            stats.rows.add(rows);
+        }
+        if (elapsed >= SLOW_QUERY_NANOS) {
+            logSlowQuery(name, query, elapsed, rows, null);
+        }
+    }
+
+    private static void recordError(String name, Query query, long start, RuntimeException e) {
+        long elapsed = System.nanoTime() - start;
+        QueryStats stats = statsFor(name);
+        stats.latency.recordNanos(elapsed);
+        stats.errors.increment();
+        if (elapsed >= SLOW_QUERY_NANOS) {
+            logSlowQuery(name, query, elapsed, -1, e);
+        }
+    }
+
+    // Satu baris key=value agar mudah di-grep / diparse; nilai parameter disamarkan
+    private static void logSlowQuery(String name, Query query, long elapsedNanos, long rows, RuntimeException error) {
+        StringBuilder line = new StringBuilder("⚠️ slow_query");
+        line.append(" name=").append(name);
+        line.append(" duration_ms=").append(elapsedNanos / 1_000_000);
+        line.append(" rows=").append(rows);
+        line.append(" params={");
+        boolean first = true;
+        for (String param : query.getParamNameToIdxMap().keySet()) {
+            if (!first) line.append(", ");
+            line.append(param).append("=?");
+            first = false;
+        }
+        line.append('}');
+        // SQL berisi placeholder (?), bukan nilai parameter
+        line.append(" sql=\"").append(query.toString().replaceAll("\\s+", " ").trim()).append('"');
+        if (error != null) {
+            line.append(" error=\"").append(error.getClass().getSimpleName()).append('"');
+        }
+        System.err.println(line);
+    }
+
+    private static QueryStats statsFor(String name) {
+        QueryStats stats = queries.get(name);
+        return stats != null ? stats : queries.computeIfAbsent(name, k -> new QueryStats());
+    }
+
+    static Map<String, QueryStats> getQueries() {
+        return queries;
+    }
+
+    // Menghitung baris selama iterasi; error saat membaca baris ikut dicatat sebagai error query
+    private static class TimedResultSet<T> implements ResultSetIterable<T> {
+        private final String name;
+        private final Query query;
+        private final long start;
+        private final ResultSetIterable<T> delegate;
+        private long rows;
+        private RuntimeException error;
+        private boolean closed;
+
+        TimedResultSet(String name, Query query, long start, ResultSetIterable<T> delegate) {
+            this.name = name;
+            this.query = query;
+            this.start = start;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<T> rowIterator = delegate.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    try {
+                        return rowIterator.hasNext();
+                    } catch (RuntimeException e) {
+                        error = e;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public T next() {
+                    try {
+                        T row = rowIterator.next();
+                        rows++;
+                        return row;
+                    } catch (RuntimeException e) {
+                        error = e;
+                        throw e;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                delegate.close();
+            } finally {
+                if (error != null) {
+                    recordError(name, query, start, error);
+                } else {
+                    record(name, query, start, rows);
+                }
+            }
+        }
+
+        @Override
+        public boolean isAutoCloseConnection() {
+            return delegate.isAutoCloseConnection();
+        }
+
+        @Override
+        public void setAutoCloseConnection(boolean autoCloseConnection) {
+            delegate.setAutoCloseConnection(autoCloseConnection);
+        }
+    }
+
+    static class QueryStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+}
@@ -1,5 +1,7 @@
 package com.farmmanagement.middleware;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.farmmanagement.controller.MonitoringController;
 import com.farmmanagement.util.JwtUtil;
 
 import static spark.Spark.before;
@@ -7,47 +9,63 @@ import static spark.Spark.halt;
 
 public class AuthMiddleware {
 
+    // Klaim token yang sudah diverifikasi disimpan sebagai request attribute untuk controller
+    public static final String ATTR_JWT = "auth.jwt";
+    public static final String ATTR_USERNAME = "auth.username";
+    public static final String ATTR_ROLE = "auth.role";
+
     public static void register() {
 
         //  Middleware JWT + Role-based Auth
         before("/api/*", (req, res) -> {
-            String path = req.pathInfo();
-
-            // Lewati endpoint public (login & register & reset password pembeli)
-            if (path.equals("/api/user/login") || path.equals("/api/user/register") || path.equals("/api/user/reset-password")) {
-                return; // bypass JWT check
-            }
-
             String authHeader = req.headers("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                halt(401, "Missing or invalid Authorization header");
+            // EventSource di browser tidak bisa mengirim header, jadi khusus stream SSE token boleh lewat query
+            if (authHeader == null && MonitoringController.STREAM_PATH.equals(req.pathInfo())
+                    && req.queryParams("access_token") != null) {
+                authHeader = "Bearer " + req.queryParams("access_token");
             }
-
-            String token = authHeader.substring(7);
-            if (!JwtUtil.verifyToken(token)) {
-                halt(401, "Invalid or expired token");
+            DecodedJWT jwt = authorize(req.pathInfo(), authHeader);
+            if (jwt != null) {
+                req.attribute(ATTR_JWT, jwt);
+                req.attribute(ATTR_USERNAME, jwt.getSubject());
+                req.attribute(ATTR_ROLE, jwt.getClaim("role").asString());
             }
+        });
+    }
 
-            // Ambil role dari token
-            String role = JwtUtil.getRole(token);
+    // Verifikasi token (sekali per request) + cek role; halt() jika ditolak, null untuk endpoint public
+    public static DecodedJWT authorize(String path, String authHeader) {
+        // Lewati endpoint public (login & register & reset password pembeli)
+        if (path.equals("/api/user/login") || path.equals("/api/user/register") || path.equals("/api/user/reset-password")) {
+            return null; // bypass JWT check
+        }
 
-            // Role-based access control
-            if (path.startsWith("/api/admin/") && !"admin".equalsIgnoreCase(role)) {
-                halt(403, "Access denied: Admin only");
-            }
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw halt(401, "Missing or invalid Authorization header");
+        }
 
-            if (path.startsWith("/api/manager/") && !"manajer".equalsIgnoreCase(role)) {
-                halt(403, "Access denied: Manager only");
-            }
+        String token = authHeader.substring(7);
+        DecodedJWT jwt = JwtUtil.verify(token);
+        if (jwt == null) {
+            throw halt(401, "Invalid or expired token");
+        }
 
-            if (path.startsWith("/api/pembeli/") && !"pembeli".equalsIgnoreCase(role)) {
-                halt(403, "Access denied: Buyer only");
-            }
+        // Ambil role dari token
+        String role = jwt.getClaim("role").asString();
 
-            //  Tambahkan agar admin tetap bisa akses semua endpoint
-            if ("admin".equalsIgnoreCase(role)) {
-                return; // admin superuser: bypass semua filter
-            }
-        });
+        // Role-based access control
+        if (path.startsWith("/api/admin/") && !"admin".equalsIgnoreCase(role)) {
+            throw halt(403, "Access denied: Admin only");
+        }
+
+        if (path.startsWith("/api/manager/") && !"manajer".equalsIgnoreCase(role)) {
+            throw halt(403, "Access denied: Manager only");
+        }
+
+        if (path.startsWith("/api/pembeli/") && !"pembeli".equalsIgnoreCase(role)) {
+            throw halt(403, "Access denied: Buyer only");
+        }
+
+        return jwt;
     }
 }
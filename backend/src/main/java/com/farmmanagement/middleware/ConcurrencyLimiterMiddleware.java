@@ -0,0 +1,76 @@
+package com.farmmanagement.middleware;
+
+import static spark.Spark.afterAfter;
+import static spark.Spark.before;
+import static spark.Spark.halt;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.config.ServerConfig;
+import com.farmmanagement.controller.MonitoringController;
+
+/**
+ * Membatasi jumlah request /api/* yang diproses bersamaan, di depan connection pool DB.
+ * Penting saat memakai virtual thread: ribuan koneksi boleh terbuka, tetapi hanya sejumlah
+ * request yang boleh antre ke database. Request yang menunggu terlalu lama mendapat 503.
+ */
+public class ConcurrencyLimiterMiddleware {
+    private static final String ATTR_PERMIT = "limiter.permit";
+
+    private static Semaphore permits;
+    private static int limit;
+    private static long waitTimeoutMs;
+    private static final LongAdder rejected = new LongAdder();
+
+    public static void register() {
+        int defaultLimit = ServerConfig.isVirtualThreadsEnabled()
+                ? AppConfig.getInt("DB_POOL_MAX_SIZE", 10) * 4
+                : 0;
+        limit = AppConfig.getInt("API_CONCURRENCY_LIMIT", defaultLimit);
+        waitTimeoutMs = AppConfig.getLong("API_CONCURRENCY_WAIT_MS", 2_000);
+        if (limit <= 0) {
+            return; // limiter nonaktif
+        }
+        permits = new Semaphore(limit, true);
+
+        before("/api/*", (req, res) -> {
+            // Stream SSE terbuka lama dan tidak memakai database; dibatasi sendiri oleh MONITORING_STREAM_MAX_SUBSCRIBERS
+            if (MonitoringController.STREAM_PATH.equals(req.pathInfo())) {
+                return;
+            }
+            if (!permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                res.header("Retry-After", "1");
+                halt(503, "Server is busy. Try again later.");
+            }
+            req.attribute(ATTR_PERMIT, Boolean.TRUE);
+        });
+
+        // afterAfter tetap dijalankan walaupun route melempar exception / halt
+        afterAfter("/api/*", (req, res) -> {
+            if (req.attribute(ATTR_PERMIT) != null) {
+                req.raw().removeAttribute(ATTR_PERMIT);
+                permits.release();
+            }
+        });
+    }
+
+    public static int getLimit() {
+        return limit;
+    }
+
+    public static int getInFlight() {
+        return permits != null ? limit - permits.availablePermits() : 0;
+    }
+
+    public static int getWaiting() {
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+
+    public static long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,331 @@
+package com.farmmanagement.middleware;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.IdempotencyKey;
+import com.farmmanagement.repository.IdempotencyKeyRepository;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Header Idempotency-Key untuk route POST yang membuat data (pembelian, hasil panen).
+ * Key dicakup per user dan route; respons pertama (selain 5xx) disimpan selama IDEMPOTENCY_TTL_HOURS
+ * dan dikirim ulang apa adanya untuk retry dengan key yang sama (header Idempotent-Replayed: true).
+ * Retry yang datang saat request pertama masih berjalan menunggu hasilnya, tidak ikut dieksekusi.
+ * Key yang sama dengan body berbeda ditolak 422.
+ *
+ * Penyimpanan di memori (LRU terbatas IDEMPOTENCY_MAX_KEYS). Untuk lebih dari satu instance,
+ * IDEMPOTENCY_STORE=postgres menambahkan tabel idempotency_key sebagai sumber kebenaran bersama.
+ */
+public class IdempotencyMiddleware {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long TTL_MS = TimeUnit.HOURS.toMillis(Math.max(1, AppConfig.getLong("IDEMPOTENCY_TTL_HOURS", 24)));
+    private static final int MAX_KEYS = Math.max(1, AppConfig.getInt("IDEMPOTENCY_MAX_KEYS", 10_000));
+    // Lama retry menunggu request pertama sebelum dijawab 409
+    private static final long WAIT_MS = Math.max(0, AppConfig.getLong("IDEMPOTENCY_WAIT_MS", 10_000));
+    // Klaim in-flight di database dianggap ditinggal (instance mati) setelah selang ini
+    private static final long IN_FLIGHT_SECONDS = Math.max(1, AppConfig.getLong("IDEMPOTENCY_IN_FLIGHT_SECONDS", 60));
+    private static final boolean POSTGRES = "postgres".equalsIgnoreCase(AppConfig.get("IDEMPOTENCY_STORE", "memory"));
+    private static final long POLL_MS = 100;
+    private static final long SWEEP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    // Urutan sisip = urutan kedaluwarsa (TTL sama), entri tertua dibuang dulu saat penuh
+    private static final Map<String, Entry> entries = new LinkedHashMap<>();
+    private static final IdempotencyKeyRepository repo = new IdempotencyKeyRepository();
+
+    private static final LongAdder stored = new LongAdder();
+    private static final LongAdder replayed = new LongAdder();
+    private static final LongAdder coalesced = new LongAdder();
+    private static final LongAdder mismatched = new LongAdder();
+    private static ScheduledExecutorService sweeper;
+
+    private IdempotencyMiddleware() {}
+
+    public static synchronized void register() {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(IdempotencyMiddleware::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("✅ Idempotency-Key store: " + (POSTGRES ? "memory + postgres" : "memory")
+                           + ", TTL " + TimeUnit.MILLISECONDS.toHours(TTL_MS) + " jam, max " + MAX_KEYS + " key");
+    }
+
+    // Bungkus route; tanpa header Idempotency-Key route berjalan seperti biasa
+    public static Route wrap(String routeName, Route route) {
+        return (req, res) -> {
+            String key = req.headers(HEADER);
+            if (key == null || key.trim().isEmpty()) {
+                return route.handle(req, res);
+            }
+            key = key.trim();
+            if (key.length() > MAX_KEY_LENGTH) {
+                return error(res, 400, HEADER + " maksimal " + MAX_KEY_LENGTH + " karakter");
+            }
+            String username = req.attribute(AuthMiddleware.ATTR_USERNAME);
+            String scopeKey = routeName + "|" + (username != null ? username : "-") + "|" + key;
+            return handle(req, res, route, scopeKey, sha256(req.bodyAsBytes()));
+        };
+    }
+
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("keys", (long) entries.size());
+        }
+        stats.put("stored", stored.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("mismatched", mismatched.sum());
+        return stats;
+    }
+
+    private static Object handle(Request req, Response res, Route route, String scopeKey, String fingerprint) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (true) {
+            Entry mine = null;
+            Entry existing;
+            synchronized (entries) {
+                existing = entries.get(scopeKey);
+                if (existing == null || existing.isExpired()) {
+                    entries.remove(scopeKey);
+                    mine = new Entry(fingerprint);
+                    entries.put(scopeKey, mine);
+                    evictOverflow();
+                }
+            }
+
+            if (mine == null) {
+                // Key sudah dipegang request lain di instance ini: kirim ulang hasilnya atau tunggu
+                if (!existing.fingerprint.equals(fingerprint)) {
+                    return mismatch(res);
+                }
+                if (!existing.result.isDone()) {
+                    coalesced.increment();
+                }
+                StoredResponse response;
+                try {
+                    response = existing.result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    return inProgress(res);
+                } catch (ExecutionException e) {
+                    response = null;
+                }
+                if (response == null) {
+                    continue; // request pertama gagal dan klaimnya dilepas, coba ambil alih
+                }
+                return replay(res, response);
+            }
+
+            boolean claimedShared = false;
+            try {
+                if (POSTGRES) {
+                    StoredResponse shared = claimShared(scopeKey, fingerprint, deadline);
+                    if (shared != null) {
+                        complete(mine, shared);
+                        return shared == StoredResponse.MISMATCH ? mismatch(res)
+                             : shared == StoredResponse.IN_PROGRESS ? inProgress(res)
+                             : replay(res, shared);
+                    }
+                    claimedShared = true;
+                }
+
+                Object body = route.handle(req, res);
+                int status = res.raw().getStatus();
+                if (status >= 500) {
+                    release(scopeKey, mine, claimedShared);
+                    return body;
+                }
+                StoredResponse response = new StoredResponse(status, res.raw().getContentType(),
+                                                             body != null ? body.toString() : "");
+                if (claimedShared) {
+                    try {
+                        repo.complete(scopeKey, fingerprint, response.status, response.contentType, response.body,
+                                      TimeUnit.MILLISECONDS.toSeconds(TTL_MS));
+                    } catch (Exception e) {
+                        // Data sudah tersimpan: respons tetap dikirim, cache lokal tetap menjawab retry ke instance ini
+                        System.err.println("⚠️ Gagal menyimpan respons Idempotency-Key: " + e.getMessage());
+                    }
+                }
+                complete(mine, response);
+                stored.increment();
+                return body;
+            } catch (Exception | Error e) {
+                release(scopeKey, mine, claimedShared);
+                throw e;
+            }
+        }
+    }
+
+    // Klaim di database; null jika instance ini yang memproses, selain itu respons yang harus dikirim
+    private static StoredResponse claimShared(String scopeKey, String fingerprint, long deadline) throws InterruptedException {
+        boolean waiting = false;
+        while (true) {
+            if (repo.claim(scopeKey, fingerprint, IN_FLIGHT_SECONDS)) {
+                return null;
+            }
+            IdempotencyKey row = repo.find(scopeKey);
+            if (row == null) {
+                continue; // kedaluwarsa atau dilepas di antara dua query
+            }
+            if (!row.getFingerprint().equals(fingerprint)) {
+                return StoredResponse.MISMATCH;
+            }
+            if (row.getStatus_code() != null) {
+                return new StoredResponse(row.getStatus_code(), row.getContent_type(), row.getBody());
+            }
+            // Masih diproses instance lain
+            if (!waiting) {
+                coalesced.increment();
+                waiting = true;
+            }
+            if (System.currentTimeMillis() + POLL_MS > deadline) {
+                return StoredResponse.IN_PROGRESS;
+            }
+            Thread.sleep(POLL_MS);
+        }
+    }
+
+    private static void complete(Entry entry, StoredResponse response) {
+        if (response == StoredResponse.MISMATCH || response == StoredResponse.IN_PROGRESS) {
+            // Bukan respons final: jangan disimpan, request yang menunggu mengulang klaim
+            synchronized (entries) {
+                entries.values().remove(entry);
+            }
+            entry.result.complete(null);
+            return;
+        }
+        entry.expiresAt = System.currentTimeMillis() + TTL_MS;
+        entry.result.complete(response);
+    }
+
+    // Lepas klaim; baris database hanya dihapus jika memang diklaim oleh request ini
+    private static void release(String scopeKey, Entry entry, boolean claimedShared) {
+        synchronized (entries) {
+            entries.remove(scopeKey, entry);
+        }
+        entry.result.complete(null);
+        if (claimedShared) {
+            try {
+                repo.release(scopeKey, entry.fingerprint);
+            } catch (Exception e) {
+                // Klaim tetap kedaluwarsa sendiri setelah IDEMPOTENCY_IN_FLIGHT_SECONDS
+                System.err.println("⚠️ Gagal melepas Idempotency-Key: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Object replay(Response res, StoredResponse response) {
+        replayed.increment();
+        res.status(response.status);
+        if (response.contentType != null) {
+            res.type(response.contentType);
+        }
+        res.header(REPLAYED_HEADER, "true");
+        return response.body;
+    }
+
+    private static Object mismatch(Response res) {
+        mismatched.increment();
+        return error(res, 422, HEADER + " sudah dipakai untuk request dengan isi berbeda");
+    }
+
+    private static Object inProgress(Response res) {
+        res.header("Retry-After", "1");
+        return error(res, 409, "Request dengan " + HEADER + " yang sama masih diproses");
+    }
+
+    private static Object error(Response res, int status, String message) {
+        res.status(status);
+        res.type("application/json");
+        return "{\"error\":\"" + message + "\"}";
+    }
+
+    // Dipanggil dengan lock entries; entri yang masih diproses tidak pernah dibuang
+    private static void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > MAX_KEYS && iterator.hasNext()) {
+            if (iterator.next().result.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void sweep() {
+        synchronized (entries) {
+            entries.values().removeIf(Entry::isExpired);
+        }
+        if (POSTGRES) {
+            try {
+                int deleted = repo.deleteExpired();
+                if (deleted > 0) {
+                    System.out.println("🧹 " + deleted + " Idempotency-Key kedaluwarsa dihapus");
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ Gagal membersihkan Idempotency-Key: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body != null ? body : new byte[0]);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        volatile long expiresAt; // diisi saat respons disimpan
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        // Entri yang masih diproses tidak pernah kedaluwarsa; pemiliknya selalu menyelesaikan atau melepasnya
+        boolean isExpired() {
+            return result.isDone() && expiresAt <= System.currentTimeMillis();
+        }
+    }
+
+    private static final class StoredResponse {
+        static final StoredResponse MISMATCH = new StoredResponse(422, null, null);
+        static final StoredResponse IN_PROGRESS = new StoredResponse(409, null, null);
+
+        final int status;
+        final String contentType;
+        final String body;
+
+        StoredResponse(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}
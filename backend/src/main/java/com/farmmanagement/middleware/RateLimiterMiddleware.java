@@ -2,42 +2,197 @@ package com.farmmanagement.middleware;
 
 import static spark.Spark.before;
 import static spark.Spark.halt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.config.AppConfig;
 
+/**
+ * Rate limiter token bucket per IP, dikonfigurasi per route.
+ * Bucket diperbarui lewat CAS (tanpa lock), jumlah key dibatasi dan bucket yang sudah penuh kembali
+ * (idle) dibuang berkala agar memori tidak bocor saat diserang dari banyak IP. Saat key store penuh
+ * bucket idle dibuang lebih awal; jika tetap penuh, IP baru dilewatkan tanpa dibatasi (fail open)
+ * daripada berbagi satu bucket yang membuat IP asing saling mengunci.
+ */
 public class RateLimiterMiddleware {
-    private static final int MAX_REQUESTS = 5;
-    private static final long TIME_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_KEYS_PER_RULE = AppConfig.getInt("RATE_LIMIT_MAX_KEYS", 100_000);
+    private static final long SWEEP_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    // Jarak minimum sweep tambahan saat key store penuh (sweep = scan semua key)
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
 
-    private static final ConcurrentHashMap<String, RequestInfo> requests = new ConcurrentHashMap<>();
+    private static final List<Rule> rules = new ArrayList<>();
+    private static ScheduledExecutorService sweeper;
 
     public static void register() {
-        before("/api/user/login", (req, res) -> {
-            String ip = req.ip();
-            long now = System.currentTimeMillis();
+        // Format konfigurasi: RATE_LIMIT_<NAMA>=<jumlah request>/<detik>, 0 = nonaktif
+        addRule("login", "/api/user/login", AppConfig.get("RATE_LIMIT_LOGIN", "5/60"));
+        addRule("register", "/api/user/register", AppConfig.get("RATE_LIMIT_REGISTER", "5/60"));
+        addRule("reset_password", "/api/user/reset-password", AppConfig.get("RATE_LIMIT_RESET_PASSWORD", "5/60"));
+        addRule("api", "/api/*", AppConfig.get("RATE_LIMIT_API", "0/1"));
 
-            requests.putIfAbsent(ip, new RequestInfo(0, now));
-            RequestInfo info = requests.get(ip);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(RateLimiterMiddleware::evictIdleBuckets,
+                SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
 
-            if (now - info.startTime > TIME_WINDOW_MS) {
-                info.startTime = now;
-                info.count = 0;
-            }
+    private static void addRule(String name, String path, String spec) {
+        String[] parts = spec.split("/");
+        int capacity;
+        long periodSeconds;
+        try {
+            capacity = Integer.parseInt(parts[0].trim());
+            periodSeconds = parts.length > 1 ? Long.parseLong(parts[1].trim()) : 60;
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid rate limit for " + name + ": " + spec);
+            return;
+        }
+        if (capacity <= 0 || periodSeconds <= 0) {
+            return; // rule nonaktif
+        }
+
+        Rule rule = new Rule(name, capacity, TimeUnit.SECONDS.toNanos(periodSeconds), MAX_KEYS_PER_RULE);
+        rules.add(rule);
 
-            if (info.count >= MAX_REQUESTS) {
+        before(path, (req, res) -> {
+            long retryAfterNanos = rule.tryAcquire(req.ip());
+            if (retryAfterNanos > 0) {
+                res.header("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos))));
                 halt(429, "Too many requests. Try again later.");
             }
-
-            info.count++;
         });
     }
 
-    private static class RequestInfo {
-        int count;
-        long startTime;
-        RequestInfo(int count, long startTime) {
-            this.count = count;
-            this.startTime = startTime;
+    private static void evictIdleBuckets() {
+        for (Rule rule : rules) {
+            rule.evictIdle(System.nanoTime());
+        }
+    }
+
+    // Statistik per rule untuk metrics: jumlah key, request diizinkan, ditolak dan dilewatkan (key store penuh)
+    public static List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Rule rule : rules) {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("rule", rule.name);
+            stat.put("keys", rule.buckets.size());
+            stat.put("allowed", rule.allowed.sum());
+            stat.put("rejected", rule.rejected.sum());
+            stat.put("untracked", rule.untracked.sum());
+            stats.add(stat);
+        }
+        return stats;
+    }
+
+    static class Rule {
+        final String name;
+        final int capacity;
+        final double tokensPerNano;
+        final long fullRefillNanos;
+        final int maxKeys;
+        final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+        final AtomicLong lastFullSweep;
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder untracked = new LongAdder();
+
+        Rule(String name, int capacity, long periodNanos, int maxKeys) {
+            this.name = name;
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / periodNanos;
+            this.fullRefillNanos = periodNanos;
+            this.maxKeys = maxKeys;
+            this.lastFullSweep = new AtomicLong(System.nanoTime() - FULL_SWEEP_INTERVAL_NANOS);
+        }
+
+        // 0 jika diizinkan, selain itu perkiraan nanodetik sampai token berikutnya tersedia
+        long tryAcquire(String key) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxKeys) {
+                    evictIdleWhenFull();
+                }
+                if (buckets.size() >= maxKeys) {
+                    // Tidak ada slot: lewatkan IP baru, IP yang sudah tercatat tetap dibatasi
+                    untracked.increment();
+                    return 0;
+                }
+                bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, System.nanoTime()));
+            }
+
+            long waitNanos = bucket.tryConsume(this);
+            if (waitNanos == 0) {
+                allowed.increment();
+            } else {
+                rejected.increment();
+            }
+            return waitNanos;
+        }
+
+        void evictIdle(long now) {
+            buckets.values().removeIf(bucket -> bucket.isIdle(now, this));
+        }
+
+        // Paling banyak satu thread per FULL_SWEEP_INTERVAL yang melakukan sweep, sisanya langsung lanjut
+        private void evictIdleWhenFull() {
+            long now = System.nanoTime();
+            long last = lastFullSweep.get();
+            if (now - last >= FULL_SWEEP_INTERVAL_NANOS && lastFullSweep.compareAndSet(last, now)) {
+                evictIdle(now);
+            }
+        }
+    }
+
+    private static class Bucket {
+        private final AtomicReference<State> state;
+
+        Bucket(double tokens, long now) {
+            this.state = new AtomicReference<>(new State(tokens, now));
+        }
+
+        long tryConsume(Rule rule) {
+            while (true) {
+                State current = state.get();
+                // Waktu dibaca setelah state: thread lain yang menang CAS lebih dulu tidak pernah punya
+                // updatedAt lebih baru, jadi selisih waktu tidak negatif (max hanya pengaman)
+                long now = Math.max(System.nanoTime(), current.updatedAt);
+                double tokens = Math.min(rule.capacity, current.tokens + (now - current.updatedAt) * rule.tokensPerNano);
+                if (tokens < 1) {
+                    return Math.max(1, (long) ((1 - tokens) / rule.tokensPerNano));
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return 0;
+                }
+            }
+        }
+
+        // Bucket yang sudah terisi penuh lagi sama dengan bucket baru, aman dibuang
+        boolean isIdle(long now, Rule rule) {
+            State current = state.get();
+            return now - current.updatedAt >= rule.fullRefillNanos;
+        }
+    }
+
+    private static class State {
+        final double tokens;
+        final long updatedAt;
+
+        State(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
         }
     }
 }
@@ -0,0 +1,119 @@
+package com.farmmanagement.model;
+
+import java.sql.Timestamp;
+
+public class Alert {
+    private int id_alert;
+    private Integer id_rule;
+    private int id_lahan;
+    private String metric;
+    private String kind;
+    private double nilai; // Nilai sensor, atau laju per jam untuk kind 'rate'
+    private double threshold;
+    private String status; // 'open' atau 'resolved'
+    private Timestamp tanggal; // Waktu data sensor yang memicu alert
+    private Timestamp resolved_at;
+    private String pesan;
+    private Timestamp created_at;
+
+    // Constructor kosong
+    public Alert() {
+    }
+
+    // Getters dan Setters
+    public int getId_alert() {
+        return id_alert;
+    }
+
+    public void setId_alert(int id_alert) {
+        this.id_alert = id_alert;
+    }
+
+    public Integer getId_rule() {
+        return id_rule;
+    }
+
+    public void setId_rule(Integer id_rule) {
+        this.id_rule = id_rule;
+    }
+
+    public int getId_lahan() {
+        return id_lahan;
+    }
+
+    public void setId_lahan(int id_lahan) {
+        this.id_lahan = id_lahan;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public double getNilai() {
+        return nilai;
+    }
+
+    public void setNilai(double nilai) {
+        this.nilai = nilai;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Timestamp getTanggal() {
+        return tanggal;
+    }
+
+    public void setTanggal(Timestamp tanggal) {
+        this.tanggal = tanggal;
+    }
+
+    public Timestamp getResolved_at() {
+        return resolved_at;
+    }
+
+    public void setResolved_at(Timestamp resolved_at) {
+        this.resolved_at = resolved_at;
+    }
+
+    public String getPesan() {
+        return pesan;
+    }
+
+    public void setPesan(String pesan) {
+        this.pesan = pesan;
+    }
+
+    public Timestamp getCreated_at() {
+        return created_at;
+    }
+
+    public void setCreated_at(Timestamp created_at) {
+        this.created_at = created_at;
+    }
+}
@@ -0,0 +1,130 @@
+package com.farmmanagement.model;
+
+import java.sql.Timestamp;
+import java.util.Objects;
+
+/**
+ * Aturan alert data sensor: batas min / max atau laju perubahan (rate, satuan per jam) untuk suhu / kelembaban.
+ * Berlaku untuk satu lahan, lahan yang sedang ditanami satu tanaman, atau semua lahan (keduanya null).
+ */
+public class AlertRule {
+    private int id_rule;
+    private Integer id_lahan;
+    private Integer id_tanaman;
+    private String metric; // 'suhu' atau 'kelembaban'
+    private String kind; // 'min', 'max' atau 'rate'
+    private double threshold;
+    private double hysteresis; // Alert selesai setelah nilai kembali melewati batas sejauh ini
+    private int rate_window_minutes = 60; // Khusus rate: pembanding = data tertua dalam jendela ini
+    private int dedup_minutes = 30; // Alert berulang untuk aturan + lahan yang sama dalam jendela ini tidak dikirim
+    private boolean aktif = true;
+    private String keterangan;
+    private Timestamp created_at;
+
+    // Constructor kosong
+    public AlertRule() {
+    }
+
+    // Getters dan Setters
+    public int getId_rule() {
+        return id_rule;
+    }
+
+    public void setId_rule(int id_rule) {
+        this.id_rule = id_rule;
+    }
+
+    public Integer getId_lahan() {
+        return id_lahan;
+    }
+
+    public void setId_lahan(Integer id_lahan) {
+        this.id_lahan = id_lahan;
+    }
+
+    public Integer getId_tanaman() {
+        return id_tanaman;
+    }
+
+    public void setId_tanaman(Integer id_tanaman) {
+        this.id_tanaman = id_tanaman;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    public void setHysteresis(double hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    public int getRate_window_minutes() {
+        return rate_window_minutes;
+    }
+
+    public void setRate_window_minutes(int rate_window_minutes) {
+        this.rate_window_minutes = rate_window_minutes;
+    }
+
+    public int getDedup_minutes() {
+        return dedup_minutes;
+    }
+
+    public void setDedup_minutes(int dedup_minutes) {
+        this.dedup_minutes = dedup_minutes;
+    }
+
+    public boolean isAktif() {
+        return aktif;
+    }
+
+    public void setAktif(boolean aktif) {
+        this.aktif = aktif;
+    }
+
+    public String getKeterangan() {
+        return keterangan;
+    }
+
+    public void setKeterangan(String keterangan) {
+        this.keterangan = keterangan;
+    }
+
+    public Timestamp getCreated_at() {
+        return created_at;
+    }
+
+    public void setCreated_at(Timestamp created_at) {
+        this.created_at = created_at;
+    }
+
+    // Lahan / tanaman / metric / kind sama: alert open dan state AlertEngine aturan ini masih berlaku
+    public boolean hasSameTarget(AlertRule other) {
+        return Objects.equals(id_lahan, other.id_lahan) && Objects.equals(id_tanaman, other.id_tanaman)
+            && Objects.equals(metric, other.metric) && Objects.equals(kind, other.kind);
+    }
+}
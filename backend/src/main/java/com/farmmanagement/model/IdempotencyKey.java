@@ -0,0 +1,58 @@
+package com.farmmanagement.model;
+
+/**
+ * Baris tabel idempotency_key: respons yang disimpan untuk satu Idempotency-Key.
+ * status_code null berarti request pertama masih diproses.
+ */
+public class IdempotencyKey {
+    private String scope_key;
+    private String fingerprint; // SHA-256 body request (hex)
+    private Integer status_code;
+    private String content_type;
+    private String body;
+
+    // Constructor kosong
+    public IdempotencyKey() {
+    }
+
+    // Getters dan Setters
+    public String getScope_key() {
+        return scope_key;
+    }
+
+    public void setScope_key(String scope_key) {
+        this.scope_key = scope_key;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Integer getStatus_code() {
+        return status_code;
+    }
+
+    public void setStatus_code(Integer status_code) {
+        this.status_code = status_code;
+    }
+
+    public String getContent_type() {
+        return content_type;
+    }
+
+    public void setContent_type(String content_type) {
+        this.content_type = content_type;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+}
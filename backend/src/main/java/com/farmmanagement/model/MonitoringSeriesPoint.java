@@ -0,0 +1,83 @@
+package com.farmmanagement.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Satu titik deret waktu monitoring: agregat satu bucket (atau satu bacaan mentah, count = 1)
+ */
+public class MonitoringSeriesPoint {
+    private Timestamp bucket;
+    private long sample_count;
+    private double suhu_min;
+    private double suhu_max;
+    private double suhu_avg;
+    private double kelembaban_min;
+    private double kelembaban_max;
+    private double kelembaban_avg;
+
+    public MonitoringSeriesPoint() {}
+
+    public Timestamp getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(Timestamp bucket) {
+        this.bucket = bucket;
+    }
+
+    public long getSample_count() {
+        return sample_count;
+    }
+
+    public void setSample_count(long sample_count) {
+        this.sample_count = sample_count;
+    }
+
+    public double getSuhu_min() {
+        return suhu_min;
+    }
+
+    public void setSuhu_min(double suhu_min) {
+        this.suhu_min = suhu_min;
+    }
+
+    public double getSuhu_max() {
+        return suhu_max;
+    }
+
+    public void setSuhu_max(double suhu_max) {
+        this.suhu_max = suhu_max;
+    }
+
+    public double getSuhu_avg() {
+        return suhu_avg;
+    }
+
+    public void setSuhu_avg(double suhu_avg) {
+        this.suhu_avg = suhu_avg;
+    }
+
+    public double getKelembaban_min() {
+        return kelembaban_min;
+    }
+
+    public void setKelembaban_min(double kelembaban_min) {
+        this.kelembaban_min = kelembaban_min;
+    }
+
+    public double getKelembaban_max() {
+        return kelembaban_max;
+    }
+
+    public void setKelembaban_max(double kelembaban_max) {
+        this.kelembaban_max = kelembaban_max;
+    }
+
+    public double getKelembaban_avg() {
+        return kelembaban_avg;
+    }
+
+    public void setKelembaban_avg(double kelembaban_avg) {
+        this.kelembaban_avg = kelembaban_avg;
+    }
+}
@@ -0,0 +1,60 @@
+package com.farmmanagement.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Resolusi agregat monitoring_rollup (5 menit, 1 jam, 1 hari).
+ * Bucket dihitung di Java (insert) dan di SQL (rebuild) dengan aturan yang sama: awal menit ke-5 / jam / hari
+ * menurut jam dinding kolom tanggal.
+ */
+public enum RollupResolution {
+    FIVE_MINUTES("5m", 300, "date_trunc('hour', tanggal) + floor(date_part('minute', tanggal) / 5) * interval '5 minutes'"),
+    HOUR("1h", 3_600, "date_trunc('hour', tanggal)"),
+    DAY("1d", 86_400, "date_trunc('day', tanggal)");
+
+    private final String label;
+    private final int seconds;
+    private final String bucketSql;
+
+    RollupResolution(String label, int seconds, String bucketSql) {
+        this.label = label;
+        this.seconds = seconds;
+        this.bucketSql = bucketSql;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    // Ekspresi SQL awal bucket untuk kolom tanggal
+    public String getBucketSql() {
+        return bucketSql;
+    }
+
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        switch (this) {
+            case FIVE_MINUTES:
+                LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+                return hour.plusMinutes(time.getMinute() / 5 * 5L);
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            default:
+                return time.truncatedTo(ChronoUnit.DAYS);
+        }
+    }
+
+    // null jika label tidak dikenal
+    public static RollupResolution fromLabel(String label) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.label.equalsIgnoreCase(label)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.farmmanagement.model;
+
+/**
+ * Hasil alokasi stok tanaman ke lahan (lihat TanamanLahanRepository.allocate).
+ */
+public class TanamanAllocationResult {
+
+    public enum Status {
+        CREATED,            // tanaman_lahan dibuat dan stok berkurang
+        DUPLICATE,          // tanaman sudah ada di lahan tersebut
+        TANAMAN_NOT_FOUND,  // id_tanaman tidak ada
+        INSUFFICIENT_STOCK  // stok kurang dari jumlah yang diminta
+    }
+
+    private final Status status;
+    private final int idTl;
+    private final int stokTersisa;
+
+    private TanamanAllocationResult(Status status, int idTl, int stokTersisa) {
+        this.status = status;
+        this.idTl = idTl;
+        this.stokTersisa = stokTersisa;
+    }
+
+    public static TanamanAllocationResult created(int idTl, int stokTersisa) {
+        return new TanamanAllocationResult(Status.CREATED, idTl, stokTersisa);
+    }
+
+    public static TanamanAllocationResult duplicate() {
+        return new TanamanAllocationResult(Status.DUPLICATE, 0, 0);
+    }
+
+    public static TanamanAllocationResult tanamanNotFound() {
+        return new TanamanAllocationResult(Status.TANAMAN_NOT_FOUND, 0, 0);
+    }
+
+    public static TanamanAllocationResult insufficientStock(int stokTersedia) {
+        return new TanamanAllocationResult(Status.INSUFFICIENT_STOCK, 0, stokTersedia);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // id_tl baru, hanya valid jika status CREATED
+    public int getIdTl() {
+        return idTl;
+    }
+
+    // Stok tanaman setelah alokasi (CREATED) atau stok yang tersedia (INSUFFICIENT_STOCK)
+    public int getStokTersisa() {
+        return stokTersisa;
+    }
+}
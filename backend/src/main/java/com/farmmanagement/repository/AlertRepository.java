@@ -0,0 +1,76 @@
+package com.farmmanagement.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.sql2o.Connection;
+import org.sql2o.Query;
+
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.Alert;
+import com.farmmanagement.util.TimeRange;
+
+public class AlertRepository {
+
+    // Daftar alert dalam rentang waktu, terbaru dulu; status / lahan opsional
+    public List<Alert> find(TimeRange range, String status, Integer idLahan, int limit) {
+        String sql = "SELECT * FROM alert WHERE " + range.condition("tanggal") +
+                     (status != null ? " AND status = :status" : "") +
+                     (idLahan != null ? " AND id_lahan = :id_lahan" : "") +
+                     " ORDER BY tanggal DESC, id_alert DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = range.bind(conn.createQuery(sql))
+                               .addParameter("limit", limit);
+            if (status != null) query.addParameter("status", status);
+            if (idLahan != null) query.addParameter("id_lahan", idLahan.intValue());
+            return QueryTimer.fetch("AlertRepository.find", query, Alert.class);
+        }
+    }
+
+    // Alert yang masih open, untuk memulihkan state AlertEngine setelah restart
+    public List<Alert> findOpen() {
+        String sql = "SELECT * FROM alert WHERE status = 'open' AND id_rule IS NOT NULL";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return QueryTimer.fetch("AlertRepository.findOpen", conn.createQuery(sql), Alert.class);
+        }
+    }
+
+    // Simpan alert baru; id_alert hasil generate diisi ke objek
+    public boolean insert(Alert alert) {
+        String sql = "INSERT INTO alert (id_rule, id_lahan, metric, kind, nilai, threshold, status, tanggal, pesan) " +
+                     "VALUES (:id_rule, :id_lahan, :metric, :kind, :nilai, :threshold, :status, :tanggal, :pesan)";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_rule", alert.getId_rule())
+                              .addParameter("id_lahan", alert.getId_lahan())
+                              .addParameter("metric", alert.getMetric())
+                              .addParameter("kind", alert.getKind())
+                              .addParameter("nilai", alert.getNilai())
+                              .addParameter("threshold", alert.getThreshold())
+                              .addParameter("status", alert.getStatus())
+                              .addParameter("tanggal", alert.getTanggal())
+                              .addParameter("pesan", alert.getPesan());
+            Integer id = QueryTimer.execute("AlertRepository.insert", query,
+                    q -> q.executeUpdate().getKey(Integer.class));
+            if (id == null) {
+                return false;
+            }
+            alert.setId_alert(id);
+            return true;
+        }
+    }
+
+    // Tutup alert open untuk aturan + lahan; mengembalikan jumlah alert yang ditutup
+    public int resolveOpen(int idRule, int idLahan, Timestamp resolvedAt) {
+        String sql = "UPDATE alert SET status = 'resolved', resolved_at = :resolved_at " +
+                     "WHERE id_rule = :id_rule AND id_lahan = :id_lahan AND status = 'open'";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_rule", idRule)
+                              .addParameter("id_lahan", idLahan)
+                              .addParameter("resolved_at", resolvedAt);
+            return QueryTimer.update("AlertRepository.resolveOpen", query);
+        }
+    }
+}
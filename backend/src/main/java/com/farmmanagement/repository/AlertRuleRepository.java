@@ -0,0 +1,113 @@
+package com.farmmanagement.repository;
+
+import java.util.List;
+
+import org.sql2o.Connection;
+import org.sql2o.Query;
+
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.AlertRule;
+
+public class AlertRuleRepository {
+
+    // Ambil semua aturan alert
+    public List<AlertRule> findAll() {
+        String sql = "SELECT * FROM alert_rule ORDER BY id_rule";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return QueryTimer.fetch("AlertRuleRepository.findAll", conn.createQuery(sql), AlertRule.class);
+        }
+    }
+
+    // Aturan yang aktif, dimuat ke memori oleh AlertEngine
+    public List<AlertRule> findActive() {
+        String sql = "SELECT * FROM alert_rule WHERE aktif ORDER BY id_rule";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return QueryTimer.fetch("AlertRuleRepository.findActive", conn.createQuery(sql), AlertRule.class);
+        }
+    }
+
+    // Ambil aturan berdasarkan ID
+    public AlertRule findById(int id) {
+        String sql = "SELECT * FROM alert_rule WHERE id_rule = :id";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("AlertRuleRepository.findById", query, AlertRule.class);
+        }
+    }
+
+    // Tambah aturan baru; id_rule hasil generate diisi ke objek
+    public boolean insert(AlertRule rule) {
+        String sql = "INSERT INTO alert_rule (id_lahan, id_tanaman, metric, kind, threshold, hysteresis, " +
+                     "rate_window_minutes, dedup_minutes, aktif, keterangan) " +
+                     "VALUES (:id_lahan, :id_tanaman, :metric, :kind, :threshold, :hysteresis, " +
+                     ":rate_window_minutes, :dedup_minutes, :aktif, :keterangan)";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = bindRule(conn.createQuery(sql), rule);
+            Integer id = QueryTimer.execute("AlertRuleRepository.insert", query,
+                    q -> q.executeUpdate().getKey(Integer.class));
+            if (id == null) {
+                return false;
+            }
+            rule.setId_rule(id);
+            return true;
+        }
+    }
+
+    // Update aturan berdasarkan ID. Jika aturan dinonaktifkan atau targetnya berubah (lahan / tanaman / metric / kind),
+    // alert yang masih open untuk aturan ini ditutup di transaksi yang sama (seperti delete)
+    public boolean update(AlertRule rule) {
+        String sql = "UPDATE alert_rule SET id_lahan = :id_lahan, id_tanaman = :id_tanaman, metric = :metric, " +
+                     "kind = :kind, threshold = :threshold, hysteresis = :hysteresis, " +
+                     "rate_window_minutes = :rate_window_minutes, dedup_minutes = :dedup_minutes, " +
+                     "aktif = :aktif, keterangan = :keterangan WHERE id_rule = :id_rule";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            AlertRule previous = QueryTimer.fetchFirst("AlertRuleRepository.update.previous",
+                    conn.createQuery("SELECT * FROM alert_rule WHERE id_rule = :id FOR UPDATE")
+                        .addParameter("id", rule.getId_rule()), AlertRule.class);
+            if (previous == null) {
+                return false;
+            }
+            if (!rule.isAktif() || !rule.hasSameTarget(previous)) {
+                Query resolve = conn.createQuery("UPDATE alert SET status = 'resolved', resolved_at = now() " +
+                                                 "WHERE id_rule = :id AND status = 'open'")
+                                    .addParameter("id", rule.getId_rule());
+                QueryTimer.update("AlertRuleRepository.update.resolve", resolve);
+            }
+            Query query = bindRule(conn.createQuery(sql), rule)
+                              .addParameter("id_rule", rule.getId_rule());
+            int result = QueryTimer.update("AlertRuleRepository.update", query);
+            conn.commit();
+            return result > 0;
+        }
+    }
+
+    // Hapus aturan; alert yang masih open untuk aturan ini ditutup di transaksi yang sama
+    public boolean delete(int id) {
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query resolve = conn.createQuery("UPDATE alert SET status = 'resolved', resolved_at = now() " +
+                                             "WHERE id_rule = :id AND status = 'open'")
+                                .addParameter("id", id);
+            QueryTimer.update("AlertRuleRepository.delete.resolve", resolve);
+            Query query = conn.createQuery("DELETE FROM alert_rule WHERE id_rule = :id")
+                              .addParameter("id", id);
+            int result = QueryTimer.update("AlertRuleRepository.delete", query);
+            conn.commit();
+            return result > 0;
+        }
+    }
+
+    private Query bindRule(Query query, AlertRule rule) {
+        return query.addParameter("id_lahan", rule.getId_lahan())
+                    .addParameter("id_tanaman", rule.getId_tanaman())
+                    .addParameter("metric", rule.getMetric())
+                    .addParameter("kind", rule.getKind())
+                    .addParameter("threshold", rule.getThreshold())
+                    .addParameter("hysteresis", rule.getHysteresis())
+                    .addParameter("rate_window_minutes", rule.getRate_window_minutes())
+                    .addParameter("dedup_minutes", rule.getDedup_minutes())
+                    .addParameter("aktif", rule.isAktif())
+                    .addParameter("keterangan", rule.getKeterangan());
+    }
+}
@@ -1,11 +1,18 @@
 package com.farmmanagement.repository;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.ResultSetIterable;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.HasilPanen;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.RowSink;
+import com.farmmanagement.util.TimeRange;
 
 public class HasilPanenRepository {
 
@@ -14,7 +21,63 @@ public class HasilPanenRepository {
         String sql = "SELECT * FROM hasil_panen";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
             // Mapping otomatis dari kolom DB ke field model HasilPanen
-            return conn.createQuery(sql).executeAndFetch(HasilPanen.class);
+            return QueryTimer.fetch("HasilPanenRepository.findAll", conn.createQuery(sql), HasilPanen.class);
+        }
+    }
+
+    // Stream satu halaman (keyset pagination) lewat cursor JDBC: baris dibaca per fetch size,
+    // tidak pernah ditampung utuh di memori. Probe cursor dan data memakai snapshot yang sama.
+    public <R> R streamPage(PageRequest page, PageRequest.RowHandler<HasilPanen, R> handler) throws IOException {
+        String condition = page.keysetCondition("id_hasil");
+        String where = condition != null ? " WHERE " + condition : "";
+        String probeSql = "SELECT id_hasil FROM hasil_panen" + where + page.probeOrderAndOffset("id_hasil");
+        String sql = "SELECT * FROM hasil_panen" + where + page.orderAndLimit("id_hasil");
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction(java.sql.Connection.TRANSACTION_REPEATABLE_READ)) {
+            String nextCursor = page.nextCursor(QueryTimer.scalarList("HasilPanenRepository.streamPage.probe",
+                    page.bindProbe(conn.createQuery(probeSql)), Integer.class));
+            R result;
+            try (ResultSetIterable<HasilPanen> rows = QueryTimer.fetchLazy("HasilPanenRepository.streamPage",
+                    page.bind(conn.createQuery(sql)), HasilPanen.class)) {
+                result = handler.handle(rows, nextCursor);
+            }
+            conn.commit();
+            return result;
+        }
+    }
+
+    // Hasil panen dengan tanggal_panen dalam rentang (opsional satu lahan) lewat cursor JDBC, untuk export
+    public void streamRange(TimeRange range, Integer idLahan, RowSink<HasilPanen> sink) throws IOException {
+        String sql = "SELECT * FROM hasil_panen WHERE " + range.condition("tanggal_panen") +
+                     (idLahan != null ? " AND id_lahan = :id_lahan" : "") + " ORDER BY tanggal_panen, id_hasil";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = range.bind(conn.createQuery(sql));
+            if (idLahan != null) {
+                query.addParameter("id_lahan", idLahan.intValue());
+            }
+            try (ResultSetIterable<HasilPanen> rows = QueryTimer.fetchLazy("HasilPanenRepository.streamRange",
+                    query, HasilPanen.class)) {
+                sink.accept(rows);
+            }
+            conn.commit();
+        }
+    }
+
+    // Hitung jumlah data hasil panen
+    public int count() {
+        String sql = "SELECT COUNT(*) FROM hasil_panen";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Integer count = QueryTimer.scalar("HasilPanenRepository.count", conn.createQuery(sql), Integer.class);
+            return count != null ? count : 0;
+        }
+    }
+
+    // Ambil data hasil panen terbaru (ORDER BY id_hasil DESC LIMIT n)
+    public List<HasilPanen> findRecent(int limit) {
+        String sql = "SELECT * FROM hasil_panen ORDER BY id_hasil DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("HasilPanenRepository.findRecent", query, HasilPanen.class);
         }
     }
 
@@ -22,9 +85,9 @@ public class HasilPanenRepository {
     public HasilPanen findById(int id) {
         String sql = "SELECT * FROM hasil_panen WHERE id_hasil = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(HasilPanen.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("HasilPanenRepository.findById", query, HasilPanen.class);
         }
     }
 
@@ -35,17 +98,16 @@ public class HasilPanenRepository {
                      "VALUES (:id_tanaman, :id_lahan, :id_pengawas, :tanggal_panen, " +
                      ":kuantitas, :kualitas, :harga_satuan, :status)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_tanaman", hasilPanen.getId_tanaman())
-                             .addParameter("id_lahan", hasilPanen.getId_lahan())
-                             .addParameter("id_pengawas", hasilPanen.getId_pengawas())
-                             .addParameter("tanggal_panen", hasilPanen.getTanggal_panen())
-                             .addParameter("kuantitas", hasilPanen.getKuantitas())
-                             .addParameter("kualitas", hasilPanen.getKualitas())
-                             .addParameter("harga_satuan", hasilPanen.getHarga_satuan())
-                             .addParameter("status", hasilPanen.getStatus())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_tanaman", hasilPanen.getId_tanaman())
+                              .addParameter("id_lahan", hasilPanen.getId_lahan())
+                              .addParameter("id_pengawas", hasilPanen.getId_pengawas())
+                              .addParameter("tanggal_panen", hasilPanen.getTanggal_panen())
+                              .addParameter("kuantitas", hasilPanen.getKuantitas())
+                              .addParameter("kualitas", hasilPanen.getKualitas())
+                              .addParameter("harga_satuan", hasilPanen.getHarga_satuan())
+                              .addParameter("status", hasilPanen.getStatus());
+            int result = QueryTimer.update("HasilPanenRepository.insert", query);
             return result > 0;
         }
     }
@@ -59,18 +121,17 @@ public class HasilPanenRepository {
                      "kualitas = :kualitas, harga_satuan = :harga_satuan, status = :status " +
                      "WHERE id_hasil = :id_hasil";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_hasil", hasilPanen.getId_hasil())
-                             .addParameter("id_tanaman", hasilPanen.getId_tanaman())
-                             .addParameter("id_lahan", hasilPanen.getId_lahan())
-                             .addParameter("id_pengawas", hasilPanen.getId_pengawas())
-                             .addParameter("tanggal_panen", hasilPanen.getTanggal_panen())
-                             .addParameter("kuantitas", hasilPanen.getKuantitas())
-                             .addParameter("kualitas", hasilPanen.getKualitas())
-                             .addParameter("harga_satuan", hasilPanen.getHarga_satuan())
-                             .addParameter("status", hasilPanen.getStatus())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_hasil", hasilPanen.getId_hasil())
+                              .addParameter("id_tanaman", hasilPanen.getId_tanaman())
+                              .addParameter("id_lahan", hasilPanen.getId_lahan())
+                              .addParameter("id_pengawas", hasilPanen.getId_pengawas())
+                              .addParameter("tanggal_panen", hasilPanen.getTanggal_panen())
+                              .addParameter("kuantitas", hasilPanen.getKuantitas())
+                              .addParameter("kualitas", hasilPanen.getKualitas())
+                              .addParameter("harga_satuan", hasilPanen.getHarga_satuan())
+                              .addParameter("status", hasilPanen.getStatus());
+            int result = QueryTimer.update("HasilPanenRepository.update", query);
             return result > 0;
         }
     }
@@ -79,10 +140,9 @@ public class HasilPanenRepository {
     public boolean delete(int id) {
         String sql = "DELETE FROM hasil_panen WHERE id_hasil = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("HasilPanenRepository.delete", query);
             return result > 0;
         }
     }
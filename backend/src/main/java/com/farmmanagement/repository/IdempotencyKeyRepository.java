@@ -0,0 +1,75 @@
+package com.farmmanagement.repository;
+
+import org.sql2o.Connection;
+import org.sql2o.Query;
+
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.IdempotencyKey;
+
+public class IdempotencyKeyRepository {
+
+    // Klaim key untuk diproses instance ini. Berhasil jika key belum ada atau sudah kedaluwarsa
+    // (termasuk klaim in-flight yang ditinggal instance mati); satu statement, jadi aman antar instance.
+    public boolean claim(String scopeKey, String fingerprint, long inFlightSeconds) {
+        String sql = "INSERT INTO idempotency_key (scope_key, fingerprint, expires_at) " +
+                     "VALUES (:scope_key, :fingerprint, now() + make_interval(secs => :seconds)) " +
+                     "ON CONFLICT (scope_key) DO UPDATE SET fingerprint = EXCLUDED.fingerprint, status_code = NULL, " +
+                     "content_type = NULL, body = NULL, created_at = now(), expires_at = EXCLUDED.expires_at " +
+                     "WHERE idempotency_key.expires_at <= now()";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql, false)
+                              .addParameter("scope_key", scopeKey)
+                              .addParameter("fingerprint", fingerprint)
+                              .addParameter("seconds", (double) inFlightSeconds);
+            return QueryTimer.update("IdempotencyKeyRepository.claim", query) > 0;
+        }
+    }
+
+    // Key yang masih berlaku (selesai atau masih diproses), null jika tidak ada
+    public IdempotencyKey find(String scopeKey) {
+        String sql = "SELECT scope_key, fingerprint, status_code, content_type, body FROM idempotency_key " +
+                     "WHERE scope_key = :scope_key AND expires_at > now()";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("scope_key", scopeKey);
+            return QueryTimer.fetchFirst("IdempotencyKeyRepository.find", query, IdempotencyKey.class);
+        }
+    }
+
+    // Simpan respons request pertama; berlaku ttlSeconds sejak selesai
+    public void complete(String scopeKey, String fingerprint, int statusCode, String contentType, String body, long ttlSeconds) {
+        String sql = "UPDATE idempotency_key SET status_code = :status_code, content_type = :content_type, body = :body, " +
+                     "expires_at = now() + make_interval(secs => :seconds) " +
+                     "WHERE scope_key = :scope_key AND fingerprint = :fingerprint AND status_code IS NULL";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql, false)
+                              .addParameter("scope_key", scopeKey)
+                              .addParameter("fingerprint", fingerprint)
+                              .addParameter("status_code", statusCode)
+                              .addParameter("content_type", contentType)
+                              .addParameter("body", body)
+                              .addParameter("seconds", (double) ttlSeconds);
+            QueryTimer.update("IdempotencyKeyRepository.complete", query);
+        }
+    }
+
+    // Lepas klaim yang gagal (error / 5xx) supaya retry client diproses ulang
+    public void release(String scopeKey, String fingerprint) {
+        String sql = "DELETE FROM idempotency_key WHERE scope_key = :scope_key AND fingerprint = :fingerprint AND status_code IS NULL";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql, false)
+                              .addParameter("scope_key", scopeKey)
+                              .addParameter("fingerprint", fingerprint);
+            QueryTimer.update("IdempotencyKeyRepository.release", query);
+        }
+    }
+
+    // Hapus key kedaluwarsa, dipanggil berkala
+    public int deleteExpired() {
+        String sql = "DELETE FROM idempotency_key WHERE expires_at <= now()";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return QueryTimer.update("IdempotencyKeyRepository.deleteExpired", conn.createQuery(sql, false));
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.farmmanagement.repository;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.Lahan;
+import com.farmmanagement.util.CacheInvalidationBus;
 
 public class LahanRepository {
 
@@ -14,7 +17,7 @@ public class LahanRepository {
         String sql = "SELECT * FROM lahan";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
             // Mapping otomatis dari kolom DB ke field model Lahan
-            return conn.createQuery(sql).executeAndFetch(Lahan.class);
+            return QueryTimer.fetch("LahanRepository.findAll", conn.createQuery(sql), Lahan.class);
         }
     }
 
@@ -22,9 +25,9 @@ public class LahanRepository {
     public Lahan findById(int id) {
         String sql = "SELECT * FROM lahan WHERE id_lahan = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(Lahan.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("LahanRepository.findById", query, Lahan.class);
         }
     }
 
@@ -32,13 +35,12 @@ public class LahanRepository {
     public boolean save(Lahan lahan) {
         String sql = "INSERT INTO lahan (nama_lahan, luas, lokasi, id_pengawas) VALUES (:nama_lahan, :luas, :lokasi, :id_pengawas)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("nama_lahan", lahan.getNama_lahan())
-                             .addParameter("luas", lahan.getLuas())
-                             .addParameter("lokasi", lahan.getLokasi())
-                             .addParameter("id_pengawas", lahan.getId_pengawas())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("nama_lahan", lahan.getNama_lahan())
+                              .addParameter("luas", lahan.getLuas())
+                              .addParameter("lokasi", lahan.getLokasi())
+                              .addParameter("id_pengawas", lahan.getId_pengawas());
+            int result = QueryTimer.update("LahanRepository.save", query);
             return result > 0;
         }
     }
@@ -46,15 +48,18 @@ public class LahanRepository {
     //  Update lahan berdasarkan ID
     public boolean update(Lahan lahan) {
         String sql = "UPDATE lahan SET nama_lahan = :nama_lahan, luas = :luas, lokasi = :lokasi, id_pengawas = :id_pengawas WHERE id_lahan = :id_lahan";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_lahan", lahan.getId_lahan())
-                             .addParameter("nama_lahan", lahan.getNama_lahan())
-                             .addParameter("luas", lahan.getLuas())
-                             .addParameter("lokasi", lahan.getLokasi())
-                             .addParameter("id_pengawas", lahan.getId_pengawas())
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_lahan", lahan.getId_lahan())
+                              .addParameter("nama_lahan", lahan.getNama_lahan())
+                              .addParameter("luas", lahan.getLuas())
+                              .addParameter("lokasi", lahan.getLokasi())
+                              .addParameter("id_pengawas", lahan.getId_pengawas());
+            int result = QueryTimer.update("LahanRepository.update", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.LAHAN, lahan.getId_lahan());
+            }
+            conn.commit();
             return result > 0;
         }
     }
@@ -62,11 +67,14 @@ public class LahanRepository {
     //  Hapus lahan berdasarkan ID
     public boolean delete(int id) {
         String sql = "DELETE FROM lahan WHERE id_lahan = :id";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("LahanRepository.delete", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.LAHAN, id);
+            }
+            conn.commit();
             return result > 0;
         }
     }
@@ -0,0 +1,252 @@
+package com.farmmanagement.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.MonitoringSegment;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.TimeRange;
+
+/**
+ * Data monitoring yang sudah diarsip ke file kolumnar (MonitoringSegment) di MONITORING_ARCHIVE_DIR,
+ * satu file per lahan per bulan: <dir>/yyyy-MM/lahan-<id>.seg. Katalog file dimuat lalu dipertahankan
+ * di memori (mapping read-only), jadi query arsip tidak menyentuh database. Setiap putaran arsip mengirim
+ * invalidasi lewat CacheInvalidationBus, dan semua node memuat ulang katalog saat query berikutnya.
+ */
+public class MonitoringArchiveRepository {
+    public static final Comparator<Monitoring> BY_TANGGAL =
+        Comparator.comparing(Monitoring::getTanggal).thenComparingInt(Monitoring::getId_monitor);
+
+    private static final Path DIRECTORY = Paths.get(AppConfig.get("MONITORING_ARCHIVE_DIR", "data/monitoring-archive"));
+    private static final Pattern MONTH_DIR = Pattern.compile("(\\d{4})-(\\d{2})");
+    private static final Pattern SEGMENT_FILE = Pattern.compile("lahan-(\\d+)\\.seg");
+
+    // bulan -> (id_lahan -> segment); null sampai direktori pertama kali dibaca
+    private static volatile NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> catalog;
+
+    static {
+        // Bulan yang diarsip node lain (direktori bersama) baru terlihat setelah katalog dibaca ulang
+        CacheInvalidationBus.subscribe(CacheInvalidationBus.MONITORING_ARCHIVE, MonitoringArchiveRepository::invalidateCatalog);
+    }
+
+    // Semua baris arsip dalam rentang (opsional satu lahan), urut tanggal, maksimal limit
+    public List<Monitoring> findByRange(TimeRange range, Integer idLahan, int limit) {
+        List<Monitoring> result = new ArrayList<>();
+        for (Map<Integer, MonitoringSegment> month : months(range).values()) {
+            if (idLahan != null) {
+                MonitoringSegment segment = month.get(idLahan);
+                if (segment == null) continue;
+                // Bulan diproses berurutan, jadi satu lahan sudah urut dan bisa berhenti di limit
+                segment.scan(range.getFrom().getTime(), range.getTo().getTime(), Long.MIN_VALUE, Long.MAX_VALUE,
+                        (id, lahan, tanggal, suhu, kelembaban) -> {
+                            result.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal)));
+                            return result.size() < limit;
+                        });
+                if (result.size() >= limit) break;
+            } else {
+                for (MonitoringSegment segment : month.values()) {
+                    segment.scan(range.getFrom().getTime(), range.getTo().getTime(), Long.MIN_VALUE, Long.MAX_VALUE,
+                            (id, lahan, tanggal, suhu, kelembaban) ->
+                                result.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal))));
+                }
+            }
+        }
+        if (idLahan == null) {
+            result.sort(BY_TANGGAL);
+        }
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // Satu halaman keyset (urut id_monitor) dari arsip, maksimal limit baris
+    public List<Monitoring> findPage(PageRequest page, TimeRange range, int limit) {
+        boolean descending = page.isDescending();
+        Integer afterId = page.getAfterId();
+        long minId = !descending && afterId != null ? afterId : Long.MIN_VALUE;
+        long maxId = descending && afterId != null ? afterId : Long.MAX_VALUE;
+        Comparator<Monitoring> pageOrder = Comparator.comparingInt(Monitoring::getId_monitor);
+        if (descending) pageOrder = pageOrder.reversed();
+
+        // Heap berisi `limit` baris terbaik sejauh ini; puncaknya baris yang paling "jauh" di urutan halaman
+        PriorityQueue<Monitoring> best = new PriorityQueue<>(pageOrder.reversed());
+        for (Map<Integer, MonitoringSegment> month : months(range).values()) {
+            for (MonitoringSegment segment : month.values()) {
+                segment.scan(range.getFrom().getTime(), range.getTo().getTime(), minId, maxId,
+                        (id, lahan, tanggal, suhu, kelembaban) -> {
+                            if (best.size() < limit) {
+                                best.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal)));
+                            } else if (descending ? id > best.peek().getId_monitor() : id < best.peek().getId_monitor()) {
+                                best.poll();
+                                best.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal)));
+                            }
+                            return true;
+                        });
+            }
+        }
+        List<Monitoring> result = new ArrayList<>(best);
+        result.sort(pageOrder);
+        return result;
+    }
+
+    // Baris arsip dalam rentang urut (tanggal, id_monitor) tanpa menampung semuanya di memori:
+    // bulan diproses berurutan, di dalam satu bulan cursor semua file lahan digabung (k-way merge)
+    public Iterator<Monitoring> iterate(TimeRange range, Integer idLahan) {
+        Iterator<Map<Integer, MonitoringSegment>> months = months(range).values().iterator();
+        long from = range.getFrom().getTime();
+        long to = range.getTo().getTime();
+        PriorityQueue<MonitoringSegment.Cursor> cursors = new PriorityQueue<>(
+            Comparator.comparingLong(MonitoringSegment.Cursor::getTanggal).thenComparingInt(MonitoringSegment.Cursor::getIdMonitor));
+        return new Iterator<Monitoring>() {
+            @Override
+            public boolean hasNext() {
+                while (cursors.isEmpty() && months.hasNext()) {
+                    Map<Integer, MonitoringSegment> month = months.next();
+                    for (MonitoringSegment segment : month.values()) {
+                        if (idLahan != null && segment.getIdLahan() != idLahan) continue;
+                        MonitoringSegment.Cursor cursor = segment.cursor(from, to);
+                        if (cursor.next()) cursors.add(cursor);
+                    }
+                }
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public Monitoring next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                MonitoringSegment.Cursor cursor = cursors.poll();
+                Monitoring row = cursor.toMonitoring();
+                if (cursor.next()) cursors.add(cursor);
+                return row;
+            }
+        };
+    }
+
+    // Isi lengkap satu file (untuk digabung dengan data terlambat sebelum ditulis ulang)
+    public List<Monitoring> findSegment(YearMonth month, int idLahan) {
+        MonitoringSegment segment = catalog().getOrDefault(month, Map.of()).get(idLahan);
+        List<Monitoring> result = new ArrayList<>();
+        if (segment != null) {
+            segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE,
+                    (id, lahan, tanggal, suhu, kelembaban) ->
+                        result.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal))));
+        }
+        return result;
+    }
+
+    // Tulis (atau ganti) file satu lahan satu bulan; rows harus urut BY_TANGGAL
+    public void writeSegment(YearMonth month, int idLahan, List<Monitoring> rows) {
+        Path path = DIRECTORY.resolve(String.format("%04d-%02d", month.getYear(), month.getMonthValue()))
+                             .resolve("lahan-" + idLahan + ".seg");
+        try {
+            MonitoringSegment.write(path, idLahan, rows);
+            MonitoringSegment segment = MonitoringSegment.open(path);
+            catalog().computeIfAbsent(month, m -> new ConcurrentHashMap<>()).put(idLahan, segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis arsip monitoring " + path, e);
+        }
+    }
+
+    public boolean overlaps(TimeRange range) {
+        return !months(range).isEmpty();
+    }
+
+    // Akhir bulan arsip terbaru (eksklusif), null jika arsip kosong
+    public Timestamp getArchivedUntil() {
+        NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> months = catalog();
+        if (months.isEmpty()) return null;
+        return Timestamp.valueOf(months.lastKey().plusMonths(1).atDay(1).atStartOfDay());
+    }
+
+    public Map<String, Long> getStats() {
+        long segments = 0;
+        long rows = 0;
+        long bytes = 0;
+        NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> months = catalog();
+        for (Map<Integer, MonitoringSegment> month : months.values()) {
+            for (MonitoringSegment segment : month.values()) {
+                segments++;
+                rows += segment.getRows();
+                bytes += segment.getBytes();
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("months", (long) months.size());
+        stats.put("segments", segments);
+        stats.put("rows", rows);
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    // Bulan yang beririsan dengan rentang (to eksklusif)
+    private NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> months(TimeRange range) {
+        YearMonth first = YearMonth.from(range.getFrom().toLocalDateTime());
+        YearMonth last = YearMonth.from(new Timestamp(range.getTo().getTime() - 1).toLocalDateTime());
+        return catalog().subMap(first, true, last, true);
+    }
+
+    // Katalog dibaca ulang dari direktori saat pertama kali dipakai lagi
+    public static void invalidateCatalog() {
+        catalog = null;
+    }
+
+    private static NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> catalog() {
+        NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> current = catalog;
+        if (current == null) {
+            synchronized (MonitoringArchiveRepository.class) {
+                if (catalog == null) {
+                    catalog = loadCatalog();
+                }
+                current = catalog;
+            }
+        }
+        return current;
+    }
+
+    private static NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> loadCatalog() {
+        NavigableMap<YearMonth, Map<Integer, MonitoringSegment>> loaded = new ConcurrentSkipListMap<>();
+        if (!Files.isDirectory(DIRECTORY)) {
+            return loaded;
+        }
+        try (DirectoryStream<Path> monthDirs = Files.newDirectoryStream(DIRECTORY)) {
+            for (Path monthDir : monthDirs) {
+                Matcher monthMatcher = MONTH_DIR.matcher(monthDir.getFileName().toString());
+                if (!monthMatcher.matches() || !Files.isDirectory(monthDir)) continue;
+                YearMonth month = YearMonth.of(Integer.parseInt(monthMatcher.group(1)), Integer.parseInt(monthMatcher.group(2)));
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(monthDir)) {
+                    for (Path file : files) {
+                        Matcher fileMatcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                        if (!fileMatcher.matches()) continue; // termasuk .tmp sisa penulisan yang gagal
+                        MonitoringSegment segment = MonitoringSegment.open(file);
+                        if (segment.isEmpty()) continue;
+                        loaded.computeIfAbsent(month, m -> new ConcurrentHashMap<>())
+                              .put(Integer.parseInt(fileMatcher.group(1)), segment);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal membaca direktori arsip monitoring " + DIRECTORY, e);
+        }
+        return loaded;
+    }
+}
@@ -1,19 +1,122 @@
 package com.farmmanagement.repository;
 
+import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.StringJoiner;
 
 import org.sql2o.Connection;
+import org.sql2o.ResultSetIterable;
+import org.sql2o.Query;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.RowSink;
+import com.farmmanagement.util.TimeRange;
 
 public class MonitoringRepository {
+    private static final int BATCH_CHUNK_SIZE = 1000;
 
-    // Ambil semua data monitoring
-    public List<Monitoring> findAll() {
-        String sql = "SELECT * FROM monitoring";
+    // Rollup ikut ditulis di transaksi yang sama dengan data mentah, jadi keduanya selalu konsisten
+    private final MonitoringRollupRepository rollups = new MonitoringRollupRepository();
+    private final MonitoringArchiveRepository archive = new MonitoringArchiveRepository();
+
+    // Stream satu halaman (keyset pagination) lewat cursor JDBC: baris dibaca per fetch size,
+    // tidak pernah ditampung utuh di memori. Probe cursor dan data memakai snapshot yang sama.
+    public <R> R streamPage(PageRequest page, TimeRange range, PageRequest.RowHandler<Monitoring, R> handler) throws IOException {
+        String condition = page.keysetCondition("id_monitor");
+        String where = " WHERE " + range.condition("tanggal") + (condition != null ? " AND " + condition : "");
+        String probeSql = "SELECT id_monitor FROM monitoring" + where + page.probeOrderAndOffset("id_monitor");
+        String sql = "SELECT * FROM monitoring" + where + page.orderAndLimit("id_monitor");
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction(java.sql.Connection.TRANSACTION_REPEATABLE_READ)) {
+            String nextCursor = page.nextCursor(QueryTimer.scalarList("MonitoringRepository.streamPage.probe",
+                    page.bindProbe(range.bind(conn.createQuery(probeSql))), Integer.class));
+            R result;
+            try (ResultSetIterable<Monitoring> rows = QueryTimer.fetchLazy("MonitoringRepository.streamPage",
+                    page.bind(range.bind(conn.createQuery(sql))), Monitoring.class)) {
+                result = handler.handle(rows, nextCursor);
+            }
+            conn.commit();
+            return result;
+        }
+    }
+
+    // Satu halaman keyset sebagai list (dipakai saat halaman harus digabung dengan data arsip)
+    public List<Monitoring> findPage(PageRequest page, TimeRange range, int limit) {
+        String condition = page.keysetCondition("id_monitor");
+        String sql = "SELECT * FROM monitoring WHERE " + range.condition("tanggal") +
+                     (condition != null ? " AND " + condition : "") +
+                     " ORDER BY id_monitor" + (page.isDescending() ? " DESC" : " ASC") + " LIMIT :page_limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = range.bind(conn.createQuery(sql));
+            if (page.getAfterId() != null) {
+                query.addParameter("after_id", page.getAfterId().intValue());
+            }
+            query.addParameter("page_limit", limit);
+            return QueryTimer.fetch("MonitoringRepository.findPage", query, Monitoring.class);
+        }
+    }
+
+    // Semua data dalam rentang (opsional satu lahan) urut tanggal lewat cursor JDBC, untuk export.
+    // Baris dibaca per fetch size (DB_FETCH_SIZE), memori tetap berapa pun panjang rentangnya.
+    public void streamRange(TimeRange range, Integer idLahan, RowSink<Monitoring> sink) throws IOException {
+        String sql = "SELECT * FROM monitoring WHERE " + range.condition("tanggal") +
+                     (idLahan != null ? " AND id_lahan = :id_lahan" : "") + " ORDER BY tanggal, id_monitor";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = range.bind(conn.createQuery(sql));
+            if (idLahan != null) {
+                query.addParameter("id_lahan", idLahan.intValue());
+            }
+            try (ResultSetIterable<Monitoring> rows = QueryTimer.fetchLazy("MonitoringRepository.streamRange",
+                    query, Monitoring.class)) {
+                sink.accept(rows);
+            }
+            conn.commit();
+        }
+    }
+
+    // Hitung jumlah data monitoring
+    public int count() {
+        String sql = "SELECT COUNT(*) FROM monitoring";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Integer count = QueryTimer.scalar("MonitoringRepository.count", conn.createQuery(sql), Integer.class);
+            return count != null ? count : 0;
+        }
+    }
+
+    // Ambil data monitoring terbaru menurut tanggal; dengan index tanggal hanya partisi terbaru yang dibaca
+    public List<Monitoring> findRecent(int limit) {
+        String sql = "SELECT * FROM monitoring ORDER BY tanggal DESC, id_monitor DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("MonitoringRepository.findRecent", query, Monitoring.class);
+        }
+    }
+
+    // N data terbaru satu lahan (index id_lahan, tanggal)
+    public List<Monitoring> findRecentByLahan(int idLahan, int limit) {
+        String sql = "SELECT * FROM monitoring WHERE id_lahan = :id_lahan " +
+                     "ORDER BY tanggal DESC, id_monitor DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_lahan", idLahan)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("MonitoringRepository.findRecentByLahan", query, Monitoring.class);
+        }
+    }
+
+    // N data terbaru setiap lahan dalam satu query (LATERAL per lahan memakai index id_lahan, tanggal)
+    public List<Monitoring> findRecentPerLahan(int limit) {
+        String sql = "SELECT m.* FROM lahan l CROSS JOIN LATERAL (" +
+                     "SELECT * FROM monitoring WHERE id_lahan = l.id_lahan " +
+                     "ORDER BY tanggal DESC, id_monitor DESC LIMIT :limit) m";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql).executeAndFetch(Monitoring.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("MonitoringRepository.findRecentPerLahan", query, Monitoring.class);
         }
     }
 
@@ -21,55 +124,131 @@ public class MonitoringRepository {
     public Monitoring findById(int id) {
         String sql = "SELECT * FROM monitoring WHERE id_monitor = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(Monitoring.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("MonitoringRepository.findById", query, Monitoring.class);
         }
     }
 
-    // Tambah monitoring baru
+    // Tambah monitoring baru; id_monitor hasil generate diisi ke objek
     public boolean insert(Monitoring monitoring) {
         String sql = "INSERT INTO monitoring (id_lahan, suhu, kelembaban, tanggal) " +
                      "VALUES (:id_lahan, :suhu, :kelembaban, :tanggal)";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_lahan", monitoring.getId_lahan())
-                             .addParameter("suhu", monitoring.getSuhu())
-                             .addParameter("kelembaban", monitoring.getKelembaban())
-                             .addParameter("tanggal", monitoring.getTanggal())
-                             .executeUpdate()
-                             .getResult();
-            return result > 0;
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_lahan", monitoring.getId_lahan())
+                              .addParameter("suhu", monitoring.getSuhu())
+                              .addParameter("kelembaban", monitoring.getKelembaban())
+                              .addParameter("tanggal", monitoring.getTanggal());
+            Integer id = QueryTimer.execute("MonitoringRepository.insert", query,
+                    q -> q.executeUpdate().getKey(Integer.class));
+            if (id == null) {
+                return false;
+            }
+            monitoring.setId_monitor(id);
+            rollups.upsert(conn, List.of(monitoring));
+            conn.commit();
+            return true;
         }
     }
 
-    // Update monitoring berdasarkan ID
-    public boolean update(Monitoring monitoring) {
+    // Tambah banyak monitoring sekaligus: satu koneksi, satu transaksi, satu statement INSERT ... SELECT FROM unnest
+    // per BATCH_CHUNK_SIZE baris (kolom dikirim sebagai array). id_monitor hasil generate diisi ke setiap objek;
+    // RETURNING mengikuti urutan insert, yang dipaksa sama dengan urutan readings lewat ORDER BY ordinality.
+    public int insertBatch(List<Monitoring> readings) {
+        String sql = "INSERT INTO monitoring (id_lahan, suhu, kelembaban, tanggal) " +
+                     "SELECT id_lahan, suhu, kelembaban, tanggal FROM unnest(CAST(:id_lahan AS int[]), " +
+                     "CAST(:suhu AS float8[]), CAST(:kelembaban AS float8[]), CAST(:tanggal AS timestamp[])) " +
+                     "WITH ORDINALITY AS batch (id_lahan, suhu, kelembaban, tanggal, n) ORDER BY n RETURNING id_monitor";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            for (int from = 0; from < readings.size(); from += BATCH_CHUNK_SIZE) {
+                List<Monitoring> chunk = readings.subList(from, Math.min(from + BATCH_CHUNK_SIZE, readings.size()));
+                StringJoiner lahan = new StringJoiner(",", "{", "}");
+                StringJoiner suhu = new StringJoiner(",", "{", "}");
+                StringJoiner kelembaban = new StringJoiner(",", "{", "}");
+                StringJoiner tanggal = new StringJoiner(",", "{", "}");
+                for (Monitoring monitoring : chunk) {
+                    lahan.add(String.valueOf(monitoring.getId_lahan()));
+                    suhu.add(String.valueOf(monitoring.getSuhu()));
+                    kelembaban.add(String.valueOf(monitoring.getKelembaban()));
+                    tanggal.add(monitoring.getTanggal() != null ? "\"" + monitoring.getTanggal() + "\"" : "NULL");
+                }
+                // Tanpa generated keys: RETURNING sudah ditulis di SQL
+                Query query = conn.createQuery(sql, false)
+                                  .addParameter("id_lahan", lahan.toString())
+                                  .addParameter("suhu", suhu.toString())
+                                  .addParameter("kelembaban", kelembaban.toString())
+                                  .addParameter("tanggal", tanggal.toString());
+                List<Integer> ids = QueryTimer.scalarList("MonitoringRepository.insertBatch", query, Integer.class);
+                if (ids.size() != chunk.size()) {
+                    // Tanpa id yang benar rollup dan broadcast akan memakai id_monitor=0; batalkan semuanya
+                    conn.rollback();
+                    throw new IllegalStateException("Generated key tidak lengkap: " + ids.size() +
+                            " key untuk " + chunk.size() + " baris monitoring");
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setId_monitor(ids.get(i));
+                }
+            }
+            rollups.upsert(conn, readings);
+            conn.commit();
+            return readings.size();
+        }
+    }
+
+    // Update monitoring berdasarkan ID; bucket rollup lama dan baru dihitung ulang.
+    // Mengembalikan data sebelum diubah, null jika ID tidak ditemukan.
+    public Monitoring update(Monitoring monitoring) {
         String sql = "UPDATE monitoring SET id_lahan = :id_lahan, suhu = :suhu, " +
                      "kelembaban = :kelembaban, tanggal = :tanggal " +
                      "WHERE id_monitor = :id_monitor";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_monitor", monitoring.getId_monitor())
-                             .addParameter("id_lahan", monitoring.getId_lahan())
-                             .addParameter("suhu", monitoring.getSuhu())
-                             .addParameter("kelembaban", monitoring.getKelembaban())
-                             .addParameter("tanggal", monitoring.getTanggal())
-                             .executeUpdate()
-                             .getResult();
-            return result > 0;
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Monitoring previous = QueryTimer.fetchFirst("MonitoringRepository.update.previous",
+                    conn.createQuery("SELECT * FROM monitoring WHERE id_monitor = :id FOR UPDATE")
+                        .addParameter("id", monitoring.getId_monitor()), Monitoring.class);
+            if (previous == null) {
+                return null;
+            }
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_monitor", monitoring.getId_monitor())
+                              .addParameter("id_lahan", monitoring.getId_lahan())
+                              .addParameter("suhu", monitoring.getSuhu())
+                              .addParameter("kelembaban", monitoring.getKelembaban())
+                              .addParameter("tanggal", monitoring.getTanggal());
+            int result = QueryTimer.update("MonitoringRepository.update", query);
+            if (result > 0) {
+                rebuildRollups(conn, previous);
+                rebuildRollups(conn, monitoring);
+            }
+            conn.commit();
+            return result > 0 ? previous : null;
         }
     }
 
-    // Hapus monitoring berdasarkan ID
-    public boolean delete(int id) {
-        String sql = "DELETE FROM monitoring WHERE id_monitor = :id";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
-            return result > 0;
+    // Hapus monitoring berdasarkan ID; bucket rollup yang berisi data ini dihitung ulang.
+    // Mengembalikan data yang dihapus, null jika ID tidak ditemukan.
+    public Monitoring delete(int id) {
+        String sql = "DELETE FROM monitoring WHERE id_monitor = :id RETURNING *";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            // Tanpa generated keys: quirks Postgres menambah RETURNING sendiri dan bentrok dengan RETURNING di atas
+            Query query = conn.createQuery(sql, false)
+                              .addParameter("id", id);
+            Monitoring deleted = QueryTimer.fetchFirst("MonitoringRepository.delete", query, Monitoring.class);
+            if (deleted != null) {
+                rebuildRollups(conn, deleted);
+            }
+            conn.commit();
+            return deleted;
         }
     }
+
+    // Bucket di bulan yang sudah diarsip tidak dihitung ulang: data mentahnya sudah tidak di database,
+    // jadi rebuild akan menghapus agregat arsip (sama dengan batas archivedUntil di MonitoringService)
+    private void rebuildRollups(Connection conn, Monitoring monitoring) {
+        if (monitoring.getTanggal() == null) return;
+        Timestamp tanggal = monitoring.getTanggal();
+        Timestamp archivedUntil = archive.getArchivedUntil();
+        if (archivedUntil != null && tanggal.before(archivedUntil)) return;
+        rollups.rebuild(conn, monitoring.getId_lahan(), new TimeRange(tanggal, new Timestamp(tanggal.getTime() + 1)));
+    }
 }
@@ -0,0 +1,296 @@
+package com.farmmanagement.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.sql2o.Connection;
+import org.sql2o.Query;
+
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.MonitoringSeriesPoint;
+import com.farmmanagement.model.RollupResolution;
+import com.farmmanagement.util.TimeRange;
+
+/**
+ * Agregat monitoring per lahan per bucket (5m / 1h / 1d) di tabel monitoring_rollup.
+ * Disimpan min / max / sum / count supaya bisa digabung incremental saat insert (avg = sum / count).
+ * Update dan delete data mentah tidak bisa "dikurangkan" dari min/max, jadi bucket terkait dihitung ulang.
+ *
+ * Backfill data lama berjalan per hari di bawah watermark (tersimpan di monitoring_rollup_backfill, jadi bisa
+ * dilanjutkan setelah crash). Tanpa LOCK TABLE: backfill memegang advisory lock eksklusif hari yang dihitung,
+ * insert bacaan sebelum watermark memegang lock shared hari yang sama sampai commit.
+ */
+public class MonitoringRollupRepository {
+    private static final long BACKFILL_LOCK_KEY = 7_310_200_000_000L; // + epoch day
+
+    // Watermark backfill yang sedang berjalan, null jika sudah selesai (insert tidak perlu advisory lock lagi)
+    private static volatile Timestamp backfillUntil;
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO monitoring_rollup (resolution_seconds, id_lahan, bucket, sample_count, " +
+        "suhu_min, suhu_max, suhu_sum, kelembaban_min, kelembaban_max, kelembaban_sum) " +
+        "VALUES (:resolution, :id_lahan, :bucket, :sample_count, " +
+        ":suhu_min, :suhu_max, :suhu_sum, :kelembaban_min, :kelembaban_max, :kelembaban_sum) " +
+        "ON CONFLICT (resolution_seconds, id_lahan, bucket) DO UPDATE SET " +
+        "sample_count = monitoring_rollup.sample_count + EXCLUDED.sample_count, " +
+        "suhu_min = LEAST(monitoring_rollup.suhu_min, EXCLUDED.suhu_min), " +
+        "suhu_max = GREATEST(monitoring_rollup.suhu_max, EXCLUDED.suhu_max), " +
+        "suhu_sum = monitoring_rollup.suhu_sum + EXCLUDED.suhu_sum, " +
+        "kelembaban_min = LEAST(monitoring_rollup.kelembaban_min, EXCLUDED.kelembaban_min), " +
+        "kelembaban_max = GREATEST(monitoring_rollup.kelembaban_max, EXCLUDED.kelembaban_max), " +
+        "kelembaban_sum = monitoring_rollup.kelembaban_sum + EXCLUDED.kelembaban_sum";
+
+    // Tambahkan bacaan baru ke semua resolusi, di dalam transaksi insert data mentah (conn milik pemanggil)
+    public void upsert(Connection conn, List<Monitoring> readings) {
+        lockBackfillDays(conn, readings);
+        // Key diurutkan supaya dua batch yang bersamaan mengunci baris rollup dengan urutan yang sama (tanpa deadlock)
+        Map<BucketKey, Aggregate> aggregates = new TreeMap<>();
+        for (Monitoring reading : readings) {
+            LocalDateTime time = reading.getTanggal().toLocalDateTime();
+            for (RollupResolution resolution : RollupResolution.values()) {
+                aggregates.computeIfAbsent(new BucketKey(resolution.getSeconds(), reading.getId_lahan(), resolution.bucketOf(time)),
+                        k -> new Aggregate()).add(reading);
+            }
+        }
+
+        // Tanpa generated keys supaya driver bisa menggabung batch menjadi INSERT multi-row (reWriteBatchedInserts)
+        Query query = conn.createQuery(UPSERT_SQL, false);
+        for (Map.Entry<BucketKey, Aggregate> entry : aggregates.entrySet()) {
+            BucketKey key = entry.getKey();
+            Aggregate aggregate = entry.getValue();
+            query.addParameter("resolution", key.resolutionSeconds)
+                 .addParameter("id_lahan", key.idLahan)
+                 .addParameter("bucket", Timestamp.valueOf(key.bucket))
+                 .addParameter("sample_count", aggregate.count)
+                 .addParameter("suhu_min", aggregate.suhuMin)
+                 .addParameter("suhu_max", aggregate.suhuMax)
+                 .addParameter("suhu_sum", aggregate.suhuSum)
+                 .addParameter("kelembaban_min", aggregate.kelembabanMin)
+                 .addParameter("kelembaban_max", aggregate.kelembabanMax)
+                 .addParameter("kelembaban_sum", aggregate.kelembabanSum)
+                 .addToBatch();
+        }
+        QueryTimer.batch("MonitoringRollupRepository.upsert", query);
+    }
+
+    // Insert bacaan sebelum watermark backfill memegang lock shared per hari (urut, tanpa deadlock) sampai commit:
+    // backfill hari itu menunggu insert ini, insert berikutnya menunggu backfill hari itu selesai
+    private void lockBackfillDays(Connection conn, List<Monitoring> readings) {
+        Timestamp until = backfillUntil;
+        if (until == null) return;
+        Set<Long> days = new TreeSet<>();
+        for (Monitoring reading : readings) {
+            if (reading.getTanggal().before(until)) {
+                days.add(reading.getTanggal().toLocalDateTime().toLocalDate().toEpochDay());
+            }
+        }
+        for (long day : days) {
+            QueryTimer.execute("MonitoringRollupRepository.lockBackfillDay",
+                    conn.createQuery("SELECT pg_advisory_xact_lock_shared(:key)").addParameter("key", BACKFILL_LOCK_KEY + day),
+                    Query::executeScalar);
+        }
+    }
+
+    // Hitung ulang semua bucket yang menyentuh rentang (opsional satu lahan) dari data mentah.
+    // Tabel rollup dikunci (SHARE ROW EXCLUSIVE) supaya insert yang berjalan bersamaan tidak terhitung dua kali:
+    // insert yang sudah upsert ditunggu sampai commit, insert berikutnya menunggu rebuild selesai.
+    public void rebuild(Connection conn, Integer idLahan, TimeRange range) {
+        conn.createQuery("LOCK TABLE monitoring_rollup IN SHARE ROW EXCLUSIVE MODE").executeUpdate();
+        recompute(conn, idLahan, range);
+    }
+
+    private void recompute(Connection conn, Integer idLahan, TimeRange range) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            Timestamp from = Timestamp.valueOf(resolution.bucketOf(range.getFrom().toLocalDateTime()));
+            // Batas atas dibulatkan ke atas ke awal bucket berikutnya (tidak diperlebar jika sudah pas di batas)
+            LocalDateTime end = range.getTo().toLocalDateTime();
+            LocalDateTime endBucket = resolution.bucketOf(end);
+            Timestamp to = Timestamp.valueOf(endBucket.isBefore(end) ? endBucket.plusSeconds(resolution.getSeconds()) : endBucket);
+            String lahanFilter = idLahan != null ? " AND id_lahan = :id_lahan" : "";
+
+            Query delete = conn.createQuery("DELETE FROM monitoring_rollup WHERE resolution_seconds = :resolution " +
+                                            "AND bucket >= :from AND bucket < :to" + lahanFilter)
+                               .addParameter("resolution", resolution.getSeconds())
+                               .addParameter("from", from)
+                               .addParameter("to", to);
+            Query insert = conn.createQuery("INSERT INTO monitoring_rollup (resolution_seconds, id_lahan, bucket, sample_count, " +
+                                            "suhu_min, suhu_max, suhu_sum, kelembaban_min, kelembaban_max, kelembaban_sum) " +
+                                            "SELECT :resolution, id_lahan, " + resolution.getBucketSql() + ", COUNT(*), " +
+                                            "MIN(suhu), MAX(suhu), SUM(suhu), MIN(kelembaban), MAX(kelembaban), SUM(kelembaban) " +
+                                            "FROM monitoring WHERE tanggal >= :from AND tanggal < :to" + lahanFilter +
+                                            " GROUP BY 1, 2, 3")
+                               .addParameter("resolution", resolution.getSeconds())
+                               .addParameter("from", from)
+                               .addParameter("to", to);
+            if (idLahan != null) {
+                delete.addParameter("id_lahan", idLahan.intValue());
+                insert.addParameter("id_lahan", idLahan.intValue());
+            }
+            QueryTimer.update("MonitoringRollupRepository.rebuild.delete", delete);
+            QueryTimer.update("MonitoringRollupRepository.rebuild.insert", insert);
+        }
+    }
+
+    public void rebuild(Integer idLahan, TimeRange range) {
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            rebuild(conn, idLahan, range);
+            conn.commit();
+        }
+    }
+
+    // Mulai backfill dengan watermark ini, atau lanjutkan backfill yang sudah ada (watermark lamanya yang dipakai).
+    // Harus dipanggil sebelum route menerima insert. Mengembalikan watermark, null jika backfill sudah selesai.
+    public Timestamp startBackfill(Timestamp watermark) {
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query insert = conn.createQuery("INSERT INTO monitoring_rollup_backfill (id, watermark, next_day) " +
+                                            "SELECT 1, :watermark, date_trunc('day', MIN(tanggal)) FROM monitoring " +
+                                            "WHERE tanggal < :watermark ON CONFLICT (id) DO NOTHING")
+                               .addParameter("watermark", watermark);
+            QueryTimer.update("MonitoringRollupRepository.startBackfill", insert);
+            backfillUntil = QueryTimer.scalar("MonitoringRollupRepository.findBackfillWatermark",
+                    conn.createQuery("SELECT watermark FROM monitoring_rollup_backfill WHERE id = 1 AND NOT done"), Timestamp.class);
+            return backfillUntil;
+        }
+    }
+
+    // Backfill satu hari (hari berikutnya yang punya data) lalu majukan progres, dalam satu transaksi.
+    // Baris progres dikunci FOR UPDATE, jadi beberapa node bisa menjalankan backfill tanpa mengerjakan hari yang sama.
+    // Hari sebelum archivedUntil dilewati supaya agregat bulan yang sudah diarsip tidak terhapus.
+    // false jika backfill sudah selesai.
+    public boolean backfillNextDay(Timestamp archivedUntil) {
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Timestamp watermark = QueryTimer.scalar("MonitoringRollupRepository.backfillNextDay.lock",
+                    conn.createQuery("SELECT watermark FROM monitoring_rollup_backfill WHERE id = 1 AND NOT done FOR UPDATE"),
+                    Timestamp.class);
+            if (watermark == null) {
+                backfillUntil = null;
+                return false;
+            }
+            Timestamp day = QueryTimer.scalar("MonitoringRollupRepository.backfillNextDay.progress",
+                    conn.createQuery("SELECT next_day FROM monitoring_rollup_backfill WHERE id = 1"), Timestamp.class);
+            if (day != null && archivedUntil != null && day.before(archivedUntil)) {
+                day = findNextDataDay(conn, archivedUntil, watermark);
+            }
+            if (day == null || !day.before(watermark)) {
+                QueryTimer.update("MonitoringRollupRepository.backfillNextDay.done",
+                        conn.createQuery("UPDATE monitoring_rollup_backfill SET done = TRUE, next_day = NULL, updated_at = now() WHERE id = 1"));
+                conn.commit();
+                backfillUntil = null;
+                return false;
+            }
+
+            LocalDateTime from = day.toLocalDateTime();
+            Timestamp to = Timestamp.valueOf(from.plusDays(1));
+            QueryTimer.execute("MonitoringRollupRepository.backfillNextDay.lockDay",
+                    conn.createQuery("SELECT pg_advisory_xact_lock(:key)")
+                        .addParameter("key", BACKFILL_LOCK_KEY + from.toLocalDate().toEpochDay()),
+                    Query::executeScalar);
+            recompute(conn, null, new TimeRange(day, to));
+
+            Query progress = conn.createQuery("UPDATE monitoring_rollup_backfill SET next_day = :next_day, updated_at = now() WHERE id = 1")
+                                 .addParameter("next_day", findNextDataDay(conn, to, watermark));
+            QueryTimer.update("MonitoringRollupRepository.backfillNextDay.advance", progress);
+            conn.commit();
+            return true;
+        }
+    }
+
+    // Awal hari pertama >= from yang punya data mentah sebelum watermark; hari kosong tidak perlu dihitung
+    private Timestamp findNextDataDay(Connection conn, Timestamp from, Timestamp watermark) {
+        Query query = conn.createQuery("SELECT date_trunc('day', MIN(tanggal)) FROM monitoring " +
+                                       "WHERE tanggal >= :from AND tanggal < :watermark")
+                          .addParameter("from", from)
+                          .addParameter("watermark", watermark);
+        return QueryTimer.scalar("MonitoringRollupRepository.findNextDataDay", query, Timestamp.class);
+    }
+
+    public List<MonitoringSeriesPoint> findSeries(int idLahan, RollupResolution resolution, TimeRange range) {
+        String sql = "SELECT bucket, sample_count, suhu_min, suhu_max, suhu_sum / sample_count AS suhu_avg, " +
+                     "kelembaban_min, kelembaban_max, kelembaban_sum / sample_count AS kelembaban_avg " +
+                     "FROM monitoring_rollup WHERE resolution_seconds = :resolution AND id_lahan = :id_lahan " +
+                     "AND bucket >= :from AND bucket < :to ORDER BY bucket";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("resolution", resolution.getSeconds())
+                              .addParameter("id_lahan", idLahan)
+                              // Bucket yang dimulai sebelum from tetapi berisi from ikut diambil
+                              .addParameter("from", Timestamp.valueOf(resolution.bucketOf(range.getFrom().toLocalDateTime())))
+                              .addParameter("to", range.getTo());
+            return QueryTimer.fetch("MonitoringRollupRepository.findSeries", query, MonitoringSeriesPoint.class);
+        }
+    }
+
+    // Bacaan mentah sebagai titik deret (count = 1), dibatasi limit
+    public List<MonitoringSeriesPoint> findRawSeries(int idLahan, TimeRange range, int limit) {
+        String sql = "SELECT tanggal AS bucket, 1 AS sample_count, suhu AS suhu_min, suhu AS suhu_max, suhu AS suhu_avg, " +
+                     "kelembaban AS kelembaban_min, kelembaban AS kelembaban_max, kelembaban AS kelembaban_avg " +
+                     "FROM monitoring WHERE id_lahan = :id_lahan AND " + range.condition("tanggal") +
+                     " ORDER BY tanggal LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = range.bind(conn.createQuery(sql))
+                               .addParameter("id_lahan", idLahan)
+                               .addParameter("limit", limit);
+            return QueryTimer.fetch("MonitoringRollupRepository.findRawSeries", query, MonitoringSeriesPoint.class);
+        }
+    }
+
+    private static final class BucketKey implements Comparable<BucketKey> {
+        final int resolutionSeconds;
+        final int idLahan;
+        final LocalDateTime bucket;
+
+        BucketKey(int resolutionSeconds, int idLahan, LocalDateTime bucket) {
+            this.resolutionSeconds = resolutionSeconds;
+            this.idLahan = idLahan;
+            this.bucket = bucket;
+        }
+
+        // Urutan sama dengan primary key (resolution_seconds, id_lahan, bucket)
+        @Override
+        public int compareTo(BucketKey other) {
+            int result = Integer.compare(resolutionSeconds, other.resolutionSeconds);
+            if (result == 0) result = Integer.compare(idLahan, other.idLahan);
+            if (result == 0) result = bucket.compareTo(other.bucket);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) return false;
+            return compareTo((BucketKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resolutionSeconds, idLahan, bucket);
+        }
+    }
+
+    private static final class Aggregate {
+        long count;
+        double suhuMin = Double.POSITIVE_INFINITY;
+        double suhuMax = Double.NEGATIVE_INFINITY;
+        double suhuSum;
+        double kelembabanMin = Double.POSITIVE_INFINITY;
+        double kelembabanMax = Double.NEGATIVE_INFINITY;
+        double kelembabanSum;
+
+        void add(Monitoring reading) {
+            count++;
+            suhuMin = Math.min(suhuMin, reading.getSuhu());
+            suhuMax = Math.max(suhuMax, reading.getSuhu());
+            suhuSum += reading.getSuhu();
+            kelembabanMin = Math.min(kelembabanMin, reading.getKelembaban());
+            kelembabanMax = Math.max(kelembabanMax, reading.getKelembaban());
+            kelembabanSum += reading.getKelembaban();
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.farmmanagement.repository;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
+import org.sql2o.ResultSetIterable;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.Pembelian;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.RowSink;
+import com.farmmanagement.util.TimeRange;
 
 public class PembelianRepository {
 
@@ -13,7 +20,46 @@ public class PembelianRepository {
     public List<Pembelian> findAll() {
         String sql = "SELECT * FROM pembelian";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql).executeAndFetch(Pembelian.class);
+            return QueryTimer.fetch("PembelianRepository.findAll", conn.createQuery(sql), Pembelian.class);
+        }
+    }
+
+    // Stream satu halaman (keyset pagination) lewat cursor JDBC: baris dibaca per fetch size,
+    // tidak pernah ditampung utuh di memori. Probe cursor dan data memakai snapshot yang sama.
+    public <R> R streamPage(PageRequest page, PageRequest.RowHandler<Pembelian, R> handler) throws IOException {
+        String condition = page.keysetCondition("id_pembelian");
+        String where = condition != null ? " WHERE " + condition : "";
+        String probeSql = "SELECT id_pembelian FROM pembelian" + where + page.probeOrderAndOffset("id_pembelian");
+        String sql = "SELECT * FROM pembelian" + where + page.orderAndLimit("id_pembelian");
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction(java.sql.Connection.TRANSACTION_REPEATABLE_READ)) {
+            String nextCursor = page.nextCursor(QueryTimer.scalarList("PembelianRepository.streamPage.probe",
+                    page.bindProbe(conn.createQuery(probeSql)), Integer.class));
+            R result;
+            try (ResultSetIterable<Pembelian> rows = QueryTimer.fetchLazy("PembelianRepository.streamPage",
+                    page.bind(conn.createQuery(sql)), Pembelian.class)) {
+                result = handler.handle(rows, nextCursor);
+            }
+            conn.commit();
+            return result;
+        }
+    }
+
+    // Pembelian dalam rentang tanggal lewat cursor JDBC, untuk export. Pembelian tidak menyimpan
+    // id_lahan, jadi filter lahan lewat hasil panen yang dibeli.
+    public void streamRange(TimeRange range, Integer idLahan, RowSink<Pembelian> sink) throws IOException {
+        String sql = "SELECT * FROM pembelian WHERE " + range.condition("tanggal") +
+                     (idLahan != null ? " AND id_hasil IN (SELECT id_hasil FROM hasil_panen WHERE id_lahan = :id_lahan)" : "") +
+                     " ORDER BY tanggal, id_pembelian";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = range.bind(conn.createQuery(sql));
+            if (idLahan != null) {
+                query.addParameter("id_lahan", idLahan.intValue());
+            }
+            try (ResultSetIterable<Pembelian> rows = QueryTimer.fetchLazy("PembelianRepository.streamRange",
+                    query, Pembelian.class)) {
+                sink.accept(rows);
+            }
+            conn.commit();
         }
     }
 
@@ -21,9 +67,9 @@ public class PembelianRepository {
     public Pembelian findById(int id) {
         String sql = "SELECT * FROM pembelian WHERE id_pembelian = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(Pembelian.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("PembelianRepository.findById", query, Pembelian.class);
         }
     }
 
@@ -37,39 +83,63 @@ public class PembelianRepository {
         String sql = "INSERT INTO pembelian (id_pembeli, id_penjual, id_hasil, id_tanaman, tanggal, jumlah, total_harga, status) " +
                      "VALUES (:id_pembeli, :id_penjual, :id_hasil, :id_tanaman, :tanggal, :jumlah, :total_harga, :status)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_pembeli", pembelian.getId_pembeli())
-                             .addParameter("id_penjual", pembelian.getId_penjual())
-                             .addParameter("id_hasil", pembelian.getId_hasil())
-                             .addParameter("id_tanaman", pembelian.getId_tanaman())
-                             .addParameter("tanggal", pembelian.getTanggal())
-                             .addParameter("jumlah", pembelian.getJumlah())
-                             .addParameter("total_harga", pembelian.getTotal_harga())
-                             .addParameter("status", pembelian.getStatus())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_pembeli", pembelian.getId_pembeli())
+                              .addParameter("id_penjual", pembelian.getId_penjual())
+                              .addParameter("id_hasil", pembelian.getId_hasil())
+                              .addParameter("id_tanaman", pembelian.getId_tanaman())
+                              .addParameter("tanggal", pembelian.getTanggal())
+                              .addParameter("jumlah", pembelian.getJumlah())
+                              .addParameter("total_harga", pembelian.getTotal_harga())
+                              .addParameter("status", pembelian.getStatus());
+            int result = QueryTimer.update("PembelianRepository.insert", query);
             return result > 0;
         }
     }
 
+    // Beli dari satu hasil panen dalam satu statement: stok dikurangi secara kondisional (hanya jika
+    // masih 'Siap Dijual' dan kuantitas cukup), status jadi 'Terjual' saat habis, lalu pembelian
+    // disimpan dengan penjual, tanaman dan total harga dari baris hasil panen. Lock hanya di baris
+    // hasil panen itu; pembeli lain yang bersamaan menunggu lalu mengevaluasi ulang sisa stok.
+    // Mengembalikan null jika stok tidak dikurangi (tidak ada, belum/tidak dijual, atau tidak cukup).
+    public Pembelian insertWithReservation(Pembelian pembelian) {
+        String sql = "WITH stok AS (" +
+                     "  UPDATE hasil_panen SET kuantitas = kuantitas - CAST(:jumlah AS NUMERIC), " +
+                     "    status = CASE WHEN kuantitas - CAST(:jumlah AS NUMERIC) <= 0 THEN 'Terjual' ELSE status END " +
+                     "  WHERE id_hasil = :id_hasil AND status = 'Siap Dijual' AND kuantitas >= CAST(:jumlah AS NUMERIC) " +
+                     "  RETURNING id_pengawas, id_tanaman, harga_satuan) " +
+                     "INSERT INTO pembelian (id_pembeli, id_penjual, id_hasil, id_tanaman, tanggal, jumlah, total_harga, status) " +
+                     "SELECT :id_pembeli, id_pengawas, :id_hasil, id_tanaman, :tanggal, CAST(:jumlah AS NUMERIC), " +
+                     "  ROUND(harga_satuan * CAST(:jumlah AS NUMERIC), 2), :status FROM stok " +
+                     "RETURNING *";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql, false)
+                              .addParameter("id_pembeli", pembelian.getId_pembeli())
+                              .addParameter("id_hasil", pembelian.getId_hasil())
+                              .addParameter("tanggal", pembelian.getTanggal())
+                              .addParameter("jumlah", pembelian.getJumlah())
+                              .addParameter("status", pembelian.getStatus());
+            return QueryTimer.fetchFirst("PembelianRepository.insertWithReservation", query, Pembelian.class);
+        }
+    }
+
     // Update pembelian berdasarkan ID
     public boolean update(Pembelian pembelian) {
         String sql = "UPDATE pembelian SET id_pembeli = :id_pembeli, id_penjual = :id_penjual, id_hasil = :id_hasil, id_tanaman = :id_tanaman, " +
                      "tanggal = :tanggal, jumlah = :jumlah, total_harga = :total_harga, status = :status " +
                      "WHERE id_pembelian = :id_pembelian";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_pembelian", pembelian.getId_pembelian())
-                             .addParameter("id_pembeli", pembelian.getId_pembeli())
-                             .addParameter("id_penjual", pembelian.getId_penjual())
-                             .addParameter("id_hasil", pembelian.getId_hasil())
-                             .addParameter("id_tanaman", pembelian.getId_tanaman())
-                             .addParameter("tanggal", pembelian.getTanggal())
-                             .addParameter("jumlah", pembelian.getJumlah())
-                             .addParameter("total_harga", pembelian.getTotal_harga())
-                             .addParameter("status", pembelian.getStatus())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_pembelian", pembelian.getId_pembelian())
+                              .addParameter("id_pembeli", pembelian.getId_pembeli())
+                              .addParameter("id_penjual", pembelian.getId_penjual())
+                              .addParameter("id_hasil", pembelian.getId_hasil())
+                              .addParameter("id_tanaman", pembelian.getId_tanaman())
+                              .addParameter("tanggal", pembelian.getTanggal())
+                              .addParameter("jumlah", pembelian.getJumlah())
+                              .addParameter("total_harga", pembelian.getTotal_harga())
+                              .addParameter("status", pembelian.getStatus());
+            int result = QueryTimer.update("PembelianRepository.update", query);
             return result > 0;
         }
     }
@@ -78,10 +148,9 @@ public class PembelianRepository {
     public boolean delete(int id) {
         String sql = "DELETE FROM pembelian WHERE id_pembelian = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("PembelianRepository.delete", query);
             return result > 0;
         }
     }
@@ -3,9 +3,13 @@ package com.farmmanagement.repository;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.TanamanAllocationResult;
 import com.farmmanagement.model.TanamanLahan;
+import com.farmmanagement.util.CacheInvalidationBus;
 
 public class TanamanLahanRepository {
 
@@ -13,7 +17,34 @@ public class TanamanLahanRepository {
     public List<TanamanLahan> findAll() {
         String sql = "SELECT * FROM tanaman_lahan";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql).executeAndFetch(TanamanLahan.class);
+            return QueryTimer.fetch("TanamanLahanRepository.findAll", conn.createQuery(sql), TanamanLahan.class);
+        }
+    }
+
+    // Pasangan lahan-tanaman yang masih ditanam (status selain 'selesai'), untuk aturan alert per tanaman
+    public List<TanamanLahan> findActivePlantings() {
+        String sql = "SELECT id_lahan, id_tanaman FROM tanaman_lahan WHERE status IS DISTINCT FROM 'selesai'";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return QueryTimer.fetch("TanamanLahanRepository.findActivePlantings", conn.createQuery(sql), TanamanLahan.class);
+        }
+    }
+
+    // Hitung jumlah data tanaman lahan
+    public int count() {
+        String sql = "SELECT COUNT(*) FROM tanaman_lahan";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Integer count = QueryTimer.scalar("TanamanLahanRepository.count", conn.createQuery(sql), Integer.class);
+            return count != null ? count : 0;
+        }
+    }
+
+    // Ambil data tanaman lahan terbaru (ORDER BY id_tl DESC LIMIT n)
+    public List<TanamanLahan> findRecent(int limit) {
+        String sql = "SELECT * FROM tanaman_lahan ORDER BY id_tl DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("TanamanLahanRepository.findRecent", query, TanamanLahan.class);
         }
     }
 
@@ -21,9 +52,9 @@ public class TanamanLahanRepository {
     public TanamanLahan findById(int id) {
         String sql = "SELECT * FROM tanaman_lahan WHERE id_tl = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(TanamanLahan.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("TanamanLahanRepository.findById", query, TanamanLahan.class);
         }
     }
 
@@ -33,16 +64,15 @@ public class TanamanLahanRepository {
                      "id_pengawas = :id_pengawas, tanggal_tanam = :tanggal_tanam, status = :status, jumlah_tanaman = :jumlah_tanaman " +
                      "WHERE id_tl = :id_tl";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_tl", tanamanLahan.getId_tl())
-                             .addParameter("id_lahan", tanamanLahan.getId_lahan())
-                             .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
-                             .addParameter("id_pengawas", tanamanLahan.getId_pengawas())
-                             .addParameter("tanggal_tanam", tanamanLahan.getTanggal_tanam())
-                             .addParameter("status", tanamanLahan.getStatus())
-                             .addParameter("jumlah_tanaman", tanamanLahan.getJumlah_tanaman())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_tl", tanamanLahan.getId_tl())
+                              .addParameter("id_lahan", tanamanLahan.getId_lahan())
+                              .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
+                              .addParameter("id_pengawas", tanamanLahan.getId_pengawas())
+                              .addParameter("tanggal_tanam", tanamanLahan.getTanggal_tanam())
+                              .addParameter("status", tanamanLahan.getStatus())
+                              .addParameter("jumlah_tanaman", tanamanLahan.getJumlah_tanaman());
+            int result = QueryTimer.update("TanamanLahanRepository.update", query);
             return result > 0;
         }
     }
@@ -52,27 +82,73 @@ public class TanamanLahanRepository {
         String sql = "INSERT INTO tanaman_lahan (id_lahan, id_tanaman, id_pengawas, tanggal_tanam, status, jumlah_tanaman) " +
                      "VALUES (:id_lahan, :id_tanaman, :id_pengawas, :tanggal_tanam, :status, :jumlah_tanaman)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_lahan", tanamanLahan.getId_lahan())
-                             .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
-                             .addParameter("id_pengawas", tanamanLahan.getId_pengawas())
-                             .addParameter("tanggal_tanam", tanamanLahan.getTanggal_tanam())
-                             .addParameter("status", tanamanLahan.getStatus())
-                             .addParameter("jumlah_tanaman", tanamanLahan.getJumlah_tanaman())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_lahan", tanamanLahan.getId_lahan())
+                              .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
+                              .addParameter("id_pengawas", tanamanLahan.getId_pengawas())
+                              .addParameter("tanggal_tanam", tanamanLahan.getTanggal_tanam())
+                              .addParameter("status", tanamanLahan.getStatus())
+                              .addParameter("jumlah_tanaman", tanamanLahan.getJumlah_tanaman());
+            int result = QueryTimer.update("TanamanLahanRepository.save", query);
             return result > 0;
         }
     }
 
+    // Alokasi stok tanaman ke lahan dalam satu transaksi: kurangi stok secara kondisional lalu insert.
+    // Update tanaman mengunci baris stok, sehingga request paralel untuk tanaman yang sama antre
+    // dan stok tidak pernah minus; duplikat lahan/tanaman ditolak oleh NOT EXISTS + unique index.
+    public TanamanAllocationResult allocate(TanamanLahan tanamanLahan) {
+        String decrementSql = "UPDATE tanaman SET jumlah_tanaman = jumlah_tanaman - :jumlah " +
+                              "WHERE id_tanaman = :id_tanaman AND jumlah_tanaman >= :jumlah " +
+                              "RETURNING jumlah_tanaman";
+        String stockSql = "SELECT jumlah_tanaman FROM tanaman WHERE id_tanaman = :id_tanaman";
+        String insertSql = "INSERT INTO tanaman_lahan (id_lahan, id_tanaman, id_pengawas, tanggal_tanam, status, jumlah_tanaman) " +
+                           "SELECT :id_lahan, :id_tanaman, :id_pengawas, :tanggal_tanam, :status, :jumlah " +
+                           "WHERE NOT EXISTS (SELECT 1 FROM tanaman_lahan WHERE id_lahan = :id_lahan AND id_tanaman = :id_tanaman) " +
+                           "ON CONFLICT DO NOTHING RETURNING id_tl";
+
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query decrement = conn.createQuery(decrementSql)
+                                  .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
+                                  .addParameter("jumlah", tanamanLahan.getJumlah_tanaman());
+            Integer sisa = QueryTimer.scalar("TanamanLahanRepository.allocate.decrement", decrement, Integer.class);
+            if (sisa == null) {
+                Query stock = conn.createQuery(stockSql)
+                                  .addParameter("id_tanaman", tanamanLahan.getId_tanaman());
+                Integer tersedia = QueryTimer.scalar("TanamanLahanRepository.allocate.stock", stock, Integer.class);
+                conn.rollback();
+                return tersedia == null
+                        ? TanamanAllocationResult.tanamanNotFound()
+                        : TanamanAllocationResult.insufficientStock(tersedia);
+            }
+
+            Query insert = conn.createQuery(insertSql)
+                               .addParameter("id_lahan", tanamanLahan.getId_lahan())
+                               .addParameter("id_tanaman", tanamanLahan.getId_tanaman())
+                               .addParameter("id_pengawas", tanamanLahan.getId_pengawas())
+                               .addParameter("tanggal_tanam", tanamanLahan.getTanggal_tanam())
+                               .addParameter("status", tanamanLahan.getStatus())
+                               .addParameter("jumlah", tanamanLahan.getJumlah_tanaman());
+            Integer idTl = QueryTimer.scalar("TanamanLahanRepository.allocate.insert", insert, Integer.class);
+            if (idTl == null) {
+                conn.rollback(); // stok dikembalikan
+                return TanamanAllocationResult.duplicate();
+            }
+
+            CacheInvalidationBus.publish(conn, CacheInvalidationBus.TANAMAN, tanamanLahan.getId_tanaman());
+            conn.commit();
+            return TanamanAllocationResult.created(idTl, sisa);
+        }
+    }
+
     // Check if tanaman already exists in lahan
     public boolean existsByLahanAndTanaman(int idLahan, int idTanaman) {
         String sql = "SELECT COUNT(*) FROM tanaman_lahan WHERE id_lahan = :id_lahan AND id_tanaman = :id_tanaman";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            Integer count = conn.createQuery(sql)
-                               .addParameter("id_lahan", idLahan)
-                               .addParameter("id_tanaman", idTanaman)
-                               .executeScalar(Integer.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_lahan", idLahan)
+                              .addParameter("id_tanaman", idTanaman);
+            Integer count = QueryTimer.scalar("TanamanLahanRepository.existsByLahanAndTanaman", query, Integer.class);
             return count != null && count > 0;
         }
     }
@@ -81,10 +157,9 @@ public class TanamanLahanRepository {
     public boolean delete(int id) {
         String sql = "DELETE FROM tanaman_lahan WHERE id_tl = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("TanamanLahanRepository.delete", query);
             return result > 0;
         }
     }
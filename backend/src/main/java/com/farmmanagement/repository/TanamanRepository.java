@@ -3,9 +3,12 @@ package com.farmmanagement.repository;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.Tanaman;
+import com.farmmanagement.util.CacheInvalidationBus;
 
 public class TanamanRepository {
 
@@ -13,7 +16,26 @@ public class TanamanRepository {
     public List<Tanaman> findAll() {
         String sql = "SELECT * FROM tanaman";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql).executeAndFetch(Tanaman.class);
+            return QueryTimer.fetch("TanamanRepository.findAll", conn.createQuery(sql), Tanaman.class);
+        }
+    }
+
+    // Hitung jumlah data tanaman
+    public int count() {
+        String sql = "SELECT COUNT(*) FROM tanaman";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Integer count = QueryTimer.scalar("TanamanRepository.count", conn.createQuery(sql), Integer.class);
+            return count != null ? count : 0;
+        }
+    }
+
+    // Ambil data tanaman terbaru (ORDER BY id_tanaman DESC LIMIT n)
+    public List<Tanaman> findRecent(int limit) {
+        String sql = "SELECT * FROM tanaman ORDER BY id_tanaman DESC LIMIT :limit";
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("limit", limit);
+            return QueryTimer.fetch("TanamanRepository.findRecent", query, Tanaman.class);
         }
     }
 
@@ -21,9 +43,9 @@ public class TanamanRepository {
     public Tanaman findById(int id) {
         String sql = "SELECT * FROM tanaman WHERE id_tanaman = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(Tanaman.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("TanamanRepository.findById", query, Tanaman.class);
         }
     }
 
@@ -31,13 +53,12 @@ public class TanamanRepository {
     public boolean save(Tanaman tanaman) {
         String sql = "INSERT INTO tanaman (nama_tanaman, jenis, waktu_tanam, jumlah_tanaman) VALUES (:nama_tanaman, :jenis, :waktu_tanam, :jumlah_tanaman)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("nama_tanaman", tanaman.getNama_tanaman())
-                             .addParameter("jenis", tanaman.getJenis())
-                             .addParameter("waktu_tanam", tanaman.getWaktu_tanam())
-                             .addParameter("jumlah_tanaman", tanaman.getJumlah_tanaman())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("nama_tanaman", tanaman.getNama_tanaman())
+                              .addParameter("jenis", tanaman.getJenis())
+                              .addParameter("waktu_tanam", tanaman.getWaktu_tanam())
+                              .addParameter("jumlah_tanaman", tanaman.getJumlah_tanaman());
+            int result = QueryTimer.update("TanamanRepository.save", query);
             return result > 0;
         }
     }
@@ -45,15 +66,18 @@ public class TanamanRepository {
     //  Update tanaman berdasarkan ID
     public boolean update(Tanaman tanaman) {
         String sql = "UPDATE tanaman SET nama_tanaman = :nama_tanaman, jenis = :jenis, waktu_tanam = :waktu_tanam, jumlah_tanaman = :jumlah_tanaman WHERE id_tanaman = :id_tanaman";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_tanaman", tanaman.getId_tanaman())
-                             .addParameter("nama_tanaman", tanaman.getNama_tanaman())
-                             .addParameter("jenis", tanaman.getJenis())
-                             .addParameter("waktu_tanam", tanaman.getWaktu_tanam())
-                             .addParameter("jumlah_tanaman", tanaman.getJumlah_tanaman())
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_tanaman", tanaman.getId_tanaman())
+                              .addParameter("nama_tanaman", tanaman.getNama_tanaman())
+                              .addParameter("jenis", tanaman.getJenis())
+                              .addParameter("waktu_tanam", tanaman.getWaktu_tanam())
+                              .addParameter("jumlah_tanaman", tanaman.getJumlah_tanaman());
+            int result = QueryTimer.update("TanamanRepository.update", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.TANAMAN, tanaman.getId_tanaman());
+            }
+            conn.commit();
             return result > 0;
         }
     }
@@ -61,11 +85,14 @@ public class TanamanRepository {
     //  Hapus tanaman berdasarkan ID
     public boolean delete(int id) {
         String sql = "DELETE FROM tanaman WHERE id_tanaman = :id";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("TanamanRepository.delete", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.TANAMAN, id);
+            }
+            conn.commit();
             return result > 0;
         }
     }
@@ -73,12 +100,15 @@ public class TanamanRepository {
     // Decrease jumlah_tanaman by a specific amount
     public boolean decreaseJumlahTanaman(int idTanaman, int amount) {
         String sql = "UPDATE tanaman SET jumlah_tanaman = jumlah_tanaman - :amount WHERE id_tanaman = :id_tanaman AND jumlah_tanaman >= :amount";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id_tanaman", idTanaman)
-                             .addParameter("amount", amount)
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id_tanaman", idTanaman)
+                              .addParameter("amount", amount);
+            int result = QueryTimer.update("TanamanRepository.decreaseJumlahTanaman", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.TANAMAN, idTanaman);
+            }
+            conn.commit();
             return result > 0;
         }
     }
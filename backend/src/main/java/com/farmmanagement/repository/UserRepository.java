@@ -3,9 +3,12 @@ package com.farmmanagement.repository;
 import java.util.List;
 
 import org.sql2o.Connection;
+import org.sql2o.Query;
 
 import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
 import com.farmmanagement.model.User;
+import com.farmmanagement.util.CacheInvalidationBus;
 
 public class UserRepository {
 
@@ -13,9 +16,9 @@ public class UserRepository {
     public User findByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = :username";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("username", username)
-                       .executeAndFetchFirst(User.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("username", username);
+            return QueryTimer.fetchFirst("UserRepository.findByUsername", query, User.class);
         }
     }
     
@@ -23,9 +26,9 @@ public class UserRepository {
     public User findById(int id) {
         String sql = "SELECT id_user, username, role, nama FROM users WHERE id_user = :id";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("id", id)
-                       .executeAndFetchFirst(User.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            return QueryTimer.fetchFirst("UserRepository.findById", query, User.class);
         }
     }
 
@@ -33,9 +36,9 @@ public class UserRepository {
     public List<User> findAllByRole(String role) {
         String sql = "SELECT id_user, username, role, nama FROM users WHERE role = :role";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            return conn.createQuery(sql)
-                       .addParameter("role", role)
-                       .executeAndFetch(User.class);
+            Query query = conn.createQuery(sql)
+                              .addParameter("role", role);
+            return QueryTimer.fetch("UserRepository.findAllByRole", query, User.class);
         }
     }
     
@@ -44,13 +47,12 @@ public class UserRepository {
         // Asumsi: id_user adalah auto-increment
         String sql = "INSERT INTO users(username, password, role, nama) VALUES (:username, :password, :role, :nama)";
         try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("username", user.getUsername())
-                             .addParameter("password", user.getPassword())
-                             .addParameter("role", user.getRole())
-                             .addParameter("nama", user.getNama())
-                             .executeUpdate()
-                             .getResult();
+            Query query = conn.createQuery(sql)
+                              .addParameter("username", user.getUsername())
+                              .addParameter("password", user.getPassword())
+                              .addParameter("role", user.getRole())
+                              .addParameter("nama", user.getNama());
+            int result = QueryTimer.update("UserRepository.save", query);
             return result > 0;
         }
     }
@@ -63,8 +65,8 @@ public class UserRepository {
                      (user.getPassword() != null && !user.getPassword().isEmpty() ? ", password = :password" : "") +
                      " WHERE id_user = :id_user";
         
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            org.sql2o.Query query = conn.createQuery(sql)
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
                 .addParameter("id_user", user.getId_user())
                 .addParameter("username", user.getUsername())
                 .addParameter("nama", user.getNama());
@@ -73,7 +75,27 @@ public class UserRepository {
                 query.addParameter("password", user.getPassword());
             }
             
-            int result = query.executeUpdate().getResult();
+            int result = QueryTimer.update("UserRepository.update", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.USER, user.getId_user());
+            }
+            conn.commit();
+            return result > 0;
+        }
+    }
+    
+    // Update hash password saja (dipakai untuk rehash saat cost BCrypt dinaikkan)
+    public boolean updatePassword(int idUser, String hashedPassword) {
+        String sql = "UPDATE users SET password = :password WHERE id_user = :id_user";
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("password", hashedPassword)
+                              .addParameter("id_user", idUser);
+            int result = QueryTimer.update("UserRepository.updatePassword", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.USER, idUser);
+            }
+            conn.commit();
             return result > 0;
         }
     }
@@ -82,11 +104,14 @@ public class UserRepository {
     // Hapus user
     public boolean delete(int id) {
         String sql = "DELETE FROM users WHERE id_user = :id";
-        try (Connection conn = DatabaseConfig.getSql2o().open()) {
-            int result = conn.createQuery(sql)
-                             .addParameter("id", id)
-                             .executeUpdate()
-                             .getResult();
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Query query = conn.createQuery(sql)
+                              .addParameter("id", id);
+            int result = QueryTimer.update("UserRepository.delete", query);
+            if (result > 0) {
+                CacheInvalidationBus.publish(conn, CacheInvalidationBus.USER, id);
+            }
+            conn.commit();
             return result > 0;
         }
     }
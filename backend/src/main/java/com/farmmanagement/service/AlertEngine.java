@@ -0,0 +1,327 @@
+package com.farmmanagement.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.Alert;
+import com.farmmanagement.model.AlertRule;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.TanamanLahan;
+import com.farmmanagement.repository.AlertRepository;
+import com.farmmanagement.repository.AlertRuleRepository;
+import com.farmmanagement.repository.TanamanLahanRepository;
+import com.farmmanagement.util.LatestReadingsStore;
+import com.farmmanagement.util.MonitoringBroadcaster;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Evaluasi aturan alert secara incremental di memori setiap kali MonitoringService menyimpan data sensor.
+ * - min / max: alert saat nilai melewati batas, selesai (resolved) setelah kembali melewati batas ± hysteresis.
+ * - rate: laju perubahan per jam dibanding data tertua dalam rate_window_minutes (dari LatestReadingsStore).
+ * - Dedup: alert baru untuk aturan + lahan yang sama dalam dedup_minutes setelah alert terakhir tidak dikirim.
+ * State per aturan + lahan hanya di memori (dipulihkan dari alert open saat start). Pengiriman ke tabel alert,
+ * stream SSE dan webhook (ALERT_WEBHOOK_URL) dilakukan satu worker thread di belakang, jadi insert data
+ * sensor tidak ikut menunggu database / webhook. Aturan dan peta lahan-tanaman dimuat ulang setelah CRUD
+ * dan setiap ALERT_RULE_REFRESH_MINUTES (perubahan dari instance lain ikut terbaca).
+ */
+public class AlertEngine {
+    private static final long REFRESH_MINUTES = AppConfig.getLong("ALERT_RULE_REFRESH_MINUTES", 1);
+    private static final int QUEUE_SIZE = AppConfig.getInt("ALERT_QUEUE_SIZE", 1_000);
+    private static final String WEBHOOK_URL = AppConfig.get("ALERT_WEBHOOK_URL", "");
+    private static final long WEBHOOK_TIMEOUT_MS = AppConfig.getLong("ALERT_WEBHOOK_TIMEOUT_MS", 5_000);
+
+    private static final AlertRuleRepository ruleRepo = new AlertRuleRepository();
+    private static final AlertRepository alertRepo = new AlertRepository();
+    private static final TanamanLahanRepository tanamanLahanRepo = new TanamanLahanRepository();
+    private static final Gson gson = new GsonBuilder().serializeNulls().setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
+
+    private static volatile List<AlertRule> rules = List.of();
+    private static volatile Map<Integer, Set<Integer>> tanamanByLahan = Map.of();
+    // Key: id_rule:id_lahan
+    private static final Map<String, RuleState> states = new ConcurrentHashMap<>();
+
+    private static final LongAdder fired = new LongAdder();
+    private static final LongAdder resolved = new LongAdder();
+    private static final LongAdder suppressed = new LongAdder();
+    private static final LongAdder dropped = new LongAdder();
+    private static final LongAdder webhookFailures = new LongAdder();
+
+    private static volatile ThreadPoolExecutor dispatcher;
+    private static ScheduledExecutorService scheduler;
+    private static HttpClient webhookClient;
+
+    private AlertEngine() {}
+
+    public static synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "alert-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!WEBHOOK_URL.isEmpty()) {
+            webhookClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(WEBHOOK_TIMEOUT_MS)).build();
+        }
+
+        reload();
+        restoreOpenAlerts();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-rule-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(AlertEngine::reload, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Muat ulang aturan aktif + lahan yang sedang ditanami tiap tanaman
+    public static void reload() {
+        try {
+            List<AlertRule> active = ruleRepo.findActive();
+            Map<Integer, Set<Integer>> plantings = new HashMap<>();
+            for (TanamanLahan tanamanLahan : tanamanLahanRepo.findActivePlantings()) {
+                plantings.computeIfAbsent(tanamanLahan.getId_lahan(), id -> new HashSet<>()).add(tanamanLahan.getId_tanaman());
+            }
+            Map<Integer, AlertRule> previous = new HashMap<>();
+            for (AlertRule rule : rules) previous.put(rule.getId_rule(), rule);
+            rules = List.copyOf(active);
+            tanamanByLahan = plantings;
+
+            // State aturan yang dihapus / dinonaktifkan dibuang, begitu juga aturan yang targetnya berubah
+            // (alert open-nya sudah ditutup AlertRuleRepository.update, jadi evaluasi mulai dari awal)
+            Set<Integer> ids = new HashSet<>();
+            for (AlertRule rule : active) {
+                AlertRule before = previous.get(rule.getId_rule());
+                if (before == null || rule.hasSameTarget(before)) ids.add(rule.getId_rule());
+            }
+            states.keySet().removeIf(key -> !ids.contains(Integer.parseInt(key.substring(0, key.indexOf(':')))));
+        } catch (Exception e) {
+            System.err.println("⚠️ Alert rule reload failed: " + e.getMessage());
+        }
+    }
+
+    // Alert yang masih open sebelum restart: state dianggap aktif supaya tidak terkirim dua kali
+    private static void restoreOpenAlerts() {
+        try {
+            for (Alert alert : alertRepo.findOpen()) {
+                RuleState state = stateFor(alert.getId_rule(), alert.getId_lahan());
+                state.active = true;
+                state.alertOpen = true;
+                state.lastFiredAt = alert.getTanggal().getTime();
+                state.lastEvaluatedAt = alert.getTanggal().getTime();
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Restoring open alerts failed: " + e.getMessage());
+        }
+    }
+
+    // Dipanggil MonitoringService setelah data disimpan dan masuk LatestReadingsStore
+    public static void evaluate(Monitoring monitoring) {
+        List<AlertRule> current = rules;
+        if (dispatcher == null || current.isEmpty() || monitoring.getTanggal() == null) {
+            return;
+        }
+        int idLahan = monitoring.getId_lahan();
+        Set<Integer> tanaman = tanamanByLahan.getOrDefault(idLahan, Set.of());
+        for (AlertRule rule : current) {
+            if (rule.getId_lahan() != null && rule.getId_lahan() != idLahan) continue;
+            if (rule.getId_tanaman() != null && !tanaman.contains(rule.getId_tanaman())) continue;
+            evaluate(rule, monitoring);
+        }
+    }
+
+    private static void evaluate(AlertRule rule, Monitoring monitoring) {
+        long epoch = monitoring.getTanggal().getTime();
+        double value = "suhu".equals(rule.getMetric()) ? monitoring.getSuhu() : monitoring.getKelembaban();
+        if ("rate".equals(rule.getKind())) {
+            Double rate = ratePerHour(rule, monitoring.getId_lahan(), epoch, value);
+            if (rate == null) return;
+            value = rate;
+        }
+
+        boolean breach;
+        boolean clear;
+        switch (rule.getKind()) {
+            case "min":
+                breach = value < rule.getThreshold();
+                clear = value >= rule.getThreshold() + rule.getHysteresis();
+                break;
+            case "max":
+                breach = value > rule.getThreshold();
+                clear = value <= rule.getThreshold() - rule.getHysteresis();
+                break;
+            default:
+                breach = Math.abs(value) > rule.getThreshold();
+                clear = Math.abs(value) <= rule.getThreshold() - rule.getHysteresis();
+                break;
+        }
+
+        RuleState state = stateFor(rule.getId_rule(), monitoring.getId_lahan());
+        synchronized (state) {
+            // Data yang datang terlambat tidak mengubah state (urutan waktu per lahan dijaga)
+            if (epoch < state.lastEvaluatedAt) return;
+            state.lastEvaluatedAt = epoch;
+
+            if (!state.active && breach) {
+                state.active = true;
+                if (epoch - state.lastFiredAt < rule.getDedup_minutes() * 60_000L) {
+                    suppressed.increment();
+                    return;
+                }
+                state.lastFiredAt = epoch;
+                state.alertOpen = true;
+                fired.increment();
+                dispatch(buildAlert(rule, monitoring, value, "open"));
+            } else if (state.active && clear) {
+                state.active = false;
+                if (state.alertOpen) {
+                    state.alertOpen = false;
+                    resolved.increment();
+                    dispatch(buildAlert(rule, monitoring, value, "resolved"));
+                }
+            }
+        }
+    }
+
+    // Laju per jam dibanding data tertua dalam jendela; null jika belum ada pembanding
+    private static Double ratePerHour(AlertRule rule, int idLahan, long epoch, double value) {
+        LatestReadingsStore store = MonitoringService.getLatestReadings();
+        LatestReadingsStore.Readings readings = store.latest(idLahan, store.getCapacity());
+        if (readings == null) return null;
+        long windowStart = epoch - rule.getRate_window_minutes() * 60_000L;
+        boolean suhu = "suhu".equals(rule.getMetric());
+        // Index 0 = terbaru; cari dari belakang data tertua yang masih di dalam jendela
+        for (int i = readings.size() - 1; i >= 0; i--) {
+            long tanggal = readings.getTanggal(i);
+            if (tanggal < windowStart) continue;
+            if (tanggal >= epoch) return null;
+            double previous = suhu ? readings.getSuhu(i) : readings.getKelembaban(i);
+            return (value - previous) / ((epoch - tanggal) / 3_600_000.0);
+        }
+        return null;
+    }
+
+    private static Alert buildAlert(AlertRule rule, Monitoring monitoring, double value, String status) {
+        Alert alert = new Alert();
+        alert.setId_rule(rule.getId_rule());
+        alert.setId_lahan(monitoring.getId_lahan());
+        alert.setMetric(rule.getMetric());
+        alert.setKind(rule.getKind());
+        alert.setNilai(value);
+        alert.setThreshold(rule.getThreshold());
+        alert.setStatus(status);
+        alert.setTanggal(monitoring.getTanggal());
+        if ("resolved".equals(status)) {
+            alert.setResolved_at(monitoring.getTanggal());
+        }
+        alert.setPesan(describe(rule, monitoring.getId_lahan(), value, status));
+        return alert;
+    }
+
+    private static String describe(AlertRule rule, int idLahan, double value, String status) {
+        String subject = ("suhu".equals(rule.getMetric()) ? "Suhu" : "Kelembaban") + " lahan " + idLahan;
+        if ("resolved".equals(status)) {
+            return String.format("%s kembali normal (%.2f)", subject, value);
+        }
+        switch (rule.getKind()) {
+            case "min":
+                return String.format("%s %.2f di bawah batas %.2f", subject, value, rule.getThreshold());
+            case "max":
+                return String.format("%s %.2f di atas batas %.2f", subject, value, rule.getThreshold());
+            default:
+                return String.format("%s berubah %.2f per jam (batas %.2f)", subject, value, rule.getThreshold());
+        }
+    }
+
+    private static void dispatch(Alert alert) {
+        try {
+            dispatcher.execute(() -> deliver(alert));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            System.err.println("⚠️ Alert queue full, dropped: " + alert.getPesan());
+        }
+    }
+
+    // Dijalankan worker: simpan ke tabel, kirim ke SSE, lalu webhook
+    private static void deliver(Alert alert) {
+        try {
+            if ("open".equals(alert.getStatus())) {
+                alertRepo.insert(alert);
+            } else {
+                alertRepo.resolveOpen(alert.getId_rule(), alert.getId_lahan(), alert.getResolved_at());
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Saving alert failed: " + e.getMessage());
+        }
+        MonitoringBroadcaster.publishAlert(alert);
+        System.out.println("🚨 Alert " + alert.getStatus() + ": " + alert.getPesan());
+
+        if (webhookClient != null) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(WEBHOOK_URL))
+                        .timeout(Duration.ofMillis(WEBHOOK_TIMEOUT_MS))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(alert)))
+                        .build();
+                HttpResponse<Void> response = webhookClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 300) {
+                    webhookFailures.increment();
+                    System.err.println("⚠️ Alert webhook returned HTTP " + response.statusCode());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                webhookFailures.increment();
+                System.err.println("⚠️ Alert webhook failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static RuleState stateFor(int idRule, int idLahan) {
+        return states.computeIfAbsent(idRule + ":" + idLahan, key -> new RuleState());
+    }
+
+    public static int getRuleCount() {
+        return rules.size();
+    }
+
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("rules", (long) rules.size());
+        stats.put("tracked_states", (long) states.size());
+        stats.put("fired", fired.sum());
+        stats.put("resolved", resolved.sum());
+        stats.put("suppressed", suppressed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("webhook_failures", webhookFailures.sum());
+        return stats;
+    }
+
+    private static final class RuleState {
+        boolean active;
+        boolean alertOpen;
+        long lastFiredAt = Long.MIN_VALUE / 2;
+        long lastEvaluatedAt = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,73 @@
+package com.farmmanagement.service;
+
+import java.util.List;
+
+import com.farmmanagement.model.Alert;
+import com.farmmanagement.model.AlertRule;
+import com.farmmanagement.repository.AlertRepository;
+import com.farmmanagement.repository.AlertRuleRepository;
+import com.farmmanagement.util.TimeRange;
+
+public class AlertService {
+    public static final int MAX_ALERTS = 1_000;
+
+    private final AlertRuleRepository ruleRepo = new AlertRuleRepository();
+    private final AlertRepository alertRepo = new AlertRepository();
+
+    public List<AlertRule> getAllRules() {
+        return ruleRepo.findAll();
+    }
+
+    public AlertRule getRuleById(int id) {
+        return ruleRepo.findById(id);
+    }
+
+    // Setiap perubahan aturan langsung dimuat ulang ke AlertEngine di instance ini
+    public boolean addRule(AlertRule rule) {
+        boolean added = ruleRepo.insert(rule);
+        if (added) AlertEngine.reload();
+        return added;
+    }
+
+    public boolean updateRule(AlertRule rule) {
+        boolean updated = ruleRepo.update(rule);
+        if (updated) AlertEngine.reload();
+        return updated;
+    }
+
+    public boolean deleteRule(int id) {
+        boolean deleted = ruleRepo.delete(id);
+        if (deleted) AlertEngine.reload();
+        return deleted;
+    }
+
+    public List<Alert> getAlerts(TimeRange range, String status, Integer idLahan, int limit) {
+        return alertRepo.find(range, status, idLahan, limit);
+    }
+
+    // Validasi aturan; null jika valid, pesan error jika tidak
+    public String validateRule(AlertRule rule) {
+        if (!"suhu".equals(rule.getMetric()) && !"kelembaban".equals(rule.getMetric())) {
+            return "Metric harus 'suhu' atau 'kelembaban'";
+        }
+        if (!"min".equals(rule.getKind()) && !"max".equals(rule.getKind()) && !"rate".equals(rule.getKind())) {
+            return "Kind harus 'min', 'max' atau 'rate'";
+        }
+        if (rule.getId_lahan() != null && rule.getId_tanaman() != null) {
+            return "Aturan hanya boleh untuk satu lahan atau satu tanaman, tidak keduanya";
+        }
+        if ("rate".equals(rule.getKind()) && rule.getThreshold() <= 0) {
+            return "Batas laju perubahan harus lebih dari 0";
+        }
+        if (rule.getHysteresis() < 0) {
+            return "Hysteresis tidak boleh negatif";
+        }
+        if (rule.getDedup_minutes() < 0) {
+            return "Dedup minutes tidak boleh negatif";
+        }
+        if (rule.getRate_window_minutes() <= 0) {
+            return "Rate window minutes harus lebih dari 0";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.farmmanagement.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+import com.farmmanagement.model.HasilPanen;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.Pembelian;
+import com.farmmanagement.repository.HasilPanenRepository;
+import com.farmmanagement.repository.MonitoringArchiveRepository;
+import com.farmmanagement.repository.MonitoringRepository;
+import com.farmmanagement.repository.PembelianRepository;
+import com.farmmanagement.util.CsvWriter;
+import com.farmmanagement.util.TimeRange;
+
+// Export CSV: baris ditulis langsung dari cursor JDBC (dan arsip monitoring) ke output, tanpa list di memori
+public class ExportService {
+    private final MonitoringRepository monitoringRepo = new MonitoringRepository();
+    private final MonitoringArchiveRepository archiveRepo = new MonitoringArchiveRepository();
+    private final HasilPanenRepository hasilPanenRepo = new HasilPanenRepository();
+    private final PembelianRepository pembelianRepo = new PembelianRepository();
+
+    // Data dari tabel dan arsip kolumnar digabung urut (tanggal, id_monitor); jika id sama, versi database dipakai
+    public void exportMonitoring(TimeRange range, Integer idLahan, CsvWriter csv) throws IOException {
+        csv.writeRow("id_monitor", "id_lahan", "tanggal", "suhu", "kelembaban");
+        Iterator<Monitoring> archived = archiveRepo.overlaps(range)
+                ? archiveRepo.iterate(range, idLahan)
+                : Collections.emptyIterator();
+        monitoringRepo.streamRange(range, idLahan, rows -> {
+            Monitoring nextArchived = archived.hasNext() ? archived.next() : null;
+            for (Monitoring live : rows) {
+                while (nextArchived != null && MonitoringArchiveRepository.BY_TANGGAL.compare(nextArchived, live) <= 0) {
+                    if (nextArchived.getId_monitor() != live.getId_monitor()) {
+                        writeMonitoring(csv, nextArchived);
+                    }
+                    nextArchived = archived.hasNext() ? archived.next() : null;
+                }
+                writeMonitoring(csv, live);
+            }
+            while (nextArchived != null) {
+                writeMonitoring(csv, nextArchived);
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+        });
+    }
+
+    public void exportHasilPanen(TimeRange range, Integer idLahan, CsvWriter csv) throws IOException {
+        csv.writeRow("id_hasil", "id_tanaman", "id_lahan", "id_pengawas", "tanggal_panen",
+                     "kuantitas", "kualitas", "harga_satuan", "status");
+        hasilPanenRepo.streamRange(range, idLahan, rows -> {
+            for (HasilPanen hasil : rows) {
+                csv.writeRow(hasil.getId_hasil(), hasil.getId_tanaman(), hasil.getId_lahan(), hasil.getId_pengawas(),
+                             hasil.getTanggal_panen(), hasil.getKuantitas(), hasil.getKualitas(),
+                             hasil.getHarga_satuan(), hasil.getStatus());
+            }
+        });
+    }
+
+    public void exportPembelian(TimeRange range, Integer idLahan, CsvWriter csv) throws IOException {
+        csv.writeRow("id_pembelian", "id_pembeli", "id_penjual", "id_hasil", "id_tanaman", "tanggal",
+                     "jumlah", "total_harga", "status");
+        pembelianRepo.streamRange(range, idLahan, rows -> {
+            for (Pembelian pembelian : rows) {
+                csv.writeRow(pembelian.getId_pembelian(), pembelian.getId_pembeli(), pembelian.getId_penjual(),
+                             pembelian.getId_hasil(), pembelian.getId_tanaman(), pembelian.getTanggal(),
+                             pembelian.getJumlah(), pembelian.getTotal_harga(), pembelian.getStatus());
+            }
+        });
+    }
+
+    private static void writeMonitoring(CsvWriter csv, Monitoring monitoring) throws IOException {
+        csv.writeRow(monitoring.getId_monitor(), monitoring.getId_lahan(), monitoring.getTanggal(),
+                     monitoring.getSuhu(), monitoring.getKelembaban());
+    }
+}
@@ -1,8 +1,10 @@
 package com.farmmanagement.service;
 
+import java.io.IOException;
 import java.util.List;
 
 import com.farmmanagement.model.HasilPanen;
+import com.farmmanagement.util.PageRequest;
 import com.farmmanagement.repository.HasilPanenRepository;
 
 public class HasilPanenService {
@@ -17,6 +19,10 @@ public class HasilPanenService {
         return repo.findAll();
     }
 
+    public <R> R streamHasilPanenPage(PageRequest page, PageRequest.RowHandler<HasilPanen, R> handler) throws IOException {
+        return repo.streamPage(page, handler);
+    }
+
     public HasilPanen getHasilPanenById(int id) {
         return repo.findById(id);
     }
@@ -2,10 +2,24 @@ package com.farmmanagement.service;
 
 import java.util.List;
 
+import com.farmmanagement.config.AppConfig;
 import com.farmmanagement.model.Lahan;
 import com.farmmanagement.repository.LahanRepository;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.ExpiringLruCache;
 
 public class LahanService {
+    // Cache lookup by ID untuk validasi di jalur tulis (hasil panen, monitoring, dsb.).
+    // Objek di cache dipakai bersama, jangan diubah langsung oleh pemanggil.
+    private static final ExpiringLruCache<Integer, Lahan> cache = new ExpiringLruCache<>(
+            AppConfig.getInt("LAHAN_CACHE_SIZE", 1_000),
+            AppConfig.getLong("LAHAN_CACHE_TTL_MS", 60_000));
+
+    static {
+        // Baris yang diubah node lain ikut dibuang dari cache node ini
+        CacheInvalidationBus.subscribe(CacheInvalidationBus.LAHAN, cache);
+    }
+
     private final LahanRepository repo = new LahanRepository();
 
     public List<Lahan> getAllLahan() {
@@ -13,7 +27,7 @@ public class LahanService {
     }
 
     public Lahan getLahanById(int id) {
-        return repo.findById(id);
+        return cache.getOrLoad(id, repo::findById);
     }
 
     public boolean addLahan(Lahan l) {
@@ -23,10 +37,27 @@ public class LahanService {
 
     public boolean updateLahan(Lahan l) {
         // Tambahkan validasi, misalnya: l.getLuas() > 0
-        return repo.update(l);
+        try {
+            return repo.update(l);
+        } finally {
+            cache.invalidate(l.getId_lahan());
+        }
     }
 
     public boolean deleteLahan(int id) {
-        return repo.delete(id);
+        try {
+            boolean deleted = repo.delete(id);
+            if (deleted) {
+                // Data monitoring lahan ini ikut terhapus (FK), buang juga dari store bacaan terbaru
+                MonitoringService.getLatestReadings().remove(id);
+            }
+            return deleted;
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    public static ExpiringLruCache<Integer, Lahan> getCache() {
+        return cache;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.farmmanagement.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.repository.HasilPanenRepository;
+import com.farmmanagement.repository.MonitoringRepository;
+import com.farmmanagement.repository.TanamanLahanRepository;
+import com.farmmanagement.repository.TanamanRepository;
+
+/**
+ * Ringkasan dashboard manajer: COUNT + 3 data terbaru per entitas,
+ * dijalankan paralel dan disimpan sebentar (TTL) agar login massal tidak membebani DB.
+ */
+public class ManagerSummaryService {
+    private static final int RECENT_LIMIT = 3;
+    private static final long CACHE_TTL_MS = AppConfig.getLong("SUMMARY_CACHE_TTL_MS", 5_000);
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "manager-summary");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Object refreshLock = new Object();
+    private static volatile Map<String, Object> cachedSummary;
+    private static volatile long cachedAt;
+
+    private final HasilPanenRepository hasilPanenRepo = new HasilPanenRepository();
+    private final MonitoringRepository monitoringRepo = new MonitoringRepository();
+    private final TanamanRepository tanamanRepo = new TanamanRepository();
+    private final TanamanLahanRepository tanamanLahanRepo = new TanamanLahanRepository();
+
+    public Map<String, Object> getSummary(boolean fresh) {
+        if (!fresh && CACHE_TTL_MS > 0) {
+            Map<String, Object> snapshot = cachedSummary;
+            if (snapshot != null && System.currentTimeMillis() - cachedAt < CACHE_TTL_MS) {
+                return snapshot;
+            }
+            // Hanya satu request yang memuat ulang; request lain memakai hasilnya
+            synchronized (refreshLock) {
+                snapshot = cachedSummary;
+                if (snapshot != null && System.currentTimeMillis() - cachedAt < CACHE_TTL_MS) {
+                    return snapshot;
+                }
+                return refresh();
+            }
+        }
+        return refresh();
+    }
+
+    private Map<String, Object> refresh() {
+        CompletableFuture<EntitySummary> hasilPanen = load(hasilPanenRepo::count, () -> hasilPanenRepo.findRecent(RECENT_LIMIT));
+        CompletableFuture<EntitySummary> monitoring = load(monitoringRepo::count, () -> monitoringRepo.findRecent(RECENT_LIMIT));
+        CompletableFuture<EntitySummary> tanaman = load(tanamanRepo::count, () -> tanamanRepo.findRecent(RECENT_LIMIT));
+        CompletableFuture<EntitySummary> tanamanLahan = load(tanamanLahanRepo::count, () -> tanamanLahanRepo.findRecent(RECENT_LIMIT));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("total_hasil_panen", hasilPanen.join().total);
+        summary.put("total_monitoring_records", monitoring.join().total);
+        summary.put("total_tanaman", tanaman.join().total);
+        summary.put("total_tanaman_lahan", tanamanLahan.join().total);
+        summary.put("recent_hasil_panen", hasilPanen.join().recent);
+        summary.put("recent_monitoring", monitoring.join().recent);
+        summary.put("recent_tanaman", tanaman.join().recent);
+        summary.put("recent_tanaman_lahan", tanamanLahan.join().recent);
+
+        cachedSummary = summary;
+        cachedAt = System.currentTimeMillis();
+        return summary;
+    }
+
+    private static CompletableFuture<EntitySummary> load(IntSupplier count, Supplier<List<?>> recent) {
+        return CompletableFuture.supplyAsync(() -> new EntitySummary(count.getAsInt(), recent.get()), executor);
+    }
+
+    private static class EntitySummary {
+        final int total;
+        final List<?> recent;
+
+        EntitySummary(int total, List<?> recent) {
+            this.total = total;
+            this.recent = recent;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.farmmanagement.service;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.sql2o.Connection;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.config.DatabaseConfig;
+import com.farmmanagement.metrics.QueryTimer;
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.repository.MonitoringArchiveRepository;
+import com.farmmanagement.util.CacheInvalidationBus;
+
+/**
+ * Memindahkan data monitoring bulan yang sudah lewat ke arsip kolumnar (MonitoringArchiveRepository),
+ * opt-in lewat MONITORING_ARCHIVE_ENABLED=true:
+ * - Bulan yang lebih tua dari MONITORING_ARCHIVE_AFTER_MONTHS (minimal 1, jadi bulan berjalan tidak
+ *   pernah diarsip) ditulis per lahan lalu barisnya dihapus dari tabel monitoring.
+ * - Partisi yang dilepas ke schema monitoring_archive (MONITORING_RETENTION_ACTION=archive) ikut
+ *   diarsip lalu tabelnya di-DROP.
+ * - Data terlambat untuk bulan yang sudah diarsip digabung ke file yang ada pada run berikutnya.
+ * Per lahan per bulan satu transaksi; file ditulis sebelum commit, jadi jika commit gagal baris yang
+ * sama sempat ada di dua tempat dan query memakai versi database. Arsip ada di disk lokal: jalankan
+ * di satu node saja (atau direktori bersama), antar node dikoordinasi dengan advisory lock.
+ * Data yang sudah diarsip hanya bisa dibaca (update/delete per ID tidak menemukan barisnya).
+ */
+public class MonitoringArchiver {
+    private static final boolean ENABLED = AppConfig.getBoolean("MONITORING_ARCHIVE_ENABLED", false);
+    private static final int AFTER_MONTHS = Math.max(1, AppConfig.getInt("MONITORING_ARCHIVE_AFTER_MONTHS", 3));
+    private static final long CHECK_INTERVAL_MINUTES = AppConfig.getLong("MONITORING_ARCHIVE_CHECK_MINUTES", 60);
+    private static final String ARCHIVE_SCHEMA = "monitoring_archive";
+    private static final Pattern PARTITION_NAME = Pattern.compile("monitoring_y(\\d{4})m(\\d{2})");
+    private static final long ADVISORY_LOCK_KEY = 7_310_157_016L;
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+
+    private static final MonitoringArchiveRepository archive = new MonitoringArchiveRepository();
+    private static final LongAdder archivedRows = new LongAdder();
+    private static ScheduledExecutorService scheduler;
+
+    private MonitoringArchiver() {}
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "monitoring-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Run pertama di background supaya startup tidak menunggu arsip bulan-bulan lama
+        scheduler.scheduleWithFixedDelay(MonitoringArchiver::run, 0, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Satu putaran arsip; -1 jika node lain sedang mengarsip
+    public static synchronized int run() {
+        long start = System.currentTimeMillis();
+        try (Connection lockConn = DatabaseConfig.getSql2o().open()) {
+            Boolean locked = lockConn.createQuery("SELECT pg_try_advisory_lock(:key)")
+                                     .addParameter("key", ADVISORY_LOCK_KEY)
+                                     .executeScalar(Boolean.class);
+            if (!Boolean.TRUE.equals(locked)) {
+                return -1;
+            }
+            try {
+                int rows = 0;
+                for (String table : detachedPartitions()) {
+                    Matcher matcher = PARTITION_NAME.matcher(table);
+                    if (matcher.matches()) {
+                        YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                        rows += archiveMonth(ARCHIVE_SCHEMA + "." + table, month);
+                        dropIfEmpty(ARCHIVE_SCHEMA + "." + table);
+                    }
+                }
+
+                Timestamp cutoff = Timestamp.valueOf(YearMonth.now().minusMonths(AFTER_MONTHS).atDay(1).atStartOfDay());
+                YearMonth month = oldestMonthBefore(cutoff);
+                while (month != null) {
+                    rows += archiveMonth("monitoring", month);
+                    YearMonth next = oldestMonthBefore(cutoff);
+                    // Baris yang tersisa (mis. dikunci transaksi lain) dicoba lagi di run berikutnya
+                    month = next != null && next.isAfter(month) ? next : null;
+                }
+
+                if (rows > 0) {
+                    System.out.println("✅ Monitoring archive: " + rows + " rows archived in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                }
+                return rows;
+            } finally {
+                lockConn.createQuery("SELECT pg_advisory_unlock(:key)")
+                        .addParameter("key", ADVISORY_LOCK_KEY)
+                        .executeScalar();
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Monitoring archive failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public static long getArchivedRows() {
+        return archivedRows.sum();
+    }
+
+    // Arsip satu bulan dari satu tabel, per lahan (memori dibatasi data satu lahan satu bulan)
+    private static int archiveMonth(String table, YearMonth month) {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        List<Integer> lahanIds;
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            lahanIds = QueryTimer.scalarList("MonitoringArchiver.lahan",
+                    conn.createQuery("SELECT DISTINCT id_lahan FROM " + table + " WHERE tanggal >= :from AND tanggal < :to ORDER BY 1")
+                        .addParameter("from", from)
+                        .addParameter("to", to), Integer.class);
+        }
+
+        int total = 0;
+        for (Integer idLahan : lahanIds) {
+            try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+                // FOR UPDATE: baris yang sedang di-update / delete tidak ikut diarsip setengah jalan
+                List<Monitoring> rows = QueryTimer.fetch("MonitoringArchiver.rows",
+                        conn.createQuery("SELECT * FROM " + table + " WHERE id_lahan = :id_lahan " +
+                                         "AND tanggal >= :from AND tanggal < :to ORDER BY tanggal, id_monitor FOR UPDATE")
+                            .addParameter("id_lahan", idLahan.intValue())
+                            .addParameter("from", from)
+                            .addParameter("to", to), Monitoring.class);
+                if (rows.isEmpty()) {
+                    conn.rollback();
+                    continue;
+                }
+
+                // Gabung dengan isi file yang sudah ada; baris database menang jika id sama
+                Set<Integer> ids = new HashSet<>();
+                for (Monitoring row : rows) {
+                    ids.add(row.getId_monitor());
+                }
+                List<Monitoring> merged = new ArrayList<>(rows);
+                for (Monitoring existing : archive.findSegment(month, idLahan)) {
+                    if (!ids.contains(existing.getId_monitor())) {
+                        merged.add(existing);
+                    }
+                }
+                merged.sort(MonitoringArchiveRepository.BY_TANGGAL);
+                archive.writeSegment(month, idLahan, merged);
+
+                List<Integer> idList = new ArrayList<>(ids);
+                for (int i = 0; i < idList.size(); i += DELETE_CHUNK_SIZE) {
+                    QueryTimer.update("MonitoringArchiver.delete",
+                            conn.createQuery("DELETE FROM " + table + " WHERE tanggal >= :from AND tanggal < :to " +
+                                             "AND id_monitor IN (:ids)")
+                                .addParameter("from", from)
+                                .addParameter("to", to)
+                                .addParameter("ids", idList.subList(i, Math.min(i + DELETE_CHUNK_SIZE, idList.size()))));
+                }
+                // Terkirim saat commit: node lain membaca ulang katalog begitu barisnya hilang dari database
+                CacheInvalidationBus.publishAll(conn, CacheInvalidationBus.MONITORING_ARCHIVE);
+                conn.commit();
+                archivedRows.add(rows.size());
+                total += rows.size();
+            }
+        }
+        return total;
+    }
+
+    private static YearMonth oldestMonthBefore(Timestamp cutoff) {
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            Timestamp oldest = QueryTimer.scalar("MonitoringArchiver.oldest",
+                    conn.createQuery("SELECT MIN(tanggal) FROM monitoring WHERE tanggal < :cutoff")
+                        .addParameter("cutoff", cutoff), Timestamp.class);
+            return oldest != null ? YearMonth.from(oldest.toLocalDateTime()) : null;
+        }
+    }
+
+    private static List<String> detachedPartitions() {
+        try (Connection conn = DatabaseConfig.getSql2o().open()) {
+            return conn.createQuery("SELECT tablename FROM pg_tables WHERE schemaname = :schema ORDER BY tablename")
+                       .addParameter("schema", ARCHIVE_SCHEMA)
+                       .executeScalarList(String.class);
+        }
+    }
+
+    private static void dropIfEmpty(String table) {
+        try (Connection conn = DatabaseConfig.getSql2o().beginTransaction()) {
+            Boolean empty = conn.createQuery("SELECT NOT EXISTS (SELECT 1 FROM " + table + ")").executeScalar(Boolean.class);
+            if (Boolean.TRUE.equals(empty)) {
+                conn.createQuery("DROP TABLE " + table).executeUpdate();
+            }
+            conn.commit();
+        }
+    }
+}
@@ -1,30 +1,306 @@
 package com.farmmanagement.service;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import com.farmmanagement.config.AppConfig;
 import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.model.MonitoringSeriesPoint;
+import com.farmmanagement.model.RollupResolution;
+import com.farmmanagement.util.LatestReadingsStore;
+import com.farmmanagement.util.MonitoringBroadcaster;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.TimeRange;
+import com.farmmanagement.repository.MonitoringArchiveRepository;
 import com.farmmanagement.repository.MonitoringRepository;
+import com.farmmanagement.repository.MonitoringRollupRepository;
 
 public class MonitoringService {
+    public static final int SERIES_DEFAULT_POINTS = AppConfig.getInt("MONITORING_SERIES_POINTS", 500);
+    public static final int SERIES_MAX_POINTS = AppConfig.getInt("MONITORING_SERIES_MAX_POINTS", 5000);
+    // Batas baris untuk resolution=raw (rentang pendek); rentang panjang selalu lewat rollup
+    public static final int SERIES_RAW_LIMIT = AppConfig.getInt("MONITORING_SERIES_RAW_LIMIT", 10000);
+
+    // Bacaan terbaru per lahan untuk /api/monitoring/latest, dipakai bersama semua instance service
+    private static final LatestReadingsStore latestReadings =
+        new LatestReadingsStore(AppConfig.getInt("MONITORING_LATEST_SIZE", 60));
+
     private final MonitoringRepository repo = new MonitoringRepository();
+    private final MonitoringRollupRepository rollupRepo = new MonitoringRollupRepository();
+    private final MonitoringArchiveRepository archiveRepo = new MonitoringArchiveRepository();
 
     public boolean addMonitoring(Monitoring monitoring) {
-        return repo.insert(monitoring);
+        boolean added = repo.insert(monitoring);
+        if (added) {
+            latestReadings.add(monitoring);
+            MonitoringBroadcaster.publish(monitoring);
+            AlertEngine.evaluate(monitoring);
+        }
+        return added;
+    }
+
+    // Tambah banyak data sensor dalam satu transaksi (data harus sudah divalidasi). Jika database tetap
+    // menolak batch karena datanya (constraint / nilai, mis. lahan dihapus setelah validasi), transaksi
+    // sudah di-rollback dan baris disimpan satu per satu: yang gagal dicatat di rejected
+    // (posisi di readings -> pesan), sisanya tetap tersimpan.
+    public int addMonitoringBatch(List<Monitoring> readings, Map<Integer, String> rejected) {
+        if (readings.isEmpty()) return 0;
+        try {
+            repo.insertBatch(readings);
+            publishAll(readings);
+            return readings.size();
+        } catch (RuntimeException e) {
+            if (!isDataError(e)) {
+                throw e;
+            }
+            System.err.println("⚠️ Monitoring batch ditolak database, disimpan per baris: " + e.getMessage());
+        }
+
+        List<Monitoring> stored = new ArrayList<>();
+        try {
+            for (int i = 0; i < readings.size(); i++) {
+                Monitoring monitoring = readings.get(i);
+                try {
+                    if (repo.insert(monitoring)) {
+                        stored.add(monitoring);
+                    } else {
+                        rejected.put(i, "Data monitoring gagal disimpan");
+                    }
+                } catch (RuntimeException e) {
+                    String state = dataErrorState(e);
+                    if (state == null) {
+                        throw e;
+                    }
+                    rejected.put(i, "23503".equals(state)
+                            ? "Lahan dengan ID " + monitoring.getId_lahan() + " tidak ditemukan"
+                            : "Data monitoring ditolak database (SQLSTATE " + state + ")");
+                }
+            }
+        } finally {
+            // Baris yang sudah commit tetap masuk store bacaan terbaru dan stream walau ada error lain
+            publishAll(stored);
+        }
+        return stored.size();
+    }
+
+    private static void publishAll(List<Monitoring> readings) {
+        for (Monitoring monitoring : readings) {
+            latestReadings.add(monitoring);
+            MonitoringBroadcaster.publish(monitoring);
+            AlertEngine.evaluate(monitoring);
+        }
+    }
+
+    private static boolean isDataError(Throwable e) {
+        return dataErrorState(e) != null;
+    }
+
+    // SQLSTATE kelas 22 (data exception) dan 23 (integrity constraint): salah data, bukan salah server;
+    // null untuk error lain (koneksi, timeout, dsb.)
+    private static String dataErrorState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return state;
+                }
+            }
+        }
+        return null;
+    }
+
+    public static LatestReadingsStore getLatestReadings() {
+        return latestReadings;
+    }
+
+    // Isi store bacaan terbaru dari database sebelum route aktif (satu query untuk semua lahan)
+    public static void warmLatestReadings() {
+        long start = System.currentTimeMillis();
+        try {
+            List<Monitoring> recent = new MonitoringRepository().findRecentPerLahan(latestReadings.getCapacity());
+            for (Monitoring monitoring : recent) {
+                latestReadings.add(monitoring);
+            }
+            System.out.println("✅ Latest monitoring readings warmed: " + recent.size() + " rows in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("⚠️ Latest monitoring warm-up failed: " + e.getMessage());
+        }
+    }
+
+    // Validasi satu data sensor; null jika valid, pesan error jika tidak
+    public String validateMonitoring(Monitoring monitoring) {
+        if (monitoring.getId_lahan() <= 0) {
+            return "ID lahan harus valid (lebih dari 0)";
+        }
+        if (monitoring.getSuhu() < -50 || monitoring.getSuhu() > 60) {
+            return "Suhu harus dalam rentang -50°C sampai 60°C";
+        }
+        if (monitoring.getKelembaban() < 0 || monitoring.getKelembaban() > 100) {
+            return "Kelembaban harus dalam rentang 0% sampai 100%";
+        }
+        if (monitoring.getTanggal() == null) {
+            return "Tanggal monitoring tidak boleh kosong";
+        }
+        return null;
+    }
+
+    // Tanpa arsip di rentang ini halaman di-stream langsung dari cursor JDBC; jika rentang menyentuh bulan
+    // yang sudah diarsip, limit + 1 baris dari kedua sumber digabung di memori (urut id_monitor)
+    public <R> R streamMonitoringPage(PageRequest page, TimeRange range, PageRequest.RowHandler<Monitoring, R> handler) throws IOException {
+        if (!archiveRepo.overlaps(range)) {
+            return repo.streamPage(page, range, handler);
+        }
+        int fetch = page.getLimit() + 1;
+        List<Monitoring> live = repo.findPage(page, range, fetch);
+        List<Monitoring> merged = withoutDuplicates(archiveRepo.findPage(page, range, fetch), live);
+        merged.addAll(live);
+        merged.sort(page.isDescending()
+                ? (a, b) -> Integer.compare(b.getId_monitor(), a.getId_monitor())
+                : (a, b) -> Integer.compare(a.getId_monitor(), b.getId_monitor()));
+        String nextCursor = null;
+        if (merged.size() > page.getLimit()) {
+            merged = merged.subList(0, page.getLimit());
+            nextCursor = String.valueOf(merged.get(merged.size() - 1).getId_monitor());
+        }
+        return handler.handle(merged, nextCursor);
+    }
+
+    // Baris arsip yang id-nya masih ada di database dibuang (arsip yang commit-nya gagal, versi database menang)
+    private static List<Monitoring> withoutDuplicates(List<Monitoring> archived, List<Monitoring> live) {
+        Set<Integer> liveIds = new HashSet<>();
+        for (Monitoring monitoring : live) {
+            liveIds.add(monitoring.getId_monitor());
+        }
+        List<Monitoring> result = new ArrayList<>(archived.size() + live.size());
+        for (Monitoring monitoring : archived) {
+            if (!liveIds.contains(monitoring.getId_monitor())) {
+                result.add(monitoring);
+            }
+        }
+        return result;
+    }
+
+    // Pilih resolusi: "auto" (null) = rollup paling kasar yang masih menghasilkan minimal `points` bucket
+    // dalam rentang; jika bahkan 5 menit terlalu kasar, data mentah dipakai. Null = raw.
+    public RollupResolution chooseResolution(TimeRange range, int points) {
+        long rangeSeconds = (range.getTo().getTime() - range.getFrom().getTime()) / 1000;
+        RollupResolution[] resolutions = RollupResolution.values();
+        for (int i = resolutions.length - 1; i >= 0; i--) {
+            if (rangeSeconds / resolutions[i].getSeconds() >= points) {
+                return resolutions[i];
+            }
+        }
+        return null;
+    }
+
+    public List<MonitoringSeriesPoint> getSeries(int idLahan, RollupResolution resolution, TimeRange range) {
+        if (resolution != null) {
+            return rollupRepo.findSeries(idLahan, resolution, range);
+        }
+        List<MonitoringSeriesPoint> live = rollupRepo.findRawSeries(idLahan, range, SERIES_RAW_LIMIT);
+        if (!archiveRepo.overlaps(range)) {
+            return live;
+        }
+        // Data mentah bulan yang sudah diarsip dibaca dari file, lalu digabung urut waktu
+        List<MonitoringSeriesPoint> merged = new ArrayList<>(live);
+        for (Monitoring monitoring : archiveRepo.findByRange(range, idLahan, SERIES_RAW_LIMIT)) {
+            merged.add(rawPoint(monitoring));
+        }
+        merged.sort((a, b) -> a.getBucket().compareTo(b.getBucket()));
+        return merged.size() > SERIES_RAW_LIMIT ? new ArrayList<>(merged.subList(0, SERIES_RAW_LIMIT)) : merged;
+    }
+
+    private static MonitoringSeriesPoint rawPoint(Monitoring monitoring) {
+        MonitoringSeriesPoint point = new MonitoringSeriesPoint();
+        point.setBucket(monitoring.getTanggal());
+        point.setSample_count(1);
+        point.setSuhu_min(monitoring.getSuhu());
+        point.setSuhu_max(monitoring.getSuhu());
+        point.setSuhu_avg(monitoring.getSuhu());
+        point.setKelembaban_min(monitoring.getKelembaban());
+        point.setKelembaban_max(monitoring.getKelembaban());
+        point.setKelembaban_avg(monitoring.getKelembaban());
+        return point;
+    }
+
+    // Hitung ulang rollup dari data mentah (mis. setelah import langsung ke database).
+    // Bulan yang sudah diarsip tidak lagi punya data mentah di tabel, jadi rollup-nya tidak disentuh.
+    public void rebuildRollups(Integer idLahan, TimeRange range) {
+        Timestamp archivedUntil = archiveRepo.getArchivedUntil();
+        if (archivedUntil != null && range.getFrom().before(archivedUntil)) {
+            if (!archivedUntil.before(range.getTo())) return;
+            range = new TimeRange(archivedUntil, range.getTo());
+        }
+        rollupRepo.rebuild(idLahan, range);
     }
 
-    public List<Monitoring> getAllMonitoring() {
-        return repo.findAll();
+    // Isi monitoring_rollup dari data lama (pertama kali fitur ini aktif). Watermark = awal hari besok saat backfill
+    // pertama dimulai: bacaan sejak itu sudah di-upsert oleh insert. Progres tersimpan per hari di database, jadi
+    // restart / crash melanjutkan dari hari terakhir. Dicek sebelum route menerima insert; hitungannya di background.
+    public static void startRollupBackfill() {
+        MonitoringService service = new MonitoringService();
+        Timestamp watermark;
+        try {
+            watermark = service.rollupRepo.startBackfill(Timestamp.valueOf(LocalDate.now().plusDays(1).atStartOfDay()));
+            if (watermark == null) return;
+        } catch (Exception e) {
+            System.err.println("⚠️ Monitoring rollup check failed: " + e.getMessage());
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int days = 0;
+            try {
+                while (service.rollupRepo.backfillNextDay(service.archiveRepo.getArchivedUntil())) {
+                    days++;
+                }
+                System.out.println("✅ Monitoring rollup backfill done (" + days + " days before " + watermark + ") in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            } catch (Exception e) {
+                System.err.println("⚠️ Monitoring rollup backfill stopped after " + days + " days, resumes on restart: "
+                        + e.getMessage());
+            }
+        }, "monitoring-rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public Monitoring getMonitoringById(int id) {
         return repo.findById(id);
     }
 
+    // Update/delete bisa mengubah data lama di tengah buffer, jadi buffer lahan terkait dimuat ulang
     public boolean updateMonitoring(Monitoring monitoring) {
-        return repo.update(monitoring);
+        Monitoring previous = repo.update(monitoring);
+        if (previous == null) {
+            return false;
+        }
+        reloadLatestReadings(previous.getId_lahan());
+        if (monitoring.getId_lahan() != previous.getId_lahan()) {
+            reloadLatestReadings(monitoring.getId_lahan());
+        }
+        return true;
     }
 
     public boolean deleteMonitoring(int id) {
-        return repo.delete(id);
+        Monitoring deleted = repo.delete(id);
+        if (deleted == null) {
+            return false;
+        }
+        reloadLatestReadings(deleted.getId_lahan());
+        return true;
+    }
+
+    private void reloadLatestReadings(int idLahan) {
+        latestReadings.replace(idLahan, repo.findRecentByLahan(idLahan, latestReadings.getCapacity()));
     }
 }
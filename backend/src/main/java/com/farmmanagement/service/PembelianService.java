@@ -1,12 +1,69 @@
 package com.farmmanagement.service;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.HasilPanen;
 import com.farmmanagement.model.Pembelian;
+import com.farmmanagement.util.ConflictException;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.repository.HasilPanenRepository;
 import com.farmmanagement.repository.PembelianRepository;
 
 public class PembelianService {
+    // Percobaan ulang saat PostgreSQL membatalkan transaksi karena bentrok (serialization failure / deadlock)
+    private static final int MAX_ATTEMPTS = Math.max(1, AppConfig.getInt("PURCHASE_MAX_ATTEMPTS", 5));
+    private static final long RETRY_BASE_MS = Math.max(1, AppConfig.getLong("PURCHASE_RETRY_BASE_MS", 10));
+    private static final long RETRY_MAX_MS = Math.max(RETRY_BASE_MS, AppConfig.getLong("PURCHASE_RETRY_MAX_MS", 200));
+
+    private static final LongAdder purchased = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
+
     private final PembelianRepository repo = new PembelianRepository();
+    private final HasilPanenRepository hasilPanenRepo = new HasilPanenRepository();
+
+    // Pembelian oleh pembeli: stok hasil panen dikurangi dan harga dihitung server dalam satu transaksi.
+    // id_penjual, id_tanaman dan total_harga dari client diabaikan, diambil dari hasil panen.
+    // null jika hasil panen tidak ada; ConflictException jika tidak dijual atau stok tidak cukup.
+    public Pembelian beli(Pembelian pembelian) {
+        if (pembelian.getStatus() == null || pembelian.getStatus().trim().isEmpty()) {
+            pembelian.setStatus("Diproses");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Pembelian created = repo.insertWithReservation(pembelian);
+                if (created != null) {
+                    purchased.increment();
+                    return created;
+                }
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+
+        // Stok tidak berubah: cari tahu alasannya untuk pesan ke pembeli
+        HasilPanen hasil = hasilPanenRepo.findById(pembelian.getId_hasil());
+        if (hasil == null) {
+            return null;
+        }
+        rejected.increment();
+        if (!"Siap Dijual".equals(hasil.getStatus())) {
+            throw new ConflictException("Hasil panen tidak tersedia untuk dijual (status: " + hasil.getStatus() + ")");
+        }
+        throw new ConflictException("Stok hasil panen tidak cukup, tersisa " + hasil.getKuantitas());
+    }
 
     // ADDED: Method untuk menambah pembelian
     public boolean addPembelian(Pembelian pembelian) {
@@ -17,6 +74,10 @@ public class PembelianService {
         return repo.findAll();
     }
 
+    public <R> R streamPembelianPage(PageRequest page, PageRequest.RowHandler<Pembelian, R> handler) throws IOException {
+        return repo.streamPage(page, handler);
+    }
+
     public Pembelian getPembelianById(int id) {
         return repo.findById(id);
     }
@@ -28,4 +89,36 @@ public class PembelianService {
     public boolean deletePembelian(int id) {
         return repo.delete(id);
     }
-}
\ No newline at end of file
+
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("purchased", purchased.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("retries", retries.sum());
+        return stats;
+    }
+
+    // 40001 serialization_failure, 40P01 deadlock_detected: transaksi sudah di-rollback, aman diulang
+    private static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if ("40001".equals(state) || "40P01".equals(state)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Exponential backoff dengan jitter penuh supaya pembeli yang bentrok tidak mencoba di saat yang sama
+    private static void backoff(int attempt) {
+        long ceiling = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pembelian dibatalkan saat menunggu percobaan ulang", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.farmmanagement.service;
 
 import java.util.List;
 
+import com.farmmanagement.model.TanamanAllocationResult;
 import com.farmmanagement.model.TanamanLahan;
 import com.farmmanagement.repository.TanamanLahanRepository;
 
@@ -20,6 +21,15 @@ public class TanamanLahanService {
         return repo.save(tanamanLahan);
     }
 
+    // Tambah tanaman ke lahan sekaligus mengurangi stok tanaman (satu transaksi)
+    public TanamanAllocationResult allocateTanamanLahan(TanamanLahan tanamanLahan) {
+        TanamanAllocationResult result = repo.allocate(tanamanLahan);
+        if (result.getStatus() == TanamanAllocationResult.Status.CREATED) {
+            TanamanService.invalidate(tanamanLahan.getId_tanaman()); // stok berubah
+        }
+        return result;
+    }
+
     public boolean updateTanamanLahan(TanamanLahan tanamanLahan) {
         return repo.update(tanamanLahan);
     }
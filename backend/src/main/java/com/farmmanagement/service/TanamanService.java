@@ -2,10 +2,24 @@ package com.farmmanagement.service;
 
 import java.util.List;
 
+import com.farmmanagement.config.AppConfig;
 import com.farmmanagement.model.Tanaman;
 import com.farmmanagement.repository.TanamanRepository;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.ExpiringLruCache;
 
 public class TanamanService {
+    // Cache lookup by ID, dipakai bersama semua instance service (data tanaman jarang berubah).
+    // Objek di cache dipakai bersama, jangan diubah langsung oleh pemanggil.
+    private static final ExpiringLruCache<Integer, Tanaman> cache = new ExpiringLruCache<>(
+            AppConfig.getInt("TANAMAN_CACHE_SIZE", 1_000),
+            AppConfig.getLong("TANAMAN_CACHE_TTL_MS", 60_000));
+
+    static {
+        // Baris yang diubah node lain ikut dibuang dari cache node ini
+        CacheInvalidationBus.subscribe(CacheInvalidationBus.TANAMAN, cache);
+    }
+
     private final TanamanRepository repo = new TanamanRepository();
 
     public List<Tanaman> getAllTanaman() {
@@ -13,7 +27,7 @@ public class TanamanService {
     }
 
     public Tanaman getTanamanById(int id) {
-        return repo.findById(id);
+        return cache.getOrLoad(id, repo::findById);
     }
 
     public boolean addTanaman(Tanaman t) {
@@ -21,14 +35,35 @@ public class TanamanService {
     }
 
     public boolean updateTanaman(Tanaman t) {
-        return repo.update(t);
+        try {
+            return repo.update(t);
+        } finally {
+            cache.invalidate(t.getId_tanaman());
+        }
     }
 
     public boolean deleteTanaman(int id) {
-        return repo.delete(id);
+        try {
+            return repo.delete(id);
+        } finally {
+            cache.invalidate(id);
+        }
     }
 
     public boolean decreaseJumlahTanaman(int idTanaman, int amount) {
-        return repo.decreaseJumlahTanaman(idTanaman, amount);
+        try {
+            return repo.decreaseJumlahTanaman(idTanaman, amount);
+        } finally {
+            cache.invalidate(idTanaman);
+        }
+    }
+
+    // Dipanggil service lain yang mengubah baris tanaman (mis. alokasi stok ke lahan)
+    public static void invalidate(int idTanaman) {
+        cache.invalidate(idTanaman);
+    }
+
+    public static ExpiringLruCache<Integer, Tanaman> getCache() {
+        return cache;
     }
 }
@@ -2,12 +2,23 @@ package com.farmmanagement.service;
 
 import java.util.List;
 
-import org.mindrot.jbcrypt.BCrypt;
-
+import com.farmmanagement.config.AppConfig;
 import com.farmmanagement.model.User;
 import com.farmmanagement.repository.UserRepository;
+import com.farmmanagement.util.CacheInvalidationBus;
+import com.farmmanagement.util.ExpiringLruCache;
+import com.farmmanagement.util.PasswordHasher;
 
 public class UserService {
+    // Cache getUserById (tanpa password), dipakai validasi pengawas di jalur tulis lahan.
+    // Invalidasi lokal dan dari node lain lewat CacheInvalidationBus.
+    private static final ExpiringLruCache<Integer, User> cache = new ExpiringLruCache<>(
+            AppConfig.getInt("USER_CACHE_SIZE", 1_000),
+            AppConfig.getLong("USER_CACHE_TTL_MS", 60_000));
+
+    static {
+        CacheInvalidationBus.subscribe(CacheInvalidationBus.USER, cache);
+    }
 
     private final UserRepository userRepository = new UserRepository();
 
@@ -17,14 +28,28 @@ public class UserService {
     // --- Authentication ---
     public User login(String username, String password) {
         User user = userRepository.findByUsername(username);
-        if (user != null && BCrypt.checkpw(password, user.getPassword())) {
+        if (user != null && PasswordHasher.check(password, user.getPassword())) {
+            rehashIfNeeded(user, password);
             return user;
         }
         return null;
     }
 
     public boolean checkPassword(String rawPassword, String hashedPassword) {
-        return BCrypt.checkpw(rawPassword, hashedPassword);
+        return PasswordHasher.check(rawPassword, hashedPassword);
+    }
+
+    // Jika BCRYPT_COST dinaikkan, hash lama diperbarui di background setelah login berhasil
+    public void rehashIfNeeded(User user, String rawPassword) {
+        if (!PasswordHasher.needsRehash(user.getPassword())) return;
+        int idUser = user.getId_user();
+        PasswordHasher.runInBackground(() -> {
+            try {
+                userRepository.updatePassword(idUser, PasswordHasher.hash(rawPassword));
+            } catch (Exception e) {
+                System.err.println("Warning: gagal rehash password user " + idUser + ": " + e.getMessage());
+            }
+        });
     }
 
     public boolean register(String username, String password, String role, String nama) {
@@ -32,7 +57,7 @@ public class UserService {
         if (userRepository.findByUsername(username) != null) {
             return false;
         }
-        String hashed = BCrypt.hashpw(password, BCrypt.gensalt());
+        String hashed = PasswordHasher.hash(password);
         User user = new User(username, hashed, role, nama);
         return userRepository.save(user);
     }
@@ -40,16 +65,20 @@ public class UserService {
     public boolean resetPassword(String username, String oldPassword, String newPassword) {
         User user = findByUsername(username);
         if (user == null) return false;
-        if (!BCrypt.checkpw(oldPassword, user.getPassword())) return false;
+        if (!PasswordHasher.check(oldPassword, user.getPassword())) return false;
     
-        user.setPassword(BCrypt.hashpw(newPassword, BCrypt.gensalt()));
-        return userRepository.update(user); // gunakan repository, bukan saveUser
+        user.setPassword(PasswordHasher.hash(newPassword));
+        try {
+            return userRepository.update(user); // gunakan repository, bukan saveUser
+        } finally {
+            cache.invalidate(user.getId_user());
+        }
     }
     
     // --- CRUD Manager (Pengawas Management) ---
     // Ambil user berdasarkan ID (tanpa password)
     public User getUserById(int id) {
-        return userRepository.findById(id); 
+        return cache.getOrLoad(id, userRepository::findById);
     }
 
     // Ambil semua user berdasarkan role (misal 'pengawas')
@@ -67,18 +96,30 @@ public class UserService {
         
         // 2. Jika password diisi, hash password baru
         if (user.getPassword() != null && !user.getPassword().isEmpty()) {
-            String newHashedPassword = BCrypt.hashpw(user.getPassword(), BCrypt.gensalt());
+            String newHashedPassword = PasswordHasher.hash(user.getPassword());
             user.setPassword(newHashedPassword);
         } else {
             // Jika password kosong, pastikan tidak ikut di-update di SQL
             user.setPassword(null); 
         }
 
-        return userRepository.update(user);
+        try {
+            return userRepository.update(user);
+        } finally {
+            cache.invalidate(user.getId_user());
+        }
     }
 
     // Hapus user
     public boolean deleteUser(int id) {
-        return userRepository.delete(id);
+        try {
+            return userRepository.delete(id);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    public static ExpiringLruCache<Integer, User> getCache() {
+        return cache;
     }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.farmmanagement.util;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.sql2o.Connection;
+import org.sql2o.Query;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.metrics.QueryTimer;
+
+/**
+ * Invalidasi cache antar instance backend lewat PostgreSQL LISTEN/NOTIFY.
+ * Repository memanggil publish() di dalam transaksi tulisnya (NOTIFY baru terkirim saat commit),
+ * dan setiap node punya satu koneksi khusus yang LISTEN lalu membuang key dari cache lokal.
+ * Payload: "<nama cache>:<id>" atau "<nama cache>:*".
+ * Selain ExpiringLruCache, state lain (mis. katalog arsip monitoring) bisa mendaftarkan handler yang
+ * dijalankan untuk setiap invalidasi namanya.
+ */
+public class CacheInvalidationBus {
+    public static final String CHANNEL = "cache_invalidation";
+
+    public static final String TANAMAN = "tanaman";
+    public static final String LAHAN = "lahan";
+    public static final String USER = "user";
+    public static final String MONITORING_ARCHIVE = "monitoring_archive";
+
+    private static final long POLL_TIMEOUT_MS = 1_000;
+    private static final long VALIDATE_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Map<String, ExpiringLruCache<Integer, ?>> caches = new ConcurrentHashMap<>();
+    private static final Map<String, Runnable> handlers = new ConcurrentHashMap<>();
+    private static final LongAdder received = new LongAdder();
+    private static final LongAdder reconnects = new LongAdder();
+    private static volatile boolean connected;
+    private static volatile boolean running;
+
+    private CacheInvalidationBus() {}
+
+    // Didaftarkan oleh service pemilik cache
+    public static void subscribe(String name, ExpiringLruCache<Integer, ?> cache) {
+        caches.put(name, cache);
+    }
+
+    // Handler dijalankan di thread listener, jadi harus cepat (mis. cukup menandai state perlu dimuat ulang)
+    public static void subscribe(String name, Runnable handler) {
+        handlers.put(name, handler);
+    }
+
+    // Kirim invalidasi untuk satu key, memakai koneksi (dan transaksi) yang sama dengan query tulis
+    public static void publish(Connection conn, String name, int id) {
+        notify(conn, name + ":" + id);
+    }
+
+    // Kirim invalidasi untuk seluruh isi cache / state name
+    public static void publishAll(Connection conn, String name) {
+        notify(conn, name + ":*");
+    }
+
+    private static void notify(Connection conn, String payload) {
+        Query query = conn.createQuery("SELECT pg_notify(:channel, :payload)")
+                          .addParameter("channel", CHANNEL)
+                          .addParameter("payload", payload);
+        QueryTimer.execute("CacheInvalidationBus.publish", query, Query::executeScalar);
+    }
+
+    public static synchronized void start() {
+        if (running || !AppConfig.getBoolean("CACHE_INVALIDATION_ENABLED", true)) {
+            return;
+        }
+        running = true;
+        Thread listener = new Thread(CacheInvalidationBus::listenLoop, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public static void stop() {
+        running = false;
+    }
+
+    private static void listenLoop() {
+        long backoffMs = 1_000;
+        while (running) {
+            try (java.sql.Connection conn = DriverManager.getConnection(
+                    AppConfig.get("DB_URL"), AppConfig.get("DB_USER"), AppConfig.get("DB_PASSWORD"))) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                // Notifikasi selama terputus tidak bisa diterima lagi, jadi semua cache dikosongkan
+                invalidateAll();
+                connected = true;
+                backoffMs = 1_000;
+                System.out.println("✅ Listening for cache invalidations on channel " + CHANNEL);
+
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+                long lastValidated = System.currentTimeMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConn.getNotifications((int) POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                    // Deteksi koneksi yang putus tanpa error (mis. lewat NAT / load balancer)
+                    if (System.currentTimeMillis() - lastValidated >= VALIDATE_INTERVAL_MS) {
+                        if (!conn.isValid(5)) {
+                            throw new SQLException("Listener connection is no longer valid");
+                        }
+                        lastValidated = System.currentTimeMillis();
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Cache invalidation listener disconnected: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Cache invalidation listener error: " + e.getMessage());
+            }
+
+            if (connected) {
+                connected = false;
+                reconnects.increment();
+                invalidateAll();
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private static void handle(String payload) {
+        received.increment();
+        int separator = payload != null ? payload.indexOf(':') : -1;
+        if (separator <= 0) {
+            return;
+        }
+        String name = payload.substring(0, separator);
+        Runnable handler = handlers.get(name);
+        if (handler != null) {
+            handler.run();
+        }
+        ExpiringLruCache<Integer, ?> cache = caches.get(name);
+        if (cache == null) {
+            return; // cache belum dipakai di node ini
+        }
+        String key = payload.substring(separator + 1);
+        if (key.equals("*")) {
+            cache.invalidateAll();
+            return;
+        }
+        try {
+            cache.invalidate(Integer.parseInt(key));
+        } catch (NumberFormatException e) {
+            cache.invalidateAll();
+        }
+    }
+
+    private static void invalidateAll() {
+        caches.values().forEach(ExpiringLruCache::invalidateAll);
+        handlers.values().forEach(Runnable::run);
+    }
+
+    public static boolean isConnected() {
+        return connected;
+    }
+
+    public static long getReceived() {
+        return received.sum();
+    }
+
+    public static long getReconnects() {
+        return reconnects.sum();
+    }
+}
@@ -0,0 +1,13 @@
+package com.farmmanagement.util;
+
+/**
+ * Dilempar saat permintaan bertabrakan dengan kondisi data saat ini (mis. stok hasil panen tidak cukup).
+ * Dipetakan ke HTTP 409; pesan aman ditampilkan ke client.
+ */
+public class ConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,67 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Penulis CSV (RFC 4180, pemisah koma, baris diakhiri CRLF) untuk export. Tidak membuffer sendiri:
+ * bungkus output dengan BufferedWriter supaya data dikirim per potongan, bukan per baris.
+ * Teks yang diawali = + - @ diberi prefix ' supaya tidak dieksekusi sebagai formula oleh spreadsheet.
+ */
+public class CsvWriter {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            writeValue(values[i]);
+        }
+        out.write("\r\n");
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Timestamp) {
+            out.write(((Timestamp) value).toLocalDateTime().format(TIMESTAMP));
+        } else if (value instanceof Double) {
+            double number = (Double) value;
+            // Tanpa notasi ilmiah (1.0E7) supaya terbaca sebagai angka biasa
+            out.write(Double.isFinite(number) ? BigDecimal.valueOf(number).toPlainString() : "");
+        } else if (value instanceof Number) {
+            out.write(value.toString());
+        } else if (value instanceof java.util.Date) {
+            out.write(value.toString()); // java.sql.Date: yyyy-MM-dd
+        } else {
+            writeText(value.toString());
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
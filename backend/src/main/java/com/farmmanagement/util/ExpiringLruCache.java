@@ -0,0 +1,141 @@
+package com.farmmanagement.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache in-memory berukuran tetap: entri paling lama tidak dipakai dibuang (LRU)
+ * dan setiap entri punya waktu kedaluwarsa sendiri. Mencatat hit/miss untuk metrics.
+ */
+public class ExpiringLruCache<K, V> {
+    private final int maxSize;
+    private final long defaultTtlMs;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Naik setiap kali ada invalidasi, supaya hasil load yang berjalan bersamaan tidak menimpa
+    private final AtomicLong generation = new AtomicLong();
+
+    public ExpiringLruCache(int maxSize, long defaultTtlMs) {
+        this.maxSize = Math.max(1, maxSize);
+        this.defaultTtlMs = defaultTtlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // null jika tidak ada atau sudah kedaluwarsa
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Read-through: ambil dari cache, atau load lalu simpan. Hasil load tidak disimpan jika selama
+    // load terjadi invalidasi (data bisa saja sudah berubah di database).
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startGeneration = generation.get();
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (entries) {
+                if (generation.get() == startGeneration) {
+                    entries.put(key, new Entry<>(loaded, System.currentTimeMillis() + defaultTtlMs));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + defaultTtlMs);
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (value == null || expiresAtMillis <= System.currentTimeMillis()) return;
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Ringkasan untuk endpoint admin / metrics
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) size());
+        stats.put("max_size", (long) maxSize);
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("evictions", getEvictions());
+        return stats;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import spark.Response;
+
+/**
+ * Menulis response JSON baris per baris langsung ke output stream servlet, tanpa membangun
+ * list maupun String JSON utuh di heap. Status dan header harus sudah di-set sebelum dipanggil.
+ * Route mengembalikan string kosong setelahnya karena body sudah ditulis.
+ * Error di tengah stream ditangani lewat error(): lihat komentarnya.
+ */
+public class JsonStreamWriter {
+
+    private JsonStreamWriter() {}
+
+    // Envelope {status, message, data, next_cursor, limit}
+    public static <T> String writePage(Response res, Gson gson, String message, Type rowType,
+                                       Iterable<T> rows, String nextCursor, int limit) throws IOException {
+        prepare(res, nextCursor);
+        JsonWriter writer = open(res, gson);
+        writePage(writer, gson, message, rowType, rows, nextCursor, limit);
+        writer.flush();
+        return "";
+    }
+
+    // Array polos, cursor halaman berikutnya dikirim lewat header X-Next-Cursor
+    public static <T> String writeArray(Response res, Gson gson, Type rowType,
+                                        Iterable<T> rows, String nextCursor) throws IOException {
+        prepare(res, nextCursor);
+        JsonWriter writer = open(res, gson);
+        writeRows(writer, gson, rowType, rows);
+        writer.flush();
+        return "";
+    }
+
+    // Jawaban error untuk route yang men-stream. Selama belum ada byte yang terkirim, sisa buffer dibuang
+    // dan error dikirim sebagai JSON biasa. Jika response sudah ter-commit (status 200 sudah di jalan),
+    // JSON error tidak boleh ditempel ke body: koneksi diputus supaya klien tahu response terpotong.
+    public static String error(Response res, Gson gson, int status, String message, Exception cause) {
+        if (res.raw().isCommitted()) {
+            abort(res, cause);
+            return "";
+        }
+        res.raw().resetBuffer();
+        res.raw().setHeader("X-Next-Cursor", null);
+        res.type("application/json");
+        res.status(status);
+        return gson.toJson(Map.of("error", message));
+    }
+
+    // Putus koneksi tanpa chunk penutup; dipakai juga oleh export CSV
+    public static void abort(Response res, Throwable cause) {
+        if (res.raw() instanceof org.eclipse.jetty.server.Response) {
+            ((org.eclipse.jetty.server.Response) res.raw()).getHttpChannel().abort(cause);
+        }
+    }
+
+    // Bagian tanpa Response, dipakai juga oleh benchmark serialisasi
+    public static <T> void writePage(JsonWriter writer, Gson gson, String message, Type rowType,
+                                     Iterable<T> rows, String nextCursor, int limit) throws IOException {
+        writer.beginObject();
+        writer.name("status").value("success");
+        writer.name("message").value(message);
+        writer.name("data");
+        writeRows(writer, gson, rowType, rows);
+        writer.name("next_cursor");
+        if (nextCursor != null) {
+            writer.value(nextCursor);
+        } else {
+            writer.jsonValue("null"); // tetap ditulis walaupun serializeNulls tidak aktif
+        }
+        writer.name("limit").value(limit);
+        writer.endObject();
+    }
+
+    private static void prepare(Response res, String nextCursor) {
+        res.type("application/json");
+        if (nextCursor != null) {
+            res.header("X-Next-Cursor", nextCursor);
+        }
+    }
+
+    private static JsonWriter open(Response res, Gson gson) throws IOException {
+        return gson.newJsonWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    public static <T> void writeRows(JsonWriter writer, Gson gson, Type rowType, Iterable<T> rows) throws IOException {
+        writer.beginArray();
+        for (T row : rows) {
+            gson.toJson(row, rowType, writer);
+        }
+        writer.endArray();
+    }
+}
@@ -1,7 +1,12 @@
 package com.farmmanagement.util;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.farmmanagement.config.AppConfig;
+
 import java.util.Date;
 
 public class JwtUtil {
@@ -13,6 +18,14 @@ public class JwtUtil {
 
     private static final long EXPIRATION_TIME = 3600000; // 1 jam
 
+    // Algorithm & verifier dibuat sekali saja (thread-safe, dipakai ulang setiap request)
+    private static final Algorithm ALGORITHM = Algorithm.HMAC256(SECRET_KEY);
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
+    // Token yang baru saja diverifikasi, berlaku sampai klaim exp token tersebut
+    private static final ExpiringLruCache<String, DecodedJWT> verifiedTokens =
+            new ExpiringLruCache<>(AppConfig.getInt("JWT_CACHE_SIZE", 10_000), EXPIRATION_TIME);
+
 
     public static String generateToken(String username, String role) {
         return JWT.create()
@@ -20,32 +33,49 @@ public class JwtUtil {
                 .withClaim("role", role)
                 .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(Algorithm.HMAC256(SECRET_KEY));
+                .sign(ALGORITHM);
     }
 
-    public static boolean verifyToken(String token) {
+    // Verifikasi token sekali dan kembalikan klaimnya; null jika tidak valid / kedaluwarsa
+    public static DecodedJWT verify(String token) {
+        if (token == null || token.isEmpty()) return null;
+
+        DecodedJWT cached = verifiedTokens.get(token);
+        if (cached != null) return cached;
+
         try {
-            JWT.require(Algorithm.HMAC256(SECRET_KEY))
-               .build()
-               .verify(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            DecodedJWT decoded = VERIFIER.verify(token);
+            Date expiresAt = decoded.getExpiresAt();
+            if (expiresAt != null) {
+                verifiedTokens.put(token, decoded, expiresAt.getTime());
+            }
+            return decoded;
+        } catch (JWTVerificationException e) {
+            return null;
         }
     }
 
+    public static boolean verifyToken(String token) {
+        return verify(token) != null;
+    }
+
     public static String getUsername(String token) {
-        return JWT.require(Algorithm.HMAC256(SECRET_KEY))
-                  .build()
-                  .verify(token)
-                  .getSubject();
+        return verifyOrThrow(token).getSubject();
     }
 
     public static String getRole(String token) {
-        return JWT.require(Algorithm.HMAC256(SECRET_KEY))
-                  .build()
-                  .verify(token)
-                  .getClaim("role")
-                  .asString();
+        return verifyOrThrow(token).getClaim("role").asString();
+    }
+
+    public static ExpiringLruCache<String, DecodedJWT> getVerifiedTokenCache() {
+        return verifiedTokens;
+    }
+
+    private static DecodedJWT verifyOrThrow(String token) {
+        DecodedJWT decoded = verify(token);
+        if (decoded == null) {
+            throw new JWTVerificationException("Invalid or expired token");
+        }
+        return decoded;
     }
 }
@@ -0,0 +1,183 @@
+package com.farmmanagement.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.farmmanagement.model.Monitoring;
+
+/**
+ * N bacaan sensor terakhir per lahan di memori, untuk dashboard "kondisi sekarang" tanpa query database.
+ * Tiap lahan punya ring buffer primitif (double[] suhu/kelembaban, long[] epoch millis) yang urut menurut
+ * tanggal: bacaan terbaru O(1), data yang datang terlambat disisipkan di posisinya, dan bacaan yang lebih
+ * tua dari isi buffer penuh diabaikan. Hanya berisi tulisan dari instance ini + warm-up saat startup.
+ */
+public class LatestReadingsStore {
+    private final int capacity;
+    private final Map<Integer, RingBuffer> buffers = new ConcurrentHashMap<>();
+
+    public LatestReadingsStore(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public void add(Monitoring monitoring) {
+        if (monitoring.getTanggal() == null) return;
+        add(monitoring.getId_lahan(), monitoring.getTanggal().getTime(), monitoring.getSuhu(), monitoring.getKelembaban());
+    }
+
+    public void add(int idLahan, long epochMillis, double suhu, double kelembaban) {
+        buffers.computeIfAbsent(idLahan, id -> new RingBuffer(capacity)).add(epochMillis, suhu, kelembaban);
+    }
+
+    // Ganti isi buffer satu lahan (mis. setelah update/delete data lama); list kosong = lahan dihapus
+    public void replace(int idLahan, Collection<Monitoring> readings) {
+        if (readings.isEmpty()) {
+            buffers.remove(idLahan);
+            return;
+        }
+        RingBuffer buffer = new RingBuffer(capacity);
+        for (Monitoring monitoring : readings) {
+            if (monitoring.getTanggal() != null) {
+                buffer.add(monitoring.getTanggal().getTime(), monitoring.getSuhu(), monitoring.getKelembaban());
+            }
+        }
+        buffers.put(idLahan, buffer);
+    }
+
+    public void remove(int idLahan) {
+        buffers.remove(idLahan);
+    }
+
+    // Maksimal `limit` bacaan terbaru satu lahan (terbaru dulu), null jika belum ada data
+    public Readings latest(int idLahan, int limit) {
+        RingBuffer buffer = buffers.get(idLahan);
+        return buffer != null ? buffer.snapshot(idLahan, limit) : null;
+    }
+
+    // Bacaan terbaru semua lahan, urut id_lahan
+    public List<Readings> latestAll(int limit) {
+        List<Readings> result = new ArrayList<>(buffers.size());
+        buffers.keySet().stream().sorted().forEach(idLahan -> {
+            Readings readings = latest(idLahan, limit);
+            if (readings != null && readings.size() > 0) {
+                result.add(readings);
+            }
+        });
+        return result;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Map<String, Long> getStats() {
+        long readings = 0;
+        for (RingBuffer buffer : buffers.values()) {
+            readings += buffer.size();
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("lahan", (long) buffers.size());
+        stats.put("capacity_per_lahan", (long) capacity);
+        stats.put("readings", readings);
+        return stats;
+    }
+
+    /** Salinan bacaan satu lahan, index 0 = terbaru. */
+    public static final class Readings {
+        private final int idLahan;
+        private final long[] tanggal;
+        private final double[] suhu;
+        private final double[] kelembaban;
+
+        Readings(int idLahan, long[] tanggal, double[] suhu, double[] kelembaban) {
+            this.idLahan = idLahan;
+            this.tanggal = tanggal;
+            this.suhu = suhu;
+            this.kelembaban = kelembaban;
+        }
+
+        public int getIdLahan() {
+            return idLahan;
+        }
+
+        public int size() {
+            return tanggal.length;
+        }
+
+        public long getTanggal(int i) {
+            return tanggal[i];
+        }
+
+        public double getSuhu(int i) {
+            return suhu[i];
+        }
+
+        public double getKelembaban(int i) {
+            return kelembaban[i];
+        }
+    }
+
+    // Posisi logis 0 = bacaan tertua, size - 1 = terbaru; slot fisik = (start + posisi) % capacity
+    private static final class RingBuffer {
+        private final long[] tanggal;
+        private final double[] suhu;
+        private final double[] kelembaban;
+        private int start;
+        private int size;
+
+        RingBuffer(int capacity) {
+            tanggal = new long[capacity];
+            suhu = new double[capacity];
+            kelembaban = new double[capacity];
+        }
+
+        synchronized void add(long epochMillis, double suhuValue, double kelembabanValue) {
+            int capacity = tanggal.length;
+            if (size == capacity) {
+                if (epochMillis < tanggal[start]) return;
+                start = (start + 1) % capacity;
+                size--;
+            }
+            // Umumnya data datang urut, jadi loop ini langsung berhenti (append O(1))
+            int pos = size;
+            while (pos > 0 && tanggal[slot(pos - 1)] > epochMillis) {
+                int from = slot(pos - 1);
+                int to = slot(pos);
+                tanggal[to] = tanggal[from];
+                suhu[to] = suhu[from];
+                kelembaban[to] = kelembaban[from];
+                pos--;
+            }
+            int target = slot(pos);
+            tanggal[target] = epochMillis;
+            suhu[target] = suhuValue;
+            kelembaban[target] = kelembabanValue;
+            size++;
+        }
+
+        synchronized Readings snapshot(int idLahan, int limit) {
+            int n = Math.min(Math.max(0, limit), size);
+            long[] tanggalCopy = new long[n];
+            double[] suhuCopy = new double[n];
+            double[] kelembabanCopy = new double[n];
+            for (int i = 0; i < n; i++) {
+                int source = slot(size - 1 - i);
+                tanggalCopy[i] = tanggal[source];
+                suhuCopy[i] = suhu[source];
+                kelembabanCopy[i] = kelembaban[source];
+            }
+            return new Readings(idLahan, tanggalCopy, suhuCopy, kelembabanCopy);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int slot(int position) {
+            return (start + position) % tanggal.length;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.farmmanagement.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.farmmanagement.config.AppConfig;
+import com.farmmanagement.model.Alert;
+import com.farmmanagement.model.Monitoring;
+
+/**
+ * Pub/sub in-process untuk data monitoring baru dan alert (dipakai SSE /api/monitoring/stream).
+ * MonitoringService memanggil publish() setelah insert commit, AlertEngine memanggil publishAlert();
+ * event dikirim ke subscriber lahan terkait. Setiap subscriber punya antrean
+ * berukuran tetap. Publisher tidak pernah menunggu: jika antrean subscriber penuh (klien terlalu
+ * lambat), subscriber itu diputus dan klien harus reconnect. Hanya insert lewat instance ini yang dikirim.
+ * Penulisan ke klien dilakukan SseStream (async), yang diberi tahu lewat Subscription.onEvent().
+ */
+public class MonitoringBroadcaster {
+    private static final int BUFFER_SIZE = AppConfig.getInt("MONITORING_STREAM_BUFFER", 256);
+    private static final int MAX_SUBSCRIBERS = AppConfig.getInt("MONITORING_STREAM_MAX_SUBSCRIBERS", 500);
+
+    // Subscriber per id_lahan, plus subscriber yang mengikuti semua lahan
+    private static final Map<Integer, Set<Subscription>> byLahan = new ConcurrentHashMap<>();
+    private static final Set<Subscription> allLahan = new CopyOnWriteArraySet<>();
+    private static final AtomicInteger subscribers = new AtomicInteger();
+
+    private static final LongAdder published = new LongAdder();
+    private static final LongAdder delivered = new LongAdder();
+    private static final LongAdder slowConsumerDrops = new LongAdder();
+
+    private MonitoringBroadcaster() {}
+
+    // Lahan kosong = semua lahan. null jika jumlah subscriber sudah mencapai batas.
+    public static Subscription subscribe(Set<Integer> lahan) {
+        if (subscribers.incrementAndGet() > MAX_SUBSCRIBERS) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        Subscription subscription = new Subscription(lahan.isEmpty() ? Collections.emptySet() : Set.copyOf(lahan));
+        if (subscription.lahan.isEmpty()) {
+            allLahan.add(subscription);
+        } else {
+            for (Integer idLahan : subscription.lahan) {
+                // compute() atomik per key, jadi tidak bentrok dengan unsubscribe yang membuang set kosong
+                byLahan.compute(idLahan, (id, set) -> {
+                    Set<Subscription> target = set != null ? set : new CopyOnWriteArraySet<>();
+                    target.add(subscription);
+                    return target;
+                });
+            }
+        }
+        return subscription;
+    }
+
+    public static void publish(Monitoring monitoring) {
+        deliver(monitoring.getId_lahan(), monitoring);
+    }
+
+    public static void publishAlert(Alert alert) {
+        deliver(alert.getId_lahan(), alert);
+    }
+
+    private static void deliver(int idLahan, Object event) {
+        published.increment();
+        Set<Subscription> lahanSubscribers = byLahan.get(idLahan);
+        if (lahanSubscribers != null) {
+            for (Subscription subscription : lahanSubscribers) {
+                subscription.offer(event);
+            }
+        }
+        for (Subscription subscription : allLahan) {
+            subscription.offer(event);
+        }
+    }
+
+    private static void unsubscribe(Subscription subscription) {
+        if (subscription.lahan.isEmpty()) {
+            if (!allLahan.remove(subscription)) return;
+        } else {
+            boolean[] removed = {false};
+            for (Integer idLahan : subscription.lahan) {
+                byLahan.computeIfPresent(idLahan, (id, set) -> {
+                    removed[0] |= set.remove(subscription);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+            // Bisa dipanggil dua kali (overflow lalu close), jumlah subscriber hanya dikurangi sekali
+            if (!removed[0]) return;
+        }
+        subscribers.decrementAndGet();
+    }
+
+    public static int getSubscribers() {
+        return subscribers.get();
+    }
+
+    public static long getPublished() {
+        return published.sum();
+    }
+
+    public static long getDelivered() {
+        return delivered.sum();
+    }
+
+    public static long getSlowConsumerDrops() {
+        return slowConsumerDrops.sum();
+    }
+
+    /** Satu klien stream; wajib close() saat koneksi selesai. */
+    public static final class Subscription implements AutoCloseable {
+        private final Set<Integer> lahan;
+        // Berisi Monitoring atau Alert
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        private volatile boolean overflowed;
+        private volatile Runnable listener;
+
+        private Subscription(Set<Integer> lahan) {
+            this.lahan = lahan;
+        }
+
+        private void offer(Object event) {
+            if (overflowed) return;
+            if (queue.offer(event)) {
+                delivered.increment();
+            } else {
+                // Klien tidak mengejar: putus daripada menahan memori atau memperlambat insert
+                overflowed = true;
+                slowConsumerDrops.increment();
+                unsubscribe(this);
+            }
+            Runnable current = listener;
+            if (current != null) {
+                current.run(); // hanya menjadwalkan penulisan, tidak menulis di thread publisher
+            }
+        }
+
+        // Dipanggil setiap ada event baru atau saat overflow
+        public void onEvent(Runnable listener) {
+            this.listener = listener;
+            if (!queue.isEmpty() || overflowed) {
+                listener.run();
+            }
+        }
+
+        // Event berikutnya (Monitoring atau Alert) tanpa menunggu, null jika antrean kosong
+        public Object poll() {
+            return queue.poll();
+        }
+
+        // true jika antrean pernah penuh; sisa data di antrean tetap boleh dikirim sebelum putus
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        public Set<Integer> getLahan() {
+            return lahan;
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+}
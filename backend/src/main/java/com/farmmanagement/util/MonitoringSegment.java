@@ -0,0 +1,536 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import com.farmmanagement.model.Monitoring;
+
+/**
+ * File arsip kolumnar data monitoring satu lahan (biasanya satu bulan), dibaca lewat memory-mapped I/O.
+ * Baris diurutkan (tanggal, id_monitor) lalu dipotong per blok BLOCK_ROWS baris; setiap blok menyimpan
+ * kolomnya terpisah dan bisa di-decode sendiri:
+ * - tanggal: epoch millis, delta-of-delta dengan prefix bit (interval sensor tetap = 1 bit per baris)
+ * - suhu / kelembaban: XOR dengan nilai sebelumnya, hanya bit yang berubah disimpan (Gorilla)
+ * - id_monitor: delta zigzag varint
+ * Index blok (rentang tanggal dan id) di header dipakai untuk melewati blok di luar rentang query.
+ * Presisi tanggal di arsip adalah milidetik.
+ */
+public final class MonitoringSegment {
+    public static final int BLOCK_ROWS = 1024;
+
+    private static final int MAGIC = 0x464D4341; // "FMCA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int INDEX_ENTRY_BYTES = 48;
+
+    private final Path path;
+    private final ByteBuffer data;
+    private final int idLahan;
+    private final int rows;
+    private final long[] blockFirstTs;
+    private final long[] blockLastTs;
+    private final int[] blockMinId;
+    private final int[] blockMaxId;
+    private final int[] blockRows;
+    private final int[] blockOffset;
+    private final int[] idBytes;
+    private final int[] tsBytes;
+    private final int[] suhuBytes;
+
+    private MonitoringSegment(Path path, ByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Bukan file arsip monitoring: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Versi arsip monitoring tidak didukung (" + data.getInt(4) + "): " + path);
+        }
+        idLahan = data.getInt(8);
+        rows = data.getInt(12);
+        int blocks = data.getInt(16);
+        blockFirstTs = new long[blocks];
+        blockLastTs = new long[blocks];
+        blockMinId = new int[blocks];
+        blockMaxId = new int[blocks];
+        blockRows = new int[blocks];
+        blockOffset = new int[blocks];
+        idBytes = new int[blocks];
+        tsBytes = new int[blocks];
+        suhuBytes = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int entry = HEADER_BYTES + b * INDEX_ENTRY_BYTES;
+            blockFirstTs[b] = data.getLong(entry);
+            blockLastTs[b] = data.getLong(entry + 8);
+            blockMinId[b] = data.getInt(entry + 16);
+            blockMaxId[b] = data.getInt(entry + 20);
+            blockRows[b] = data.getInt(entry + 24);
+            blockOffset[b] = data.getInt(entry + 28);
+            idBytes[b] = data.getInt(entry + 32);
+            tsBytes[b] = data.getInt(entry + 36);
+            suhuBytes[b] = data.getInt(entry + 40);
+            // entry + 44: panjang kolom kelembaban, tidak dibutuhkan saat membaca (kolom terakhir)
+        }
+    }
+
+    // Map file read-only; mapping tetap valid setelah channel ditutup
+    public static MonitoringSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MonitoringSegment(path, buffer.order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    // Tulis file baru (rows harus urut tanggal, id_monitor) lewat file sementara + rename atomik
+    public static void write(Path path, int idLahan, List<Monitoring> rows) throws IOException {
+        int blocks = (rows.size() + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + blocks * INDEX_ENTRY_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(idLahan).putInt(rows.size()).putInt(blocks);
+
+        ByteArrayBits body = new ByteArrayBits(rows.size() * 4 + 64);
+        int offset = header.capacity();
+        for (int b = 0; b < blocks; b++) {
+            List<Monitoring> block = rows.subList(b * BLOCK_ROWS, Math.min(rows.size(), (b + 1) * BLOCK_ROWS));
+            int minId = Integer.MAX_VALUE;
+            int maxId = Integer.MIN_VALUE;
+            for (Monitoring row : block) {
+                minId = Math.min(minId, row.getId_monitor());
+                maxId = Math.max(maxId, row.getId_monitor());
+            }
+            int start = body.size();
+            writeIds(body, block);
+            int idLength = body.size() - start;
+            writeTimestamps(body, block);
+            int tsLength = body.size() - start - idLength;
+            writeValues(body, block, true);
+            int suhuLength = body.size() - start - idLength - tsLength;
+            writeValues(body, block, false);
+            int kelembabanLength = body.size() - start - idLength - tsLength - suhuLength;
+
+            header.putLong(block.get(0).getTanggal().getTime())
+                  .putLong(block.get(block.size() - 1).getTanggal().getTime())
+                  .putInt(minId).putInt(maxId).putInt(block.size())
+                  .putInt(offset + start)
+                  .putInt(idLength).putInt(tsLength).putInt(suhuLength).putInt(kelembabanLength);
+        }
+        header.flip();
+
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer content = ByteBuffer.wrap(body.bytes(), 0, body.size());
+            while (header.hasRemaining()) channel.write(header);
+            while (content.hasRemaining()) channel.write(content);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getIdLahan() {
+        return idLahan;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return data.capacity();
+    }
+
+    public boolean isEmpty() {
+        return blockRows.length == 0;
+    }
+
+    public long getFirstTs() {
+        return blockFirstTs[0];
+    }
+
+    public long getLastTs() {
+        return blockLastTs[blockLastTs.length - 1];
+    }
+
+    // Kunjungi baris dengan fromMs <= tanggal < toMs dan minIdExclusive < id < maxIdExclusive, urut tanggal.
+    // Batas id bertipe long supaya Long.MIN_VALUE / Long.MAX_VALUE berarti tanpa batas (semua id int ikut).
+    // Berhenti lebih awal jika visitor mengembalikan false.
+    public void scan(long fromMs, long toMs, long minIdExclusive, long maxIdExclusive, RowVisitor visitor) {
+        for (int b = firstBlock(fromMs); b < blockRows.length && blockFirstTs[b] < toMs; b++) {
+            if (blockMaxId[b] <= minIdExclusive || blockMinId[b] >= maxIdExclusive) continue;
+            BlockDecoder row = new BlockDecoder(b);
+            while (row.next()) {
+                if (row.tanggal >= toMs) return;
+                if (row.tanggal >= fromMs && row.id > minIdExclusive && row.id < maxIdExclusive
+                        && !visitor.visit(row.id, idLahan, row.tanggal, row.suhu(), row.kelembaban())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Iterator baris dengan fromMs <= tanggal < toMs (urut tanggal), di-decode saat next() dipanggil
+    public Cursor cursor(long fromMs, long toMs) {
+        return new Cursor(firstBlock(fromMs), fromMs, toMs);
+    }
+
+    // Blok pertama yang mungkin berisi tanggal >= fromMs
+    private int firstBlock(long fromMs) {
+        int first = Arrays.binarySearch(blockLastTs, fromMs);
+        if (first < 0) {
+            return -first - 1;
+        }
+        while (first > 0 && blockLastTs[first - 1] == fromMs) first--;
+        return first;
+    }
+
+    /** Posisi baca di dalam segment; getter berlaku untuk baris terakhir yang dikembalikan next(). */
+    public final class Cursor {
+        private final long fromMs;
+        private final long toMs;
+        private int block;
+        private BlockDecoder row;
+
+        private Cursor(int block, long fromMs, long toMs) {
+            this.block = block;
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+        }
+
+        public boolean next() {
+            while (true) {
+                if (row == null) {
+                    if (block >= blockRows.length || blockFirstTs[block] >= toMs) return false;
+                    row = new BlockDecoder(block++);
+                }
+                if (!row.next()) {
+                    row = null;
+                    continue;
+                }
+                if (row.tanggal >= toMs) {
+                    block = blockRows.length;
+                    row = null;
+                    return false;
+                }
+                if (row.tanggal >= fromMs) return true;
+            }
+        }
+
+        public Monitoring toMonitoring() {
+            return new Monitoring(row.id, idLahan, row.suhu(), row.kelembaban(), new Timestamp(row.tanggal));
+        }
+
+        public long getTanggal() {
+            return row.tanggal;
+        }
+
+        public int getIdMonitor() {
+            return row.id;
+        }
+    }
+
+    // Decode satu blok baris demi baris; keempat kolom maju bersamaan
+    private final class BlockDecoder {
+        private final int rowsInBlock;
+        private final ByteCursor ids;
+        private final BitReader ts;
+        private final BitReader suhuBits;
+        private final BitReader kelembabanBits;
+        private final int[] suhuWindow = new int[2];
+        private final int[] kelembabanWindow = new int[2];
+        private int index;
+        private long delta;
+        private long suhuValue;
+        private long kelembabanValue;
+        int id;
+        long tanggal;
+
+        BlockDecoder(int b) {
+            int base = blockOffset[b];
+            rowsInBlock = blockRows[b];
+            ids = new ByteCursor(data, base);
+            ts = new BitReader(data, base + idBytes[b]);
+            suhuBits = new BitReader(data, base + idBytes[b] + tsBytes[b]);
+            kelembabanBits = new BitReader(data, base + idBytes[b] + tsBytes[b] + suhuBytes[b]);
+        }
+
+        boolean next() {
+            if (index == rowsInBlock) return false;
+            id += zigzagDecode(ids.readVarLong());
+            if (index == 0) {
+                tanggal = ts.readBits(64);
+                suhuValue = suhuBits.readBits(64);
+                kelembabanValue = kelembabanBits.readBits(64);
+            } else {
+                delta += readDeltaOfDelta(ts);
+                tanggal += delta;
+                suhuValue = readXor(suhuBits, suhuValue, suhuWindow);
+                kelembabanValue = readXor(kelembabanBits, kelembabanValue, kelembabanWindow);
+            }
+            index++;
+            return true;
+        }
+
+        double suhu() {
+            return Double.longBitsToDouble(suhuValue);
+        }
+
+        double kelembaban() {
+            return Double.longBitsToDouble(kelembabanValue);
+        }
+    }
+
+    private static void writeIds(ByteArrayBits out, List<Monitoring> block) {
+        int previous = 0;
+        for (Monitoring row : block) {
+            out.writeVarLong(zigzagEncode((long) row.getId_monitor() - previous));
+            previous = row.getId_monitor();
+        }
+    }
+
+    // Delta-of-delta: '0' = sama, '10' + 7 bit, '110' + 12 bit, '1110' + 20 bit, '1111' + 64 bit
+    private static void writeTimestamps(ByteArrayBits out, List<Monitoring> block) {
+        long previous = block.get(0).getTanggal().getTime();
+        long previousDelta = 0;
+        out.writeBits(previous, 64);
+        for (int i = 1; i < block.size(); i++) {
+            long tanggal = block.get(i).getTanggal().getTime();
+            long delta = tanggal - previous;
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                out.writeBits(0b0, 1);
+            } else if (fits(dod, 7)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (fits(dod, 12)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 12);
+            } else if (fits(dod, 20)) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 20);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            previous = tanggal;
+            previousDelta = delta;
+        }
+        out.alignToByte();
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (in.readBits(1) == 0) return 0;
+        if (in.readBits(1) == 0) return signExtend(in.readBits(7), 7);
+        if (in.readBits(1) == 0) return signExtend(in.readBits(12), 12);
+        if (in.readBits(1) == 0) return signExtend(in.readBits(20), 20);
+        return in.readBits(64);
+    }
+
+    // XOR dengan nilai sebelumnya: '0' = sama; '10' = bit berubah muat di jendela sebelumnya;
+    // '11' + 5 bit leading zero + 6 bit panjang + bit yang berubah
+    private static void writeValues(ByteArrayBits out, List<Monitoring> block, boolean suhu) {
+        long previous = Double.doubleToLongBits(value(block.get(0), suhu));
+        out.writeBits(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < block.size(); i++) {
+            long bits = Double.doubleToLongBits(value(block.get(i), suhu));
+            long xor = bits ^ previous;
+            if (xor == 0) {
+                out.writeBits(0b0, 1);
+            } else {
+                int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    out.writeBits(0b10, 2);
+                    out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int length = 64 - leading - trailing;
+                    out.writeBits(0b11, 2);
+                    out.writeBits(leading, 5);
+                    out.writeBits(length & 0x3F, 6); // 64 disimpan sebagai 0
+                    out.writeBits(xor >>> trailing, length);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = bits;
+        }
+        out.alignToByte();
+    }
+
+    // window[0] = leading zero, window[1] = trailing zero dari kontrol '11' terakhir
+    private static long readXor(BitReader in, long previous, int[] window) {
+        if (in.readBits(1) == 0) return previous;
+        if (in.readBits(1) == 1) {
+            int leading = (int) in.readBits(5);
+            int length = (int) in.readBits(6);
+            if (length == 0) length = 64;
+            window[0] = leading;
+            window[1] = 64 - leading - length;
+        }
+        int length = 64 - window[0] - window[1];
+        return previous ^ (in.readBits(length) << window[1]);
+    }
+
+    private static double value(Monitoring row, boolean suhu) {
+        return suhu ? row.getSuhu() : row.getKelembaban();
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int zigzagDecode(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    /** Dipanggil per baris saat scan; kembalikan false untuk berhenti. */
+    public interface RowVisitor {
+        boolean visit(int idMonitor, int idLahan, long tanggal, double suhu, double kelembaban);
+    }
+
+    // Buffer tulis yang bisa diisi per bit maupun per byte (varint)
+    private static final class ByteArrayBits {
+        private byte[] bytes;
+        private int size;
+        private int bitsInLast; // 0 = byte terakhir sudah penuh / belum ada
+
+        ByteArrayBits(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeBits(long value, int count) {
+            for (int remaining = count; remaining > 0; ) {
+                if (bitsInLast == 0) {
+                    ensure(1);
+                    bytes[size++] = 0;
+                }
+                int free = 8 - bitsInLast;
+                int take = Math.min(free, remaining);
+                int chunk = (int) ((value >>> (remaining - take)) & ((1 << take) - 1));
+                bytes[size - 1] |= (byte) (chunk << (free - take));
+                bitsInLast = (bitsInLast + take) & 7;
+                remaining -= take;
+            }
+        }
+
+        void writeVarLong(long value) {
+            alignToByte();
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void alignToByte() {
+            bitsInLast = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    // Pembaca bit dari buffer mapped; 8 byte dimuat sekaligus ke register
+    private static final class BitReader {
+        private final ByteBuffer buffer;
+        private int position;
+        private long window;
+        private int available;
+
+        BitReader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readBits(int count) {
+            if (count == 0) return 0;
+            if (count <= available) {
+                long result = (window >>> (available - count)) & mask(count);
+                available -= count;
+                return result;
+            }
+            // Sisa bit di window + bit dari window berikutnya
+            int fromOld = available;
+            long high = fromOld > 0 ? window & mask(fromOld) : 0;
+            refill();
+            int fromNew = count - fromOld;
+            long low = (window >>> (available - fromNew)) & mask(fromNew);
+            available -= fromNew;
+            return fromNew == 64 ? low : (high << fromNew) | low;
+        }
+
+        private void refill() {
+            if (position + 8 <= buffer.capacity()) {
+                window = buffer.getLong(position);
+                position += 8;
+                available = 64;
+            } else {
+                window = 0;
+                available = 0;
+                while (position < buffer.capacity() && available < 64) {
+                    window = (window << 8) | (buffer.get(position++) & 0xFF);
+                    available += 8;
+                }
+            }
+        }
+
+        private static long mask(int count) {
+            return count == 64 ? -1L : (1L << count) - 1;
+        }
+    }
+
+    private static final class ByteCursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        ByteCursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.sql2o.Query;
+
+import com.farmmanagement.config.AppConfig;
+
+import spark.Request;
+
+/**
+ * Parameter keyset pagination: ?after_id=&limit=&order=asc|desc
+ * Cursor adalah ID terakhir dari halaman sebelumnya (next_cursor).
+ * Daftar yang dibaca "terbaru dulu" (monitoring, pembelian, hasil panen) memakai default order=desc,
+ * supaya halaman pertama tanpa parameter berisi data terbaru, bukan data tertua.
+ */
+public class PageRequest {
+    public static final int DEFAULT_LIMIT = AppConfig.getInt("PAGE_DEFAULT_LIMIT", 100);
+    public static final int MAX_LIMIT = AppConfig.getInt("PAGE_MAX_LIMIT", 500);
+    // Halaman yang di-stream tidak ditampung di memori, jadi boleh jauh lebih besar
+    public static final int STREAM_MAX_LIMIT = AppConfig.getInt("PAGE_STREAM_MAX_LIMIT", 10_000);
+
+    private final Integer afterId;
+    private final int limit;
+    private final boolean descending;
+
+    public PageRequest(Integer afterId, int limit, boolean descending) {
+        this.afterId = afterId;
+        this.limit = limit;
+        this.descending = descending;
+    }
+
+    // Baca parameter pagination dari query string; IllegalArgumentException jika tidak valid
+    public static PageRequest from(Request req) {
+        return from(req, MAX_LIMIT);
+    }
+
+    public static PageRequest from(Request req, int maxLimit) {
+        return from(req, maxLimit, false);
+    }
+
+    public static PageRequest from(Request req, int maxLimit, boolean defaultDescending) {
+        Integer afterId = null;
+        String cursor = req.queryParams("after_id") != null ? req.queryParams("after_id") : req.queryParams("cursor");
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Integer.parseInt(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter after_id harus berupa angka");
+            }
+        }
+
+        int limit = DEFAULT_LIMIT;
+        String limitParam = req.queryParams("limit");
+        if (limitParam != null && !limitParam.isEmpty()) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter limit harus berupa angka");
+            }
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Parameter limit harus lebih dari 0");
+            }
+        }
+
+        String order = req.queryParams("order");
+        if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("Parameter order harus 'asc' atau 'desc'");
+        }
+
+        boolean descending = order != null ? order.equalsIgnoreCase("desc") : defaultDescending;
+        return new PageRequest(afterId, Math.min(limit, maxLimit), descending);
+    }
+
+    public Integer getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    // Kondisi keyset untuk klausa WHERE, null jika halaman pertama
+    public String keysetCondition(String idColumn) {
+        if (afterId == null) return null;
+        return idColumn + (descending ? " < " : " > ") + ":after_id";
+    }
+
+    // ORDER BY + LIMIT untuk mengambil isi halaman
+    public String orderAndLimit(String idColumn) {
+        return " ORDER BY " + idColumn + (descending ? " DESC" : " ASC") + " LIMIT :limit";
+    }
+
+    // Probe cursor (hanya kolom ID): ambil ID ke-limit dan ke-(limit+1) sebelum baris di-stream,
+    // karena header / next_cursor tidak bisa menunggu sampai semua baris selesai ditulis
+    public String probeOrderAndOffset(String idColumn) {
+        return " ORDER BY " + idColumn + (descending ? " DESC" : " ASC") + " OFFSET :probe_offset LIMIT 2";
+    }
+
+    public Query bind(Query query) {
+        bindAfterId(query);
+        return query.addParameter("limit", limit);
+    }
+
+    public Query bindProbe(Query query) {
+        bindAfterId(query);
+        return query.addParameter("probe_offset", limit - 1);
+    }
+
+    // Jika ada baris setelah halaman ini, ID terakhir halaman menjadi cursor berikutnya
+    public String nextCursor(List<Integer> probedIds) {
+        return probedIds.size() > 1 ? String.valueOf(probedIds.get(0)) : null;
+    }
+
+    private void bindAfterId(Query query) {
+        if (afterId != null) {
+            query.addParameter("after_id", afterId.intValue());
+        }
+    }
+
+    // Dipanggil repository dengan baris yang masih dibaca dari cursor JDBC
+    public interface RowHandler<T, R> {
+        R handle(Iterable<T> rows, String nextCursor) throws IOException;
+    }
+}
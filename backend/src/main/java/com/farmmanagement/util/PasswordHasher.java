@@ -0,0 +1,113 @@
+package com.farmmanagement.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import com.farmmanagement.config.AppConfig;
+
+/**
+ * BCrypt hashing di worker pool terpisah dengan antrian terbatas, supaya lonjakan login
+ * tidak menghabiskan thread Jetty. Jika pool penuh langsung ditolak (503).
+ */
+public class PasswordHasher {
+    private static final int COST = AppConfig.getInt("BCRYPT_COST", 10);
+    private static final int POOL_SIZE = AppConfig.getInt("BCRYPT_POOL_SIZE", Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_SIZE = AppConfig.getInt("BCRYPT_QUEUE_SIZE", 64);
+    private static final long TIMEOUT_MS = AppConfig.getLong("BCRYPT_TIMEOUT_MS", 10_000);
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private PasswordHasher() {}
+
+    public static String hash(String rawPassword) {
+        return submit(() -> BCrypt.hashpw(rawPassword, BCrypt.gensalt(COST)));
+    }
+
+    public static boolean check(String rawPassword, String hashedPassword) {
+        return submit(() -> BCrypt.checkpw(rawPassword, hashedPassword));
+    }
+
+    // True jika hash dibuat dengan cost lebih rendah dari BCRYPT_COST saat ini
+    public static boolean needsRehash(String hashedPassword) {
+        return costOf(hashedPassword) < COST;
+    }
+
+    // Jalankan di pool tanpa menunggu hasil (misal rehash setelah login); diabaikan jika pool penuh
+    public static void runInBackground(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ Password hashing pool busy, background task skipped");
+        }
+    }
+
+    public static int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public static int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    private static <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Server sedang sibuk, silakan coba lagi");
+        }
+
+        try {
+            return future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException("Server sedang sibuk, silakan coba lagi");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Proses password dibatalkan");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // Format hash BCrypt: $2a$<cost>$...
+    private static int costOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
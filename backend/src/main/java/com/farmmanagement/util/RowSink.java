@@ -0,0 +1,11 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+
+/**
+ * Menerima baris yang masih dibaca dari cursor JDBC (streamRange di repository).
+ * Iterable hanya valid selama accept() berjalan; koneksi ditutup setelahnya.
+ */
+public interface RowSink<T> {
+    void accept(Iterable<T> rows) throws IOException;
+}
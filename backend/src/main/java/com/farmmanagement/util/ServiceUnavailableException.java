@@ -0,0 +1,13 @@
+package com.farmmanagement.util;
+
+/**
+ * Dilempar saat resource internal (pool hashing, limiter, dsb.) sedang penuh.
+ * Dipetakan ke HTTP 503 agar client mencoba lagi nanti.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
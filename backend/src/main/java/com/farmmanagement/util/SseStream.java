@@ -0,0 +1,206 @@
+package com.farmmanagement.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import com.farmmanagement.config.AppConfig;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Satu koneksi SSE yang dilayani secara async (servlet 3.1): setelah start() thread Jetty langsung
+ * kembali ke pool, jadi stream yang terbuka lama tidak memakan thread request. Event dari
+ * Subscription ditulis non-blocking oleh pool kecil "sse-writer"; jika socket klien penuh, event
+ * menunggu di antrean Subscription sampai Jetty memanggil onWritePossible (antrean penuh = overflow).
+ * Heartbeat dan batas durasi dijalankan satu scheduler untuk semua koneksi.
+ */
+public class SseStream implements WriteListener, AsyncListener {
+    private static final int WRITER_THREADS = Math.max(1, AppConfig.getInt("MONITORING_STREAM_WRITER_THREADS", 2));
+    private static final long TICK_MS = 250;
+
+    private static final Set<SseStream> open = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService writers = Executors.newFixedThreadPool(WRITER_THREADS, daemon("sse-writer"));
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(daemon("sse-heartbeat"));
+
+    static {
+        ticker.scheduleAtFixedRate(SseStream::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private final MonitoringBroadcaster.Subscription subscription;
+    private final Function<Object, String> formatter;
+    private final long heartbeatMs;
+    private final long deadline;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private AsyncContext async;
+    private ServletOutputStream out;
+
+    // Diset scheduler heartbeat, dibaca di drain()
+    private volatile long lastWriteAt = System.currentTimeMillis();
+    private volatile boolean pingDue;
+    private volatile boolean expired;
+    // Hanya diakses di dalam drain() (synchronized)
+    private boolean unflushed;
+    private boolean finishing;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // formatter mengubah event dari Subscription menjadi teks SSE lengkap (diakhiri baris kosong)
+    public SseStream(MonitoringBroadcaster.Subscription subscription, Function<Object, String> formatter,
+                     long heartbeatMs, long maxDurationMs) {
+        this.subscription = subscription;
+        this.formatter = formatter;
+        this.heartbeatMs = heartbeatMs;
+        this.deadline = System.currentTimeMillis() + maxDurationMs;
+    }
+
+    // Status dan header harus sudah di-set. Response di-commit di sini (baris pembuka ditulis blocking),
+    // sehingga Spark tidak lagi menulis body setelah route selesai.
+    public void start(Request req, Response res, String preamble) throws IOException {
+        async = req.raw().startAsync();
+        async.setTimeout(0); // durasi dibatasi sendiri lewat deadline
+        async.addListener(this);
+        out = res.raw().getOutputStream();
+        out.write(preamble.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        open.add(this);
+        subscription.onEvent(this::scheduleDrain);
+        out.setWriteListener(this); // Jetty memanggil onWritePossible segera
+    }
+
+    public static int getOpenStreams() {
+        return open.size();
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close(); // klien menutup koneksi atau write gagal
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void scheduleDrain() {
+        if (!closed.get() && drainScheduled.compareAndSet(false, true)) {
+            writers.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    // Tulis sebanyak yang diterima socket tanpa blocking; sisanya dilanjutkan di onWritePossible
+    private synchronized void drain() {
+        if (closed.get()) return;
+        try {
+            while (out.isReady()) {
+                String chunk = nextChunk();
+                if (chunk == null) {
+                    if (unflushed) {
+                        unflushed = false;
+                        out.flush();
+                        continue;
+                    }
+                    if (finishing) {
+                        close();
+                    }
+                    return;
+                }
+                out.write(chunk.getBytes(StandardCharsets.UTF_8));
+                unflushed = true;
+                lastWriteAt = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    private String nextChunk() {
+        if (finishing) return null;
+        if (expired) {
+            finishing = true; // klien reconnect (token dicek ulang)
+            return null;
+        }
+        Object event = subscription.poll();
+        if (event != null) {
+            return formatter.apply(event);
+        }
+        if (subscription.isOverflowed()) {
+            finishing = true;
+            return "event: overflow\ndata: {\"error\":\"Klien terlalu lambat, silakan reconnect\"}\n\n";
+        }
+        if (pingDue) {
+            pingDue = false;
+            return ": ping\n\n";
+        }
+        return null;
+    }
+
+    private void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        open.remove(this);
+        subscription.close();
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // Sudah selesai (error / klien putus)
+        }
+    }
+
+    private static void tick() {
+        long now = System.currentTimeMillis();
+        for (SseStream stream : open) {
+            if (now >= stream.deadline) {
+                stream.expired = true;
+            } else if (now - stream.lastWriteAt >= stream.heartbeatMs) {
+                stream.pingDue = true;
+            } else {
+                continue;
+            }
+            stream.scheduleDrain();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.farmmanagement.util;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.sql2o.Query;
+
+import com.farmmanagement.config.AppConfig;
+
+import spark.Request;
+
+/**
+ * Rentang waktu query data sensor: ?from=&to= (from inklusif, to eksklusif).
+ * Format: yyyy-MM-dd, yyyy-MM-dd HH:mm:ss, ISO-8601 (dengan / tanpa offset) atau epoch millis.
+ * "to" berupa tanggal saja dianggap sampai akhir hari itu. Tanpa parameter dipakai
+ * MONITORING_DEFAULT_RANGE_DAYS hari terakhir, jadi query monitoring selalu punya batas tanggal
+ * dan PostgreSQL hanya membaca partisi yang relevan.
+ */
+public class TimeRange {
+    public static final int DEFAULT_DAYS = AppConfig.getInt("MONITORING_DEFAULT_RANGE_DAYS", 30);
+
+    private static final DateTimeFormatter SQL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long DAY_MS = 86_400_000L;
+
+    private final Timestamp from;
+    private final Timestamp to;
+
+    public TimeRange(Timestamp from, Timestamp to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    // N hari terakhir; batas atas sedikit di depan supaya jam sensor yang lebih cepat tetap ikut
+    public static TimeRange lastDays(int days) {
+        long now = System.currentTimeMillis();
+        return new TimeRange(new Timestamp(now - days * DAY_MS), new Timestamp(now + DAY_MS));
+    }
+
+    // Baca ?from=&to= dari query string; IllegalArgumentException jika tidak valid
+    public static TimeRange from(Request req) {
+        return from(req.queryParams("from"), req.queryParams("to"), DEFAULT_DAYS);
+    }
+
+    public static TimeRange from(String fromParam, String toParam, int defaultDays) {
+        TimeRange fallback = lastDays(defaultDays);
+        Timestamp to = isBlank(toParam) ? fallback.to : parse(toParam, "to", true);
+        Timestamp from = isBlank(fromParam)
+                ? (isBlank(toParam) ? fallback.from : new Timestamp(to.getTime() - defaultDays * DAY_MS))
+                : parse(fromParam, "from", false);
+        if (!from.before(to)) {
+            throw new IllegalArgumentException("Parameter from harus lebih awal dari to");
+        }
+        return new TimeRange(from, to);
+    }
+
+    public Timestamp getFrom() {
+        return from;
+    }
+
+    public Timestamp getTo() {
+        return to;
+    }
+
+    // Kondisi untuk klausa WHERE, parameter diikat lewat bind()
+    public String condition(String column) {
+        return column + " >= :range_from AND " + column + " < :range_to";
+    }
+
+    public Query bind(Query query) {
+        return query.addParameter("range_from", from)
+                    .addParameter("range_to", to);
+    }
+
+    private static Timestamp parse(String value, String name, boolean endOfDay) {
+        String text = value.trim();
+        try {
+            if (text.chars().allMatch(Character::isDigit) && text.length() > 8) {
+                return new Timestamp(Long.parseLong(text));
+            }
+            if (text.length() == 10) {
+                LocalDate date = LocalDate.parse(text);
+                return Timestamp.valueOf((endOfDay ? date.plusDays(1) : date).atStartOfDay());
+            }
+            if (text.endsWith("Z") || text.matches(".*[+-]\\d{2}:\\d{2}$")) {
+                return Timestamp.from(OffsetDateTime.parse(text.replace(' ', 'T')).toInstant());
+            }
+            if (text.indexOf('T') > 0) {
+                return Timestamp.valueOf(LocalDateTime.parse(text));
+            }
+            return Timestamp.valueOf(LocalDateTime.parse(text, SQL_TIMESTAMP));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " harus berupa tanggal (yyyy-MM-dd atau yyyy-MM-dd HH:mm:ss)");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,73 @@
+package com.farmmanagement.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Thread pool Jetty yang menjalankan setiap task di virtual thread (Java 21+).
+ * Hanya ikut dikompilasi dengan profile Maven -Pjava21; dimuat lewat ServerConfig.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    @Override
+    protected void doStart() throws Exception {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jetty-vt-", 0).factory());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdown();
+            current.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        super.doStop();
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        ExecutorService current = executor;
+        if (current == null) {
+            throw new IllegalStateException("VirtualThreadPool is not started");
+        }
+        current.execute(() -> {
+            running.incrementAndGet();
+            try {
+                job.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package com.farmmanagement.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.valueAtQuantile(0.5));
+        assertEquals(0, histogram.valueAtQuantile(0.99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 0; micros < 64; micros++) {
+            histogram.record(micros);
+        }
+        assertEquals(0, histogram.valueAtQuantile(0));
+        assertEquals(31, histogram.valueAtQuantile(0.5));
+        assertEquals(63, histogram.valueAtQuantile(1));
+        assertEquals(63 * 64 / 2, histogram.getSumMicros());
+    }
+
+    @Test
+    void bucketsAreContiguousAndOrdered() {
+        int previous = -1;
+        for (long value = 0; value < (1L << 37); value = value < 256 ? value + 1 : value + value / 97) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= previous, "index must not decrease at " + value);
+            assertTrue(LatencyHistogram.lowerBoundOf(index) <= value, "lower bound above " + value);
+            assertTrue(LatencyHistogram.lowerBoundOf(index + 1) > value, "next bucket starts at or below " + value);
+            previous = index;
+        }
+    }
+
+    @Test
+    void quantilesStayWithinBucketError() {
+        Random random = new Random(1);
+        long[] samples = new long[200_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < samples.length; i++) {
+            // Log-normal: sebagian besar ~ms, ekor panjang sampai detik
+            samples[i] = (long) Math.exp(7 + random.nextGaussian() * 1.5);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        for (double q : new double[] {0.5, 0.9, 0.95, 0.99, 0.999}) {
+            long exact = samples[(int) Math.ceil(q * samples.length) - 1];
+            long estimate = histogram.valueAtQuantile(q);
+            // Titik tengah bucket: error paling banyak setengah lebar bucket (1/64 dari nilainya)
+            assertTrue(Math.abs(estimate - exact) <= Math.max(1, exact / 64.0),
+                    "q=" + q + " exact=" + exact + " estimate=" + estimate);
+        }
+        assertEquals(samples[samples.length - 1], histogram.getMaxMicros());
+        assertTrue(histogram.valueAtQuantile(1) <= histogram.getMaxMicros());
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.recordNanos(999);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(0, histogram.valueAtQuantile(0.5));
+        long max = histogram.getMaxMicros();
+        assertEquals((1L << 37) - 1, max);
+        assertTrue(histogram.valueAtQuantile(1) <= max);
+    }
+
+    @Test
+    void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i % 1_000);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertEquals((long) threads * (perThread / 1_000) * (999 * 1_000 / 2), histogram.getSumMicros());
+        assertEquals(999, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,109 @@
+package com.farmmanagement.middleware;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterMiddlewareTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void allowsBurstUpToCapacityThenRejects() {
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", 5, HOUR, 100);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rule.tryAcquire("10.0.0.1"), "request " + i);
+        }
+        long retryAfter = rule.tryAcquire("10.0.0.1");
+        assertTrue(retryAfter > 0);
+        // Satu token terisi setiap period / capacity
+        assertTrue(retryAfter <= HOUR / 5, "retry after " + retryAfter);
+        assertEquals(5, rule.allowed.sum());
+        assertEquals(1, rule.rejected.sum());
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", 2, TimeUnit.MILLISECONDS.toNanos(200), 100);
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+        assertTrue(rule.tryAcquire("10.0.0.1") > 0);
+
+        Thread.sleep(150); // > 100 ms per token
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", 1, HOUR, 100);
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+        assertTrue(rule.tryAcquire("10.0.0.1") > 0);
+        assertEquals(0, rule.tryAcquire("10.0.0.2"));
+        assertEquals(2, rule.buckets.size());
+    }
+
+    @Test
+    void newKeysFailOpenWhenStoreIsFullAndTrackedKeysStayLimited() {
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", 1, HOUR, 2);
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+        assertEquals(0, rule.tryAcquire("10.0.0.2"));
+
+        // Key store penuh dan tidak ada bucket idle: IP baru tidak saling mengunci
+        for (int i = 3; i < 10; i++) {
+            assertEquals(0, rule.tryAcquire("10.0.0." + i));
+            assertEquals(0, rule.tryAcquire("10.0.0." + i));
+        }
+        assertEquals(14, rule.untracked.sum());
+        assertEquals(2, rule.buckets.size());
+        assertTrue(rule.tryAcquire("10.0.0.1") > 0);
+        assertTrue(rule.tryAcquire("10.0.0.2") > 0);
+    }
+
+    @Test
+    void idleBucketsAreEvictedToMakeRoom() throws InterruptedException {
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", 1, TimeUnit.MILLISECONDS.toNanos(50), 1);
+        assertEquals(0, rule.tryAcquire("10.0.0.1"));
+        Thread.sleep(100); // bucket 10.0.0.1 sudah penuh kembali = idle
+
+        assertEquals(0, rule.tryAcquire("10.0.0.2"));
+        assertTrue(rule.buckets.containsKey("10.0.0.2"));
+        assertEquals(1, rule.buckets.size());
+        assertTrue(rule.tryAcquire("10.0.0.2") > 0);
+        assertEquals(0, rule.untracked.sum());
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedCapacity() throws InterruptedException {
+        int capacity = 1_000;
+        RateLimiterMiddleware.Rule rule = new RateLimiterMiddleware.Rule("test", capacity, TimeUnit.DAYS.toNanos(1), 100);
+        int threads = 16;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (rule.tryAcquire("10.0.0.1") == 0) granted.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Refill selama test (1000 token per hari) jauh di bawah satu token
+        assertEquals(capacity, granted.get());
+        assertEquals(threads * 500 - capacity, rule.rejected.sum());
+    }
+}
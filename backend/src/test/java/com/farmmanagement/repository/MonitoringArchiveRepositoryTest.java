@@ -0,0 +1,186 @@
+package com.farmmanagement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.farmmanagement.model.Monitoring;
+import com.farmmanagement.util.MonitoringSegment;
+import com.farmmanagement.util.PageRequest;
+import com.farmmanagement.util.TimeRange;
+
+class MonitoringArchiveRepositoryTest {
+    private static final YearMonth JANUARY = YearMonth.of(2025, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2025, 2);
+
+    @TempDir
+    static Path archiveDir;
+
+    private static MonitoringArchiveRepository repo;
+    // Semua baris arsip, urut BY_TANGGAL
+    private static final List<Monitoring> all = new ArrayList<>();
+
+    @BeforeAll
+    static void writeArchive() {
+        // Direktori arsip dibaca saat class repository pertama kali dimuat, jadi harus di-set lebih dulu
+        System.setProperty("MONITORING_ARCHIVE_DIR", archiveDir.toString());
+        repo = new MonitoringArchiveRepository();
+
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 4_000; i++) ids.add(i * 3);
+        Collections.shuffle(ids, random);
+        Iterator<Integer> nextId = ids.iterator();
+
+        // Lahan 1 Januari lebih dari dua blok; baris lain sedikit, dengan tanggal kembar antar lahan
+        writeMonth(JANUARY, 1, MonitoringSegment.BLOCK_ROWS * 2 + 17, random, nextId, null);
+        writeMonth(JANUARY, 2, 300, random, nextId, null);
+        writeMonth(FEBRUARY, 1, 500, random, nextId, null);
+        writeMonth(FEBRUARY, 2, 200, random, nextId, Integer.MAX_VALUE);
+        all.sort(MonitoringArchiveRepository.BY_TANGGAL);
+    }
+
+    @Test
+    void iterateMergesLahanAndMonthsInOrder() {
+        assertRows(all, drain(repo.iterate(fullRange(), null)));
+        assertRows(only(all, 2), drain(repo.iterate(fullRange(), 2)));
+    }
+
+    @Test
+    void iterateHonoursRangeEdges() {
+        Timestamp february = Timestamp.valueOf(FEBRUARY.atDay(1).atStartOfDay());
+        Timestamp mid = all.get(all.size() / 2).getTanggal();
+        TimeRange[] ranges = {
+            new TimeRange(Timestamp.valueOf(JANUARY.atDay(1).atStartOfDay()), february),
+            new TimeRange(february, Timestamp.valueOf(FEBRUARY.plusMonths(1).atDay(1).atStartOfDay())),
+            new TimeRange(mid, new Timestamp(mid.getTime() + 1)),
+            new TimeRange(new Timestamp(mid.getTime() - 3_600_000), mid),
+            new TimeRange(new Timestamp(february.getTime() - 1), new Timestamp(february.getTime() + 1)),
+        };
+        for (TimeRange range : ranges) {
+            String label = range.getFrom() + ".." + range.getTo();
+            assertRows(inRange(all, range), drain(repo.iterate(range, null)), label);
+            assertRows(only(inRange(all, range), 1), drain(repo.iterate(range, 1)), label);
+        }
+    }
+
+    @Test
+    void findByRangeStopsAtLimit() {
+        assertRows(only(all, 1).subList(0, 10), repo.findByRange(fullRange(), 1, 10));
+        assertRows(all.subList(0, 25), repo.findByRange(fullRange(), null, 25));
+        assertRows(all, repo.findByRange(fullRange(), null, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void findPageWalksAllIdsInBothDirections() {
+        for (boolean descending : new boolean[] {false, true}) {
+            Comparator<Monitoring> order = Comparator.comparingInt(Monitoring::getId_monitor);
+            List<Monitoring> expected = new ArrayList<>(all);
+            expected.sort(descending ? order.reversed() : order);
+
+            List<Monitoring> walked = new ArrayList<>();
+            Integer afterId = null;
+            while (true) {
+                List<Monitoring> page = repo.findPage(new PageRequest(afterId, 333, descending), fullRange(), 333);
+                walked.addAll(page);
+                if (page.size() < 333) break;
+                afterId = page.get(page.size() - 1).getId_monitor();
+            }
+            assertRows(expected, walked, descending ? "desc" : "asc");
+        }
+    }
+
+    @Test
+    void findSegmentReturnsWholeFileIncludingBoundaryIds() {
+        List<Monitoring> february2 = only(inRange(all, monthRange(FEBRUARY)), 2);
+        List<Monitoring> segment = repo.findSegment(FEBRUARY, 2);
+        assertRows(february2, segment);
+        assertTrue(segment.stream().anyMatch(m -> m.getId_monitor() == Integer.MAX_VALUE));
+        assertTrue(repo.findSegment(YearMonth.of(2024, 12), 1).isEmpty());
+    }
+
+    @Test
+    void overlapsAndArchivedUntil() {
+        assertTrue(repo.overlaps(monthRange(JANUARY)));
+        assertTrue(repo.overlaps(new TimeRange(Timestamp.valueOf("2024-12-31 23:00:00"), Timestamp.valueOf("2025-01-01 00:00:01"))));
+        // to eksklusif: rentang yang berakhir tepat di awal Januari tidak menyentuh arsip
+        assertFalse(repo.overlaps(new TimeRange(Timestamp.valueOf("2024-12-01 00:00:00"), Timestamp.valueOf("2025-01-01 00:00:00"))));
+        assertFalse(repo.overlaps(monthRange(YearMonth.of(2025, 3))));
+        assertEquals(Timestamp.valueOf("2025-03-01 00:00:00"), repo.getArchivedUntil());
+    }
+
+    private static void writeMonth(YearMonth month, int idLahan, int count, Random random, Iterator<Integer> ids, Integer extraId) {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        long monthMs = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()).getTime() - Timestamp.valueOf(start).getTime();
+        List<Monitoring> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Dibulatkan ke menit supaya banyak tanggal kembar, baik di satu lahan maupun antar lahan
+            long offset = random.nextInt(10) == 0 ? 0 : (Math.floorMod(random.nextLong(), monthMs) / 60_000) * 60_000;
+            int id = extraId != null && i == 0 ? extraId : ids.next();
+            rows.add(new Monitoring(id, idLahan, 20 + random.nextInt(150) / 10.0, random.nextInt(5) == 0 ? Double.NaN : 60,
+                    new Timestamp(Timestamp.valueOf(start).getTime() + offset)));
+        }
+        rows.sort(MonitoringArchiveRepository.BY_TANGGAL);
+        repo.writeSegment(month, idLahan, rows);
+        all.addAll(rows);
+    }
+
+    private static TimeRange fullRange() {
+        return new TimeRange(Timestamp.valueOf("2024-01-01 00:00:00"), Timestamp.valueOf("2026-01-01 00:00:00"));
+    }
+
+    private static TimeRange monthRange(YearMonth month) {
+        return new TimeRange(Timestamp.valueOf(month.atDay(1).atStartOfDay()),
+                             Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    private static List<Monitoring> inRange(List<Monitoring> rows, TimeRange range) {
+        return rows.stream()
+                   .filter(m -> !m.getTanggal().before(range.getFrom()) && m.getTanggal().before(range.getTo()))
+                   .collect(Collectors.toList());
+    }
+
+    private static List<Monitoring> only(List<Monitoring> rows, int idLahan) {
+        return rows.stream().filter(m -> m.getId_lahan() == idLahan).collect(Collectors.toList());
+    }
+
+    private static List<Monitoring> drain(Iterator<Monitoring> iterator) {
+        List<Monitoring> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+
+    private static void assertRows(List<Monitoring> expected, List<Monitoring> actual) {
+        assertRows(expected, actual, "");
+    }
+
+    private static void assertRows(List<Monitoring> expected, List<Monitoring> actual, String label) {
+        assertEquals(expected.size(), actual.size(), label + " row count");
+        for (int i = 0; i < expected.size(); i++) {
+            Monitoring e = expected.get(i);
+            Monitoring a = actual.get(i);
+            String where = label + " row " + i;
+            assertEquals(e.getId_monitor(), a.getId_monitor(), where + " id_monitor");
+            assertEquals(e.getId_lahan(), a.getId_lahan(), where + " id_lahan");
+            assertEquals(e.getTanggal(), a.getTanggal(), where + " tanggal");
+            assertEquals(e.getSuhu(), a.getSuhu(), where + " suhu");
+            assertEquals(e.getKelembaban(), a.getKelembaban(), where + " kelembaban");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.farmmanagement.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class ExpiringLruCacheTest {
+
+    @Test
+    void loadsOnceAndServesFromCache() {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        Function<Integer, String> loader = id -> {
+            loads.incrementAndGet();
+            return "lahan-" + id;
+        };
+
+        assertEquals("lahan-1", cache.getOrLoad(1, loader));
+        assertEquals("lahan-1", cache.getOrLoad(1, loader));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void missingValuesAreNotCached() {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(cache.getOrLoad(1, id -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getOrLoad(1, id -> { loads.incrementAndGet(); return null; }));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidationDuringLoadDiscardsLoadedValue() {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+
+        // Baris diubah (dan cache diinvalidasi) saat load masih membaca versi lama dari database
+        String stale = cache.getOrLoad(1, id -> {
+            cache.invalidate(id);
+            return "lama";
+        });
+        assertEquals("lama", stale);
+        assertEquals(0, cache.size());
+        assertEquals("baru", cache.getOrLoad(1, id -> "baru"));
+        assertEquals("baru", cache.get(1));
+    }
+
+    @Test
+    void invalidateAllDuringLoadDiscardsLoadedValue() {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+        cache.getOrLoad(1, id -> {
+            cache.invalidateAll();
+            return "lama";
+        });
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void concurrentInvalidationWinsOverSlowLoad() throws Exception {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> slowLoad = CompletableFuture.supplyAsync(() -> cache.getOrLoad(1, id -> {
+            loading.countDown();
+            await(release);
+            return "lama";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidate(1);
+        release.countDown();
+
+        assertEquals("lama", slowLoad.get(5, TimeUnit.SECONDS));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(2, 60_000);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.get(1);          // 2 jadi yang paling lama tidak dipakai
+        cache.put(3, "c");
+
+        assertEquals("a", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("c", cache.get(3));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void expiredEntriesAreMisses() throws InterruptedException {
+        ExpiringLruCache<Integer, String> cache = new ExpiringLruCache<>(10, 60_000);
+        cache.put(1, "a", System.currentTimeMillis() + 30);
+        cache.put(2, "b", System.currentTimeMillis() - 1); // sudah kedaluwarsa, tidak disimpan
+        assertEquals(1, cache.size());
+
+        Thread.sleep(60);
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.farmmanagement.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.farmmanagement.model.Monitoring;
+
+class LatestReadingsStoreTest {
+
+    @Test
+    void keepsNewestReadingsWhenWrapping() {
+        LatestReadingsStore store = new LatestReadingsStore(4);
+        for (long ts = 1; ts <= 10; ts++) {
+            add(store, 1, ts);
+        }
+        assertArrayEquals(new long[] {10, 9, 8, 7}, tanggal(store.latest(1, 10)));
+        assertArrayEquals(new long[] {10, 9}, tanggal(store.latest(1, 2)));
+        assertEquals(0, store.latest(1, 0).size());
+    }
+
+    @Test
+    void lateReadingIsInsertedInPlace() {
+        LatestReadingsStore store = new LatestReadingsStore(5);
+        add(store, 1, 100);
+        add(store, 1, 300);
+        add(store, 1, 200);   // datang terlambat
+        add(store, 1, 50);    // lebih tua dari semua, buffer belum penuh
+
+        LatestReadingsStore.Readings readings = store.latest(1, 10);
+        assertArrayEquals(new long[] {300, 200, 100, 50}, tanggal(readings));
+        for (int i = 0; i < readings.size(); i++) {
+            // Nilai ikut bergeser bersama tanggalnya
+            assertEquals(suhu(readings.getTanggal(i)), readings.getSuhu(i));
+            assertEquals(kelembaban(readings.getTanggal(i)), readings.getKelembaban(i));
+        }
+    }
+
+    @Test
+    void lateReadingIntoFullBufferDropsOldest() {
+        LatestReadingsStore store = new LatestReadingsStore(3);
+        add(store, 1, 10);
+        add(store, 1, 30);
+        add(store, 1, 40);
+        add(store, 1, 20);    // masuk di antara, 10 terbuang
+        assertArrayEquals(new long[] {40, 30, 20}, tanggal(store.latest(1, 3)));
+
+        add(store, 1, 5);     // lebih tua dari isi buffer penuh: diabaikan
+        assertArrayEquals(new long[] {40, 30, 20}, tanggal(store.latest(1, 3)));
+    }
+
+    @Test
+    void outOfOrderStreamMatchesReference() {
+        int capacity = 16;
+        Random random = new Random(19);
+        List<Long> timestamps = new ArrayList<>();
+        for (long ts = 1_000; ts < 3_000; ts++) timestamps.add(ts * 1_000);
+        // Sebagian besar urut, sebagian datang terlambat beberapa posisi
+        for (int i = 0; i < timestamps.size() - 8; i++) {
+            if (random.nextInt(4) == 0) Collections.swap(timestamps, i, i + 1 + random.nextInt(8));
+        }
+
+        LatestReadingsStore store = new LatestReadingsStore(capacity);
+        List<Long> seen = new ArrayList<>();
+        for (long ts : timestamps) {
+            add(store, 7, ts);
+            seen.add(ts);
+            List<Long> expected = new ArrayList<>(seen);
+            expected.sort(Collections.reverseOrder());
+            expected = expected.subList(0, Math.min(capacity, expected.size()));
+
+            LatestReadingsStore.Readings readings = store.latest(7, capacity);
+            assertEquals(expected.size(), readings.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).longValue(), readings.getTanggal(i), "after " + seen.size() + " readings, index " + i);
+                assertEquals(suhu(expected.get(i)), readings.getSuhu(i));
+            }
+        }
+    }
+
+    @Test
+    void replaceRemoveAndLatestAll() {
+        LatestReadingsStore store = new LatestReadingsStore(3);
+        add(store, 3, 1);
+        add(store, 1, 2);
+        add(store, 2, 3);
+        assertNull(store.latest(99, 5));
+
+        store.replace(2, List.of(new Monitoring(1, 2, 20, 50, new Timestamp(30)),
+                                 new Monitoring(2, 2, 21, 51, new Timestamp(10))));
+        assertArrayEquals(new long[] {30, 10}, tanggal(store.latest(2, 5)));
+
+        store.replace(3, List.of());
+        assertNull(store.latest(3, 5));
+        store.remove(1);
+
+        List<LatestReadingsStore.Readings> all = store.latestAll(5);
+        assertEquals(1, all.size());
+        assertEquals(2, all.get(0).getIdLahan());
+
+        add(store, 1, 4);
+        assertEquals(List.of(1, 2), store.latestAll(1).stream().map(LatestReadingsStore.Readings::getIdLahan).toList());
+        assertEquals(3L, store.getStats().get("readings"));
+    }
+
+    private static void add(LatestReadingsStore store, int idLahan, long ts) {
+        store.add(idLahan, ts, suhu(ts), kelembaban(ts));
+    }
+
+    private static double suhu(long ts) {
+        return ts % 1_000_003 / 1_000.0;
+    }
+
+    private static double kelembaban(long ts) {
+        return 100 - suhu(ts);
+    }
+
+    private static long[] tanggal(LatestReadingsStore.Readings readings) {
+        long[] result = new long[readings.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = readings.getTanggal(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,243 @@
+package com.farmmanagement.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.farmmanagement.model.Monitoring;
+
+class MonitoringSegmentTest {
+    private static final long START = Timestamp.valueOf("2026-03-01 00:00:00").getTime();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripIrregularIntervals() throws IOException {
+        // Delta-of-delta melewati semua lebar: sama, 7 bit, 12 bit, 20 bit dan 64 bit (lompatan berbulan-bulan)
+        long[] deltas = {60_000, 60_000, 60_001, 59_990, 61_500, 0, 0, 1, 3_600_000, 60_000,
+                         86_400_000L * 90, 5, 60_000, 2_047, -0L, 60_000};
+        List<Monitoring> rows = new ArrayList<>();
+        long ts = START;
+        for (int i = 0; i < 400; i++) {
+            ts += deltas[i % deltas.length];
+            rows.add(row(i + 1, ts, 20 + (i % 7) * 0.1, 55.5));
+        }
+
+        MonitoringSegment segment = writeAndOpen(rows);
+
+        assertEquals(rows.size(), segment.getRows());
+        assertEquals(rows.get(0).getTanggal().getTime(), segment.getFirstTs());
+        assertEquals(ts, segment.getLastTs());
+        assertRows(rows, scanAll(segment));
+        assertRows(rows, cursorAll(segment, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void roundTripSpecialAndRepeatedValues() throws IOException {
+        double[] values = {Double.NaN, Double.NaN, 0.0, -0.0, 25.5, 25.5, 25.5, Double.POSITIVE_INFINITY,
+                           Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1e-300, 31.25, Double.NaN};
+        List<Monitoring> rows = new ArrayList<>();
+        for (int i = 0; i < values.length * 3; i++) {
+            rows.add(row(i + 1, START + i * 60_000L, values[i % values.length], values[(i * 5) % values.length]));
+        }
+
+        assertRows(rows, scanAll(writeAndOpen(rows)));
+    }
+
+    @Test
+    void roundTripNonMonotonicIds() throws IOException {
+        // Data terlambat: id lebih kecil bisa muncul setelah id besar, termasuk lompatan jauh ke dua arah
+        // dan id di batas int (scan tanpa batas id harus tetap mengembalikan Integer.MAX_VALUE)
+        int[] ids = {1_000, 5, 999_999, 6, 2_000_000_000, 1, 42, 41, 43, Integer.MAX_VALUE, 0, 7};
+        List<Monitoring> rows = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(row(ids[i], START + i * 1_000L, i, 100 - i));
+        }
+
+        assertRows(rows, scanAll(writeAndOpen(rows)));
+    }
+
+    @Test
+    void roundTripAcrossBlockBoundaries() throws IOException {
+        for (int size : new int[] {1, MonitoringSegment.BLOCK_ROWS - 1, MonitoringSegment.BLOCK_ROWS,
+                                   MonitoringSegment.BLOCK_ROWS + 1, MonitoringSegment.BLOCK_ROWS * 2 + 3}) {
+            List<Monitoring> rows = randomRows(size, new Random(size));
+            MonitoringSegment segment = writeAndOpen(rows);
+            assertEquals(size, segment.getRows(), "rows for size " + size);
+            assertRows(rows, scanAll(segment));
+            assertRows(rows, cursorAll(segment, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void scanAndCursorHonourRangeEdges() throws IOException {
+        List<Monitoring> rows = randomRows(MonitoringSegment.BLOCK_ROWS * 3, new Random(7));
+        MonitoringSegment segment = writeAndOpen(rows);
+        long first = rows.get(0).getTanggal().getTime();
+        long last = rows.get(rows.size() - 1).getTanggal().getTime();
+        long boundary = rows.get(MonitoringSegment.BLOCK_ROWS).getTanggal().getTime();
+        long lastOfFirstBlock = rows.get(MonitoringSegment.BLOCK_ROWS - 1).getTanggal().getTime();
+
+        long[][] ranges = {
+            {first, last + 1},           // semua baris
+            {first, last},               // to eksklusif: baris terakhir tidak ikut
+            {first + 1, last + 1},       // from inklusif
+            {boundary, boundary + 1},    // tepat di awal blok kedua
+            {lastOfFirstBlock, boundary},
+            {lastOfFirstBlock, lastOfFirstBlock + 1},
+            {boundary - 30_000, boundary + 30_000},
+            {first - 10_000, first},     // sebelum data
+            {last + 1, last + 10_000},   // setelah data
+            {boundary, boundary},        // rentang kosong
+        };
+        for (long[] range : ranges) {
+            List<Monitoring> expected = filter(rows, range[0], range[1], Long.MIN_VALUE, Long.MAX_VALUE);
+            String label = "range " + range[0] + ".." + range[1];
+            List<Monitoring> scanned = new ArrayList<>();
+            segment.scan(range[0], range[1], Long.MIN_VALUE, Long.MAX_VALUE, collect(scanned));
+            assertRows(expected, scanned, label);
+            assertRows(expected, cursorAll(segment, range[0], range[1]), label);
+        }
+    }
+
+    @Test
+    void duplicateTimestampsSpanningBlockBoundary() throws IOException {
+        // Satu tanggal yang sama mengisi akhir blok pertama dan awal blok kedua
+        List<Monitoring> rows = new ArrayList<>();
+        long same = START + 3_600_000;
+        for (int i = 0; i < MonitoringSegment.BLOCK_ROWS + 200; i++) {
+            long ts = i < MonitoringSegment.BLOCK_ROWS - 100 ? START + i : same;
+            rows.add(row(i + 1, ts, i, i));
+        }
+        MonitoringSegment segment = writeAndOpen(rows);
+
+        List<Monitoring> expected = filter(rows, same, same + 1, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(300, expected.size());
+        assertRows(expected, cursorAll(segment, same, same + 1));
+        List<Monitoring> scanned = new ArrayList<>();
+        segment.scan(same, same + 1, Long.MIN_VALUE, Long.MAX_VALUE, collect(scanned));
+        assertRows(expected, scanned);
+    }
+
+    @Test
+    void scanFiltersIdsExclusivelyAndStopsEarly() throws IOException {
+        List<Monitoring> rows = randomRows(MonitoringSegment.BLOCK_ROWS * 2 + 10, new Random(11));
+        MonitoringSegment segment = writeAndOpen(rows);
+        int minId = rows.get(300).getId_monitor();
+        int maxId = rows.get(1500).getId_monitor();
+
+        List<Monitoring> scanned = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, minId, maxId, collect(scanned));
+        assertRows(filter(rows, Long.MIN_VALUE, Long.MAX_VALUE, minId, maxId), scanned);
+        assertTrue(scanned.stream().noneMatch(m -> m.getId_monitor() == minId || m.getId_monitor() == maxId));
+
+        List<Monitoring> firstFive = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE,
+                (id, lahan, tanggal, suhu, kelembaban) -> {
+                    firstFive.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal)));
+                    return firstFive.size() < 5;
+                });
+        assertRows(rows.subList(0, 5), firstFive);
+    }
+
+    @Test
+    void cursorIsExhaustedAfterRange() throws IOException {
+        List<Monitoring> rows = randomRows(50, new Random(3));
+        MonitoringSegment segment = writeAndOpen(rows);
+        long to = rows.get(10).getTanggal().getTime();
+
+        MonitoringSegment.Cursor cursor = segment.cursor(Long.MIN_VALUE, to);
+        int count = 0;
+        while (cursor.next()) count++;
+        assertEquals(filter(rows, Long.MIN_VALUE, to, Long.MIN_VALUE, Long.MAX_VALUE).size(), count);
+        assertFalse(cursor.next());
+    }
+
+    // Baris acak urut (tanggal, id_monitor) dengan interval tidak teratur dan id naik-turun
+    private static List<Monitoring> randomRows(int size, Random random) {
+        List<Monitoring> rows = new ArrayList<>();
+        long ts = START;
+        for (int i = 0; i < size; i++) {
+            int pick = random.nextInt(10);
+            ts += pick == 0 ? 0 : pick < 8 ? 60_000 + random.nextInt(2_000) - 1_000 : random.nextInt(10_000_000);
+            double suhu = random.nextInt(5) == 0 ? Double.NaN : Math.round(random.nextGaussian() * 500) / 100.0 + 27;
+            rows.add(row(random.nextInt(1_000_000), ts, suhu, random.nextInt(3) == 0 ? 60.0 : random.nextDouble() * 100));
+        }
+        rows.sort(Comparator.comparingLong((Monitoring m) -> m.getTanggal().getTime()).thenComparingInt(Monitoring::getId_monitor));
+        return rows;
+    }
+
+    private static Monitoring row(int id, long ts, double suhu, double kelembaban) {
+        return new Monitoring(id, 9, suhu, kelembaban, new Timestamp(ts));
+    }
+
+    private MonitoringSegment writeAndOpen(List<Monitoring> rows) throws IOException {
+        Path path = dir.resolve("lahan-9-" + rows.size() + ".seg");
+        MonitoringSegment.write(path, 9, rows);
+        return MonitoringSegment.open(path);
+    }
+
+    private static List<Monitoring> scanAll(MonitoringSegment segment) {
+        List<Monitoring> result = new ArrayList<>();
+        segment.scan(Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, collect(result));
+        return result;
+    }
+
+    private static List<Monitoring> cursorAll(MonitoringSegment segment, long fromMs, long toMs) {
+        List<Monitoring> result = new ArrayList<>();
+        MonitoringSegment.Cursor cursor = segment.cursor(fromMs, toMs);
+        while (cursor.next()) {
+            result.add(cursor.toMonitoring());
+        }
+        return result;
+    }
+
+    private static MonitoringSegment.RowVisitor collect(List<Monitoring> target) {
+        return (id, lahan, tanggal, suhu, kelembaban) -> {
+            target.add(new Monitoring(id, lahan, suhu, kelembaban, new Timestamp(tanggal)));
+            return true;
+        };
+    }
+
+    private static List<Monitoring> filter(List<Monitoring> rows, long fromMs, long toMs, long minIdExclusive, long maxIdExclusive) {
+        List<Monitoring> result = new ArrayList<>();
+        for (Monitoring row : rows) {
+            long ts = row.getTanggal().getTime();
+            if (ts >= fromMs && ts < toMs && row.getId_monitor() > minIdExclusive && row.getId_monitor() < maxIdExclusive) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static void assertRows(List<Monitoring> expected, List<Monitoring> actual) {
+        assertRows(expected, actual, "");
+    }
+
+    // assertEquals(double, double) membandingkan bit: NaN sama dengan NaN, 0.0 berbeda dari -0.0
+    private static void assertRows(List<Monitoring> expected, List<Monitoring> actual, String label) {
+        assertEquals(expected.size(), actual.size(), label + " row count");
+        for (int i = 0; i < expected.size(); i++) {
+            Monitoring e = expected.get(i);
+            Monitoring a = actual.get(i);
+            String where = label + " row " + i;
+            assertEquals(e.getId_monitor(), a.getId_monitor(), where + " id_monitor");
+            assertEquals(e.getId_lahan(), a.getId_lahan(), where + " id_lahan");
+            assertEquals(e.getTanggal().getTime(), a.getTanggal().getTime(), where + " tanggal");
+            assertEquals(e.getSuhu(), a.getSuhu(), where + " suhu");
+            assertEquals(e.getKelembaban(), a.getKelembaban(), where + " kelembaban");
+        }
+    }
+}
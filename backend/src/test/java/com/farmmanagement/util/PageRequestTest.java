@@ -0,0 +1,92 @@
+package com.farmmanagement.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import spark.Request;
+
+class PageRequestTest {
+
+    @Test
+    void defaultsToFirstAscendingPage() {
+        PageRequest page = PageRequest.from(request(Map.of()));
+        assertNull(page.getAfterId());
+        assertEquals(PageRequest.DEFAULT_LIMIT, page.getLimit());
+        assertFalse(page.isDescending());
+        assertNull(page.keysetCondition("id_monitor"));
+    }
+
+    @Test
+    void readsCursorFromAfterIdOrCursor() {
+        assertEquals(42, PageRequest.from(request(Map.of("after_id", "42"))).getAfterId());
+        assertEquals(7, PageRequest.from(request(Map.of("cursor", "7"))).getAfterId());
+        // after_id menang jika keduanya dikirim
+        assertEquals(42, PageRequest.from(request(Map.of("after_id", "42", "cursor", "7"))).getAfterId());
+        assertNull(PageRequest.from(request(Map.of("cursor", ""))).getAfterId());
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertInvalid(Map.of("after_id", "abc"), "after_id");
+        assertInvalid(Map.of("cursor", "99999999999"), "after_id");
+        assertInvalid(Map.of("cursor", "12.5"), "after_id");
+        assertInvalid(Map.of("limit", "x"), "limit");
+        assertInvalid(Map.of("limit", "0"), "limit");
+        assertInvalid(Map.of("limit", "-3"), "limit");
+        assertInvalid(Map.of("order", "sideways"), "order");
+    }
+
+    @Test
+    void clampsLimitAndParsesOrder() {
+        assertEquals(PageRequest.MAX_LIMIT, PageRequest.from(request(Map.of("limit", "1000000"))).getLimit());
+        assertEquals(50, PageRequest.from(request(Map.of("limit", "1000000")), 50).getLimit());
+        assertEquals(10, PageRequest.from(request(Map.of("limit", "10"))).getLimit());
+        assertTrue(PageRequest.from(request(Map.of("order", "DESC"))).isDescending());
+        assertFalse(PageRequest.from(request(Map.of("order", "asc"))).isDescending());
+    }
+
+    @Test
+    void recencyListsDefaultToDescending() {
+        assertTrue(PageRequest.from(request(Map.of()), 50, true).isDescending());
+        // order eksplisit tetap menang
+        assertFalse(PageRequest.from(request(Map.of("order", "asc")), 50, true).isDescending());
+    }
+
+    @Test
+    void keysetConditionFollowsDirection() {
+        assertEquals("id > :after_id", new PageRequest(5, 10, false).keysetCondition("id"));
+        assertEquals("id < :after_id", new PageRequest(5, 10, true).keysetCondition("id"));
+        assertEquals(" ORDER BY id DESC LIMIT :limit", new PageRequest(5, 10, true).orderAndLimit("id"));
+    }
+
+    @Test
+    void nextCursorOnlyWhenAnotherRowExists() {
+        PageRequest page = new PageRequest(null, 3, false);
+        // Probe mengembalikan ID ke-limit dan ke-(limit+1)
+        assertEquals("30", page.nextCursor(List.of(30, 40)));
+        assertNull(page.nextCursor(List.of(30)));
+        assertNull(page.nextCursor(List.of()));
+    }
+
+    private static void assertInvalid(Map<String, String> params, String parameter) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PageRequest.from(request(params)));
+        assertTrue(e.getMessage().contains(parameter), e.getMessage());
+    }
+
+    private static Request request(Map<String, String> params) {
+        return new Request() {
+            @Override
+            public String queryParams(String name) {
+                return params.get(name);
+            }
+        };
+    }
+}
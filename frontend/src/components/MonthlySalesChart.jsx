@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from "react";
 import Chart from "react-apexcharts";
-import api from "../services/api";
+import { fetchAllPages } from "../services/api";
 
 const MONTH_LABELS = [
   "Jan",
@@ -91,8 +91,7 @@ export const MonthlySalesChart = ({ data = null, fromBackend = true }) => {
           return;
         }
 
-        const res = await api.get("/pembelian").catch(() => ({ data: null }));
-        const purchases = res.data ?? [];
+        const purchases = await fetchAllPages("/pembelian").catch(() => []);
         const computed = computeMonthlyFromPurchases(purchases);
         if (mounted) setSeriesData(computed);
       } catch (err) {
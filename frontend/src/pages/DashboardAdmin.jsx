@@ -3,7 +3,7 @@ import SidebarAdmin from "../components/SidebarAdmin";
 import TopbarAdmin from "../components/TopbarAdmin";
 import StatsCard from "../components/StatsCard";
 import MonthlySalesChart from "../components/MonthlySalesChart";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 
 // Toolbar kecil di atas tabel
 function TableToolbar({ title, onRefresh }) {
@@ -164,8 +164,8 @@ export default function DashboardAdmin() {
   const loadHarvests = async () => {
     setLoading((s) => ({ ...s, h: true }));
     try {
-      const res = await api.get("/hasil_panen").catch(() => ({ data: null }));
-      setHarvests(res.data ?? demoHarvests);
+      const rows = await fetchAllPages("/hasil_panen").catch(() => null);
+      setHarvests(rows ?? demoHarvests);
     } catch (err) {
       console.error(err);
       setHarvests(demoHarvests);
@@ -192,8 +192,8 @@ export default function DashboardAdmin() {
   const loadMonitors = async () => {
     setLoading((s) => ({ ...s, m: true }));
     try {
-      const res = await api.get("/monitoring").catch(() => ({ data: null }));
-      setMonitors(res.data ?? demoMonitors);
+      const rows = await fetchAllPages("/monitoring").catch(() => null);
+      setMonitors(rows ?? demoMonitors);
     } catch (err) {
       console.error(err);
       setMonitors(demoMonitors);
@@ -205,8 +205,8 @@ export default function DashboardAdmin() {
   const loadPurchases = async () => {
     setLoading((s) => ({ ...s, p: true }));
     try {
-      const res = await api.get("/pembelian").catch(() => ({ data: null }));
-      setPurchases(res.data ?? demoPurchases);
+      const rows = await fetchAllPages("/pembelian").catch(() => null);
+      setPurchases(rows ?? demoPurchases);
     } catch (err) {
       console.error(err);
       setPurchases(demoPurchases);
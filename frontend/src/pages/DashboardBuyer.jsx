@@ -1,6 +1,6 @@
 import { useState, useEffect } from "react";
 import { useNavigate } from "react-router-dom";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 import TopbarBuyer from "../components/TopbarBuyer";
 import SidebarBuyer from "../components/SidebarBuyer";
 import TableToolbar from "../components/TableToolbar";
@@ -220,8 +220,7 @@ export default function DashboardBuyer() {
   const loadPurchases = async () => {
     setLoading((prev) => ({ ...prev, p: true }));
     try {
-      const res = await api.get("/pembeli/pembelian");
-      setPurchases(res.data.data || res.data || []);
+      setPurchases(await fetchAllPages("/pembeli/pembelian"));
     } catch {
       setPurchases([]);
     } finally {
@@ -231,8 +230,7 @@ export default function DashboardBuyer() {
   const loadAvailableHarvests = async () => {
     setLoading((prev) => ({ ...prev, h: true }));
     try {
-      const res = await api.get("/pembeli/hasil-panen");
-      setAvailableHarvests(res.data.data || res.data || []);
+      setAvailableHarvests(await fetchAllPages("/pembeli/hasil-panen"));
     } catch {
       setAvailableHarvests([]);
     } finally {
@@ -1,6 +1,6 @@
 import { useState, useEffect } from "react";
 import { useNavigate, Link } from "react-router-dom";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 import TopbarManager from "../components/TopbarManager";
 import SidebarManager from "../components/SidebarManager";
 import TableToolbar from "../components/TableToolbar";
@@ -36,8 +36,7 @@ export default function DashboardManager() {
   const loadHarvests = async () => {
     setLoading((prev) => ({ ...prev, h: true }));
     try {
-      const res = await api.get("/manager/hasil-panen");
-      setHarvests(res.data.data || []);
+      setHarvests(await fetchAllPages("/manager/hasil-panen"));
     } catch (err) {
       console.error("Error loading harvests:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
@@ -72,8 +71,7 @@ export default function DashboardManager() {
   const loadMonitors = async () => {
     setLoading((prev) => ({ ...prev, m: true }));
     try {
-      const res = await api.get("/manager/monitoring");
-      setMonitors(res.data.data || []);
+      setMonitors(await fetchAllPages("/manager/monitoring"));
     } catch (err) {
       console.error("Error loading monitoring:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
@@ -90,8 +88,7 @@ export default function DashboardManager() {
   const loadPurchases = async () => {
     setLoading((prev) => ({ ...prev, p: true }));
     try {
-      const res = await api.get("/pembelian");
-      setPurchases(res.data || []);
+      setPurchases(await fetchAllPages("/pembelian"));
     } catch (err) {
       console.error("Error loading pembelian:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
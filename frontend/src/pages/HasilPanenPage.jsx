@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 import SidebarManager from "../components/SidebarManager";
 import TopbarManager from "../components/TopbarManager";
 import { Pie } from "react-chartjs-2";
@@ -32,8 +32,7 @@ export default function HasilPanenPage() {
 
   const fetchHasilPanen = async () => {
     try {
-      const res = await api.get("/manager/hasil-panen");
-      setHasilPanen(res.data.data || []);
+      setHasilPanen(await fetchAllPages("/manager/hasil-panen"));
     } catch (err) {
       console.error("Gagal memuat data hasil panen:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
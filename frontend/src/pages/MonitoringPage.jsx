@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 import SidebarManager from "../components/SidebarManager";
 import TopbarManager from "../components/TopbarManager";
 import { Line } from "react-chartjs-2";
@@ -42,8 +42,7 @@ export default function MonitoringPage() {
 
   const fetchMonitoring = async () => {
     try {
-      const res = await api.get("/manager/monitoring");
-      setMonitoring(res.data.data || []);
+      setMonitoring(await fetchAllPages("/manager/monitoring"));
     } catch (err) {
       console.error("Gagal memuat data monitoring:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
@@ -1,6 +1,6 @@
 import React, { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
-import api from "../services/api";
+import api, { fetchAllPages } from "../services/api";
 import SidebarManager from "../components/SidebarManager";
 import TopbarManager from "../components/TopbarManager";
 import { Bar } from "react-chartjs-2";
@@ -41,9 +41,8 @@ export default function PembelianPage() {
 
   const fetchPembelian = async (managerId) => {
     try {
-      const res = await api.get("/pembelian");
       // Filter pembelian sesuai id_penjual (id_user manager saat ini)
-      const allPembelian = res.data || [];
+      const allPembelian = await fetchAllPages("/pembelian");
       const filtered = allPembelian.filter((p) => p.id_penjual === managerId);
       setPembelian(filtered);
     } catch (err) {
@@ -58,8 +57,7 @@ export default function PembelianPage() {
 
   const fetchHasilPanen = async () => {
     try {
-      const res = await api.get("/manager/hasil-panen");
-      setHasilPanen(res.data.data || []);
+      setHasilPanen(await fetchAllPages("/manager/hasil-panen"));
     } catch (err) {
       console.error("Gagal memuat data hasil panen:", err);
       if (err.response?.status === 401 || err.response?.status === 403) {
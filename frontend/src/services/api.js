@@ -126,6 +126,32 @@ export async function resetPassword(username, oldPassword, newPassword) {
   }
 }
 
+// Ukuran halaman saat mengambil seluruh daftar (backend membatasi maksimal PAGE_STREAM_MAX_LIMIT)
+const PAGE_LIMIT = 1000;
+
+/**
+ * Ambil semua halaman dari endpoint daftar ber-pagination (monitoring, pembelian, hasil panen),
+ * terbaru dulu. Mengikuti next_cursor (envelope {data, next_cursor}) atau header X-Next-Cursor
+ * (array polos) sampai halaman terakhir, jadi daftar tidak terpotong di halaman pertama.
+ * @param {string} path
+ * @param {object} params query tambahan (mis. from / to)
+ * @returns {Promise<Array>} Semua baris
+ */
+export async function fetchAllPages(path, params = {}) {
+  const rows = [];
+  let cursor = null;
+  do {
+    const res = await api.get(path, {
+      params: { ...params, order: "desc", limit: PAGE_LIMIT, ...(cursor ? { cursor } : {}) },
+    });
+    const body = res.data;
+    const page = Array.isArray(body) ? body : body?.data || [];
+    rows.push(...page);
+    cursor = Array.isArray(body) ? res.headers["x-next-cursor"] : body?.next_cursor;
+  } while (cursor);
+  return rows;
+}
+
 // Export instance 'api' untuk digunakan di komponen seperti TanamanPage
 export default api;
 